@@ -0,0 +1,76 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The test packs from core/src/testFixtures/resources, mapped the way StringPacks maps them. */
+final class BenchmarkPacks {
+
+  // A UTF-16BE pack with one locale.
+  static final String ZH = "strings_zh.pack";
+  // A UTF-8 pack with a locale and its parent.
+  static final String HA = "strings_ha.pack";
+  // A UTF-8 pack with styled strings and a "%d items" plural.
+  static final String STYLED = "strings_styled.pack";
+
+  // Pack ids of the test packs, see core/src/testFixtures/resources/README.md.
+  static final int PLURAL_ID = 0;
+  static final int FIRST_STRING_ID = 1;
+  static final int LAST_STRING_ID = 15;
+  static final int STYLED_PLURAL_ID = 2;
+
+  // StringPacks itself needs Android, so it's not compiled into the benchmarks.
+  private static final String PACK_FILE_EXTENSION = ".pack";
+
+  private BenchmarkPacks() {}
+
+  static List<String> parentLocales(String packFile) {
+    switch (packFile) {
+      case ZH:
+        return Collections.singletonList("zh");
+      case HA:
+        return Arrays.asList("ha", "ha-NG");
+      case STYLED:
+        return Arrays.asList("en", "en-GB");
+      default:
+        throw new IllegalArgumentException("Unknown pack: " + packFile);
+    }
+  }
+
+  /** Extracts the pack to a temporary file and maps it. */
+  static MappedByteBuffer map(String packFile) throws IOException {
+    final File file = File.createTempFile("benchmark_", PACK_FILE_EXTENSION);
+    file.deleteOnExit();
+    try (InputStream in = BenchmarkPacks.class.getClassLoader().getResourceAsStream(packFile);
+        OutputStream out = new FileOutputStream(file)) {
+      if (in == null) {
+        throw new IOException("Missing pack: " + packFile);
+      }
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      return randomAccessFile
+          .getChannel()
+          .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+    }
+  }
+}
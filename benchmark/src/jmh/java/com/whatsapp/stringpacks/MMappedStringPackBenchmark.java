@@ -0,0 +1,85 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/** Reads straight from the mapped pack file, without the cache of {@link ParsedStringPack}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MMappedStringPackBenchmark {
+
+  // strings_zh.pack is UTF-16 with one locale, strings_ha.pack is UTF-8 with two.
+  @Param({BenchmarkPacks.ZH, BenchmarkPacks.HA})
+  public String packFile;
+
+  private List<String> parentLocales;
+  private MappedByteBuffer mappedPackFile;
+  private MMappedStringPack pack;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int id = BenchmarkPacks.FIRST_STRING_ID;
+
+    int nextStringId() {
+      final int current = id;
+      id = current == BenchmarkPacks.LAST_STRING_ID ? BenchmarkPacks.FIRST_STRING_ID : current + 1;
+      return current;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    parentLocales = BenchmarkPacks.parentLocales(packFile);
+    mappedPackFile = BenchmarkPacks.map(packFile);
+    pack = new MMappedStringPack(parentLocales, mappedPackFile);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pack.close();
+  }
+
+  /** Reading the header and the locale tables, as {@code StringPacks#setUp} does. */
+  @Benchmark
+  public MMappedStringPack construct() {
+    final MMappedStringPack constructed = new MMappedStringPack(parentLocales, mappedPackFile);
+    constructed.close();
+    return constructed;
+  }
+
+  @Benchmark
+  public String loadString(Cursor cursor) {
+    return pack.loadString(cursor.nextStringId());
+  }
+
+  /** The loads are synchronized on the pack, so this shows the cost of lock contention. */
+  @Benchmark
+  @Threads(4)
+  public String loadString_contended(Cursor cursor) {
+    return pack.loadString(cursor.nextStringId());
+  }
+
+  @Benchmark
+  public String[] loadPlural() {
+    return pack.loadPlural(BenchmarkPacks.PLURAL_ID);
+  }
+}
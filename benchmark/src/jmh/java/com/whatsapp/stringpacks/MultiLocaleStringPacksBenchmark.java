@@ -0,0 +1,163 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Throughput of {@link MultiLocaleStringPacks} over a corpus of one pack per language, with a
+ * regional variant in every fourth pack, generated by generate_corpus.py. Results are in requests
+ * per second.
+ *
+ * <p>{@code ./gradlew :benchmark:jmh} generates the corpora first and passes their directory in the
+ * {@code stringpacks.benchmarkCorpus} system property.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class MultiLocaleStringPacksBenchmark {
+
+  private static final int BATCH_SIZE = 100000;
+
+  // The corpus, see benchmarkCorpora in build.gradle.
+  @Param({"standard", "compact", "wide"})
+  public String corpus;
+
+  // Share of requests that are plurals, and of requests that are formatted, in percent.
+  @Param({"20"})
+  public int pluralPercent;
+
+  @Param({"50"})
+  public int formattedPercent;
+
+  private MultiLocaleStringPacks packs;
+  private List<MultiLocaleStringPacks.Request> requests;
+  private String[] out;
+  private ExecutorService executor;
+  private int threadCount;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int index;
+
+    int next() {
+      index = index == BATCH_SIZE - 1 ? 0 : index + 1;
+      return index;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    final String corpusDirectory = System.getProperty("stringpacks.benchmarkCorpus");
+    if (corpusDirectory == null) {
+      throw new IllegalStateException("Run with ./gradlew :benchmark:jmh to generate the corpus");
+    }
+    final File[] files =
+        new File(corpusDirectory, corpus).listFiles((dir, name) -> name.endsWith(".pack"));
+    if (files == null || files.length == 0) {
+      throw new IllegalStateException("No pack files in " + corpusDirectory + "/" + corpus);
+    }
+    packs = MultiLocaleStringPacks.map(Arrays.asList(files));
+    final List<String> locales = new ArrayList<>(packs.getLocales());
+    Collections.sort(locales);
+
+    // The generated ids go from 0, and which of them are plurals is picked at random, so tell
+    // them apart in one of the languages.
+    final String language = locales.get(0).split("-")[0];
+    final List<Integer> stringIds = new ArrayList<>();
+    final List<Integer> pluralIds = new ArrayList<>();
+    for (int id = 0; ; id++) {
+      if (packs.getString(language, id) != null) {
+        stringIds.add(id);
+      } else if (packs.getQuantityString(language, id, 1) != null) {
+        pluralIds.add(id);
+      } else {
+        break;
+      }
+    }
+
+    final Random random = new Random(42);
+    requests = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      final String locale = locales.get(random.nextInt(locales.size()));
+      final boolean formatted = random.nextInt(100) < formattedPercent;
+      // The generated strings have up to one "%1$s", "%1$d" or "%2$s" placeholder, and plurals
+      // also a "%1$d", which these arguments all fit.
+      if (random.nextInt(100) < pluralPercent) {
+        final int id = pluralIds.get(random.nextInt(pluralIds.size()));
+        final int quantity = random.nextInt(200);
+        requests.add(
+            formatted
+                ? new MultiLocaleStringPacks.Request(locale, id, quantity, quantity, "Alice")
+                : new MultiLocaleStringPacks.Request(locale, id, quantity));
+      } else {
+        final int id = stringIds.get(random.nextInt(stringIds.size()));
+        requests.add(
+            formatted
+                ? new MultiLocaleStringPacks.Request(
+                    locale, id, MultiLocaleStringPacks.NO_QUANTITY, 42, "Alice")
+                : new MultiLocaleStringPacks.Request(
+                    locale, id, MultiLocaleStringPacks.NO_QUANTITY));
+      }
+    }
+    out = new String[BATCH_SIZE];
+    threadCount = Runtime.getRuntime().availableProcessors();
+    executor = Executors.newFixedThreadPool(threadCount);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+    packs.close();
+  }
+
+  @Benchmark
+  public String resolve(Cursor cursor) {
+    return packs.resolve(requests.get(cursor.next()));
+  }
+
+  /** Independent threads resolving at once, which shows whether lookups contend. */
+  @Benchmark
+  @Threads(4)
+  public String resolve_contended(Cursor cursor) {
+    return packs.resolve(requests.get(cursor.next()));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public String[] resolveAll_sequential() {
+    packs.resolveAll(requests, out);
+    return out;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public String[] resolveAll_parallel() throws InterruptedException {
+    packs.resolveAll(requests, out, executor, threadCount);
+    return out;
+  }
+}
@@ -0,0 +1,137 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/** Lookups through the cache of {@link ParsedStringPack}, the way {@code StringPacks} does them. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ParsedStringPackBenchmark {
+
+  @Param({BenchmarkPacks.ZH, BenchmarkPacks.HA})
+  public String packFile;
+
+  private List<String> parentLocales;
+  private MappedByteBuffer mappedPackFile;
+  private ParsedStringPack warmPack;
+  private PluralRules pluralRules;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int id = BenchmarkPacks.FIRST_STRING_ID;
+
+    int nextStringId() {
+      final int current = id;
+      id = current == BenchmarkPacks.LAST_STRING_ID ? BenchmarkPacks.FIRST_STRING_ID : current + 1;
+      return current;
+    }
+  }
+
+  /** A pack with nothing cached yet, replaced before every call. */
+  @State(Scope.Thread)
+  public static class ColdPack {
+    ParsedStringPack pack;
+
+    @Setup(Level.Invocation)
+    public void setUp(ParsedStringPackBenchmark benchmark) {
+      pack = new ParsedStringPack(benchmark.parentLocales, benchmark.mappedPackFile);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+      pack.close();
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    parentLocales = BenchmarkPacks.parentLocales(packFile);
+    mappedPackFile = BenchmarkPacks.map(packFile);
+    warmPack = new ParsedStringPack(parentLocales, mappedPackFile);
+    final int[] ids = new int[BenchmarkPacks.LAST_STRING_ID + 1];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i;
+    }
+    warmPack.prewarm(ids);
+    pluralRules = PluralRules.ruleForLocale(new Locale(parentLocales.get(0)));
+  }
+
+  @TearDown
+  public void tearDown() {
+    warmPack.close();
+  }
+
+  @Benchmark
+  public String getString_hit(Cursor cursor) {
+    return warmPack.getString(cursor.nextStringId());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String getString_hit_contended(Cursor cursor) {
+    return warmPack.getString(cursor.nextStringId());
+  }
+
+  /** A miss reads from the mapped file and then caches, so this includes the cache insert. */
+  @Benchmark
+  public String getString_miss(ColdPack coldPack, Cursor cursor) {
+    return coldPack.pack.getString(cursor.nextStringId());
+  }
+
+  @Benchmark
+  public String getQuantityString_hit() {
+    return warmPack.getQuantityString(BenchmarkPacks.PLURAL_ID, 5, pluralRules);
+  }
+
+  /** Formatting a plural, as {@code StringPackResources.getQuantityString()} does. */
+  @State(Scope.Benchmark)
+  public static class Formatting {
+    private static final Locale LOCALE = Locale.ENGLISH;
+
+    ParsedStringPack pack;
+    PluralRules pluralRules;
+
+    @Setup
+    public void setUp() throws IOException {
+      pack =
+          new ParsedStringPack(
+              BenchmarkPacks.parentLocales(BenchmarkPacks.STYLED),
+              BenchmarkPacks.map(BenchmarkPacks.STYLED));
+      pluralRules = PluralRules.ruleForLocale(LOCALE);
+    }
+
+    @TearDown
+    public void tearDown() {
+      pack.close();
+    }
+  }
+
+  @Benchmark
+  public String getQuantityString_formatted(Formatting formatting) {
+    final String format =
+        formatting.pack.getQuantityString(
+            BenchmarkPacks.STYLED_PLURAL_ID, 5, formatting.pluralRules);
+    return String.format(Formatting.LOCALE, format, 5);
+  }
+}
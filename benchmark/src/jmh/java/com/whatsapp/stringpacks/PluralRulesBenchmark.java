@@ -0,0 +1,54 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PluralRulesBenchmark {
+
+  // English has two quantities, Russian and Polish four with different rules, Arabic six.
+  @Param({"en", "ru", "pl", "ar"})
+  public String locale;
+
+  private PluralRules pluralRules;
+  private long number;
+
+  @Setup
+  public void setUp() {
+    pluralRules = PluralRules.ruleForLocale(new Locale(locale));
+  }
+
+  @Benchmark
+  public PluralRules ruleForLocale() {
+    return PluralRules.ruleForLocale(new Locale(locale));
+  }
+
+  /** Cycles through small numbers, which covers every quantity of these languages. */
+  @Benchmark
+  public int quantityForNumber_long() {
+    number = number == 199 ? 0 : number + 1;
+    return pluralRules.quantityForNumber(number);
+  }
+
+  @Benchmark
+  public int quantityForNumber_double() {
+    number = number == 199 ? 0 : number + 1;
+    return pluralRules.quantityForNumber(number + 0.5, 1);
+  }
+}
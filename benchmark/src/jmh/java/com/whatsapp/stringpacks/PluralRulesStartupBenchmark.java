@@ -0,0 +1,54 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of resolving the first plural rule in a process, including class loading and
+ * static initialization. Each invocation loads the library classes in a new class loader, so they
+ * are initialized again.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+@State(Scope.Thread)
+public class PluralRulesStartupBenchmark {
+
+  // The hand-written rules, which were all created on first use, and the compiled rules, which
+  // only create the family for the requested locale.
+  @Param({"legacy", "compiled"})
+  public String rules;
+
+  private IsolatingClassLoader classLoader;
+
+  @Setup(Level.Invocation)
+  public void setUp() {
+    classLoader = new IsolatingClassLoader(PluralRulesStartupBenchmark.class.getClassLoader());
+  }
+
+  @Benchmark
+  public Object firstRuleForLocale() throws ReflectiveOperationException {
+    if ("legacy".equals(rules)) {
+      return classLoader.invokeStatic("LegacyPluralRules", "ruleForLanguage", String.class, "fr");
+    }
+    return classLoader.invokeStatic("PluralRules", "ruleForLocale", Locale.class, Locale.FRENCH);
+  }
+}
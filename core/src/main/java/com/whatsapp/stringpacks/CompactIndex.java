@@ -0,0 +1,227 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads the compact string or plural table of a locale, in packs with {@link
+ * StringPackData#FLAG_COMPACT_INDEX}. The entries are in blocks of {@link #BLOCK_SIZE}, with ids
+ * delta coded and string locations as varints, after a directory of the first id of each block.
+ * A lookup binary searches the directory and decodes a single block, so it only reads a page or
+ * two of the table, and nothing is copied to the heap. See `blob_append_compact_table` in
+ * string_pack.py for the format.
+ *
+ * <p>String locations are returned as longs, with the start of the string in the string data in
+ * the high 32 bits and its length in bytes in the low 32 bits.
+ *
+ * <p>This is not thread safe, as lookups share a decoding cursor. {@link MMappedStringPack} only
+ * uses it while holding its lock.
+ */
+final class CompactIndex {
+
+  // Keep in sync with `_COMPACT_BLOCK_SIZE` in string_pack.py
+  static final int BLOCK_SIZE = 16;
+  static final long NO_LOCATION = -1;
+
+  // Each block has its first id and the offset of its data, 4 bytes each.
+  private static final int DIRECTORY_ENTRY_SIZE = 8;
+
+  private final ByteBuffer packFile;
+  private final boolean plurals;
+  private final int count;
+  private final int blockCount;
+  private final int directoryStart;
+  private final int dataStart;
+  private final int end;
+  private final int lastId;
+
+  // Decoding cursor: the position of the next byte, and where the previous string of the block
+  // ends, which the next string location is relative to.
+  private int caret;
+  private int previousEnd;
+
+  /**
+   * @param packFile the pack file. Only read with absolute reads, so its position doesn't matter.
+   * @param start where the table starts in the pack file
+   * @param plurals whether this is a plural table, rather than a string table
+   */
+  CompactIndex(@NonNull ByteBuffer packFile, @IntRange(from = 0) int start, boolean plurals) {
+    this.packFile = packFile;
+    this.plurals = plurals;
+    count = read32BitsFrom(start);
+    blockCount = read32BitsFrom(start + 4);
+    final int dataSize = read32BitsFrom(start + 8);
+    directoryStart = start + 12;
+    dataStart = directoryStart + blockCount * DIRECTORY_ENTRY_SIZE;
+    end = dataStart + dataSize;
+    lastId = count == 0 ? -1 : lastIdOf(blockCount - 1);
+  }
+
+  static int startOf(long location) {
+    return (int) (location >>> 32);
+  }
+
+  static int lengthOf(long location) {
+    return (int) location;
+  }
+
+  /** Returns where the table ends in the pack file. */
+  int end() {
+    return end;
+  }
+
+  int size() {
+    return count;
+  }
+
+  /** Returns the largest id of the table, or -1 if it's empty. */
+  int lastId() {
+    return lastId;
+  }
+
+  /** Returns the location of the string with the given id, or {@link #NO_LOCATION}. */
+  long findString(int id) {
+    if (plurals || !seek(id)) {
+      return NO_LOCATION;
+    }
+    return readLocation();
+  }
+
+  /**
+   * Finds the plural with the given id.
+   *
+   * @param locations receives the location of each quantity by quantity id, and {@link
+   *     #NO_LOCATION} for the quantities the plural doesn't have. Left as is if the plural isn't
+   *     found.
+   * @return whether the plural was found
+   */
+  boolean findPlural(int id, @NonNull long[] locations) {
+    if (!plurals || !seek(id)) {
+      return false;
+    }
+    Arrays.fill(locations, NO_LOCATION);
+    final int quantityCount = packFile.get(caret++);
+    for (int i = 0; i < quantityCount; i++) {
+      final int quantityId = packFile.get(caret++);
+      locations[quantityId] = readLocation();
+    }
+    return true;
+  }
+
+  /** Returns all the ids of the table, in increasing order. */
+  @NonNull
+  int[] ids() {
+    final int[] ids = new int[count];
+    int i = 0;
+    for (int block = 0; block < blockCount; block++) {
+      int id = startBlock(block);
+      ids[i++] = id;
+      for (int j = 1; j < entryCountOf(block); j++) {
+        skipPayload();
+        id += readVarint();
+        ids[i++] = id;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Moves the cursor to the payload of the entry with the given id, and returns whether the table
+   * has it.
+   */
+  private boolean seek(int id) {
+    // Find the last block whose first id is not above the given id.
+    int low = 0;
+    int high = blockCount - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      if (read32BitsFrom(directoryStart + middle * DIRECTORY_ENTRY_SIZE) <= id) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    if (high < 0) {
+      return false;
+    }
+    int entryId = startBlock(high);
+    final int entryCount = entryCountOf(high);
+    for (int i = 1; entryId < id; i++) {
+      if (i == entryCount) {
+        return false;
+      }
+      skipPayload();
+      entryId += readVarint();
+    }
+    return entryId == id;
+  }
+
+  /** Moves the cursor to the payload of the first entry of the block, and returns its id. */
+  private int startBlock(int block) {
+    final int directoryEntry = directoryStart + block * DIRECTORY_ENTRY_SIZE;
+    caret = dataStart + read32BitsFrom(directoryEntry + 4);
+    previousEnd = 0;
+    return read32BitsFrom(directoryEntry);
+  }
+
+  private int entryCountOf(int block) {
+    return Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+  }
+
+  private int lastIdOf(int block) {
+    int id = startBlock(block);
+    for (int i = 1; i < entryCountOf(block); i++) {
+      skipPayload();
+      id += readVarint();
+    }
+    return id;
+  }
+
+  /** Skips the string location, or the quantities of a plural, at the cursor. */
+  private void skipPayload() {
+    if (!plurals) {
+      readLocation();
+      return;
+    }
+    final int quantityCount = packFile.get(caret++);
+    for (int i = 0; i < quantityCount; i++) {
+      caret++; // Skip the quantity id
+      readLocation();
+    }
+  }
+
+  private long readLocation() {
+    final int zigzag = readVarint();
+    final int start = previousEnd + ((zigzag >>> 1) ^ -(zigzag & 1));
+    final int length = readVarint();
+    previousEnd = start + length;
+    return ((long) start << 32) | length;
+  }
+
+  private int readVarint() {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = packFile.get(caret++) & 0xFF;
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b >= 0x80);
+    return value;
+  }
+
+  private int read32BitsFrom(@IntRange(from = 0) int offset) {
+    return (packFile.get(offset) & 0xFF)
+        | ((packFile.get(offset + 1) & 0xFF) << 8)
+        | ((packFile.get(offset + 2) & 0xFF) << 16)
+        | ((packFile.get(offset + 3) & 0xFF) << 24);
+  }
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+/**
+ * Plural rules for one rule family, interpreted from the program compiled into {@link
+ * PluralRulesData} by library/scripts/compile_plural_rules.py.
+ *
+ * <p>A family is a sequence of categories. Each category is a quantity followed by the branches of
+ * its {@code or} condition, and each branch is a length-prefixed list of relations which all have
+ * to match. A relation is an operand, an optional modulus, and a list of inclusive ranges, which
+ * may be negated. The first category that matches wins, and the "other" category is implicit.
+ */
+final class CompiledPluralRules extends PluralRules {
+
+  // These must be kept in sync with library/scripts/compile_plural_rules.py.
+  private static final int OPERAND_N = 0;
+  private static final int OPERAND_I = 1;
+  private static final int OPERAND_V = 2;
+  private static final int OPERAND_W = 3;
+  private static final int OPERAND_F = 4;
+  private static final int OPERAND_T = 5;
+  private static final int OPERAND_MASK = 0x0F;
+  private static final int OP_MODULUS = 0x10;
+  private static final int OP_NEGATE = 0x20;
+  private static final int LONG_VALUE = 0x8000;
+
+  private final int start;
+
+  CompiledPluralRules(int start) {
+    this.start = start;
+  }
+
+  @Override
+  @Quantity
+  public int quantityForNumber(double n, long i, int v, int w, long f, long t) {
+    final String program = PluralRulesData.PROGRAM;
+    int pc = start;
+    final int categoryCount = program.charAt(pc++);
+    for (int category = 0; category < categoryCount; category++) {
+      final int quantity = program.charAt(pc++);
+      final int branchCount = program.charAt(pc++);
+      for (int branch = 0; branch < branchCount; branch++) {
+        final int branchLength = program.charAt(pc++);
+        final int branchEnd = pc + branchLength;
+        boolean matches = true;
+        while (pc < branchEnd) {
+          final int op = program.charAt(pc++);
+          double value;
+          switch (op & OPERAND_MASK) {
+            case OPERAND_N:
+              value = n;
+              break;
+            case OPERAND_I:
+              value = i;
+              break;
+            case OPERAND_V:
+              value = v;
+              break;
+            case OPERAND_W:
+              value = w;
+              break;
+            case OPERAND_F:
+              value = f;
+              break;
+            case OPERAND_T:
+              value = t;
+              break;
+            default:
+              // The compact decimal exponent operands (e, c) are always 0 for plain numbers.
+              value = 0;
+              break;
+          }
+          if ((op & OP_MODULUS) != 0) {
+            int modulus = program.charAt(pc++);
+            if ((modulus & LONG_VALUE) != 0) {
+              modulus = ((modulus & ~LONG_VALUE) << 16) | program.charAt(pc++);
+            }
+            value %= modulus;
+          }
+          final boolean integral = value == Math.floor(value);
+          boolean inRanges = false;
+          final int rangeCount = program.charAt(pc++);
+          for (int range = 0; range < rangeCount; range++) {
+            int low = program.charAt(pc++);
+            if ((low & LONG_VALUE) != 0) {
+              low = ((low & ~LONG_VALUE) << 16) | program.charAt(pc++);
+            }
+            int high = program.charAt(pc++);
+            if ((high & LONG_VALUE) != 0) {
+              high = ((high & ~LONG_VALUE) << 16) | program.charAt(pc++);
+            }
+            if (integral && low <= value && value <= high) {
+              inRanges = true;
+            }
+          }
+          if (inRanges == ((op & OP_NEGATE) != 0)) {
+            matches = false;
+            break;
+          }
+        }
+        if (matches) {
+          return quantity;
+        }
+        pc = branchEnd;
+      }
+    }
+    return QUANTITY_OTHER;
+  }
+}
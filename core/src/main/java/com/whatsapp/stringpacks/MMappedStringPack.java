@@ -0,0 +1,653 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Class that holds logic for MMapped string pack */
+public class MMappedStringPack implements Closeable {
+
+  // Number of packs whose mapping has not been released yet, across the whole process.
+  private static final AtomicInteger liveMappingCount = new AtomicInteger();
+
+  // Set to null on close, so the mapping can be reclaimed once it's not reachable anymore.
+  @Nullable private ByteBuffer mappedByteBuffer;
+  private final Charset encoding;
+  private final int startOfStringData;
+  // Strings that start at or after this offset in the string data are in UTF-16BE rather than in
+  // `encoding`. Only packs whose locales have different encodings have such strings. See
+  // StringPackData.ENCODING_PER_LOCALE.
+  private final int utf16Start;
+
+  /** Index of a plain string in {@link #textKey(int, int)}, as opposed to a plural quantity. */
+  static final int STRING_INDEX = 7;
+
+  private final boolean hasSpans;
+  private final boolean hasArrays;
+  // Whether ids and counts take 32 bits, and lengths and span positions are varints. See
+  // StringPackData.FLAG_WIDE_FORMAT.
+  private final boolean wideFormat;
+  // Size in bytes of an id or count.
+  private final int idSize;
+  // Whether the strings and plurals are in compact tables, which are read in place rather than
+  // indexed on load. See StringPackData.FLAG_COMPACT_INDEX.
+  private final boolean compactIndex;
+
+  // The compact tables of each locale, from the least to the most specific.
+  private final List<CompactIndex> compactStrings = new ArrayList<>();
+  private final List<CompactIndex> compactPlurals = new ArrayList<>();
+  private int compactIdLimit;
+  private int compactStringCount;
+  // The location of each quantity of the plural being loaded, by quantity id.
+  private final long[] quantityLocations = new long[STRING_INDEX];
+
+  // The following arrays store the id->location data for strings and plurals
+  private final SparseIntMap pluralSparseArray = new SparseIntMap();
+  private final SparseIntMap stringSparseArray = new SparseIntMap();
+  private final SparseIntMap arraySparseArray = new SparseIntMap();
+  // Location of the spans of styled strings and plural quantities, keyed by textKey(). It doesn't
+  // change once the pack is constructed, so it's read without the lock.
+  private final SparseIntMap spanSparseArray = new SparseIntMap();
+
+  // Number of string loads while tracing, to sample which ones are traced.
+  private int tracedLoadCount;
+
+  /**
+   * @param parentLocales locales to read, from the least to the most specific
+   * @param mappedPackFile the pack file, usually mapped. Its position is changed by reads, so it
+   *     must not be shared with another pack that may be read at the same time.
+   */
+  public MMappedStringPack(
+      @NonNull List<String> parentLocales, @NonNull ByteBuffer mappedPackFile) {
+    mappedByteBuffer = mappedPackFile;
+
+    final int numLocales = read16BitsFrom(0);
+    final int startOfLocaleData = read32BitsFrom(2);
+    final byte encodingByte = mappedByteBuffer.get(6);
+    final int encodingId = encodingByte & StringPackData.ENCODING_MASK;
+
+    startOfStringData = read32BitsFrom(7);
+    if (encodingId == StringPackData.ENCODING_PER_LOCALE) {
+      encoding = StringPackData.ENCODINGS[0];
+      utf16Start = read32BitsFrom(startOfStringData);
+    } else {
+      if (encodingId >= StringPackData.ENCODINGS.length) {
+        SpLog.e("MMappedStringPack: unrecognized encoding");
+      }
+      encoding = StringPackData.ENCODINGS[encodingId];
+      utf16Start = Integer.MAX_VALUE;
+    }
+    hasSpans = (encodingByte & StringPackData.FLAG_SPANS) != 0;
+    hasArrays = (encodingByte & StringPackData.FLAG_ARRAYS) != 0;
+    wideFormat = (encodingByte & StringPackData.FLAG_WIDE_FORMAT) != 0;
+    idSize = wideFormat ? 4 : 2;
+    compactIndex = (encodingByte & StringPackData.FLAG_COMPACT_INDEX) != 0;
+
+    if (parentLocales.isEmpty()) {
+      SpLog.e("MMappedStringPack: parentLocales is empty");
+      liveMappingCount.incrementAndGet();
+      return;
+    }
+
+    int caret = startOfLocaleTable(encodingByte);
+    int numMatches = 0;
+    final int[] translationLocations = new int[parentLocales.size()];
+    for (int i = 0; i < numLocales; i++) {
+      final String resourceLocale = readLocaleFrom(caret);
+      final int listIndex = parentLocales.indexOf(resourceLocale);
+      if (listIndex != -1) { // Matching locale found
+        numMatches++;
+        translationLocations[listIndex] = caret; // Save the caret position for the match
+        if (numMatches >= parentLocales.size()) {
+          // No need to continue. We've already seen the maximum number of matches.
+          break;
+        }
+      }
+      caret += StringPackData.LOCALE_CODE_SIZE + 4;
+    }
+
+    final Tracer tracer = SpTrace.get();
+    for (int translationLocation : translationLocations) {
+      if (translationLocation == 0) {
+        continue;
+      }
+      if (tracer != null) {
+        tracer.beginSection("StringPacks.mapTranslations");
+      }
+      try {
+        final int headerStart;
+
+        mappedByteBuffer.position(translationLocation + StringPackData.LOCALE_CODE_SIZE);
+        headerStart = read32BitsFrom(mappedByteBuffer.position());
+
+        // We will map the translation location here from less specific to more specific
+        mapTranslations(startOfLocaleData, headerStart);
+      } finally {
+        if (tracer != null) {
+          tracer.endSection();
+        }
+      }
+    }
+    // Only counted once constructed, so that a malformed pack that throws isn't counted as live.
+    liveMappingCount.incrementAndGet();
+  }
+
+  private int read16BitsFrom(@IntRange(from = 0) int offset) {
+    return (mappedByteBuffer.get(offset) & 0xFF) | ((mappedByteBuffer.get(offset + 1) & 0xFF) << 8);
+  }
+
+  private int read32BitsFrom(@IntRange(from = 0) int offset) {
+    return (mappedByteBuffer.get(offset) & 0xFF)
+        | ((mappedByteBuffer.get(offset + 1) & 0xFF) << 8)
+        | ((mappedByteBuffer.get(offset + 2) & 0xFF) << 16)
+        | ((mappedByteBuffer.get(offset + 3) & 0xFF) << 24);
+  }
+
+  /** Reads an id or a count. */
+  private int readIdFrom(@IntRange(from = 0) int offset) {
+    return wideFormat ? read32BitsFrom(offset) : read16BitsFrom(offset);
+  }
+
+  /** Reads the length of a string, or a span position. */
+  private int readLengthFrom(@IntRange(from = 0) int offset) {
+    if (!wideFormat) {
+      return read16BitsFrom(offset);
+    }
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = mappedByteBuffer.get(offset++) & 0xFF;
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b >= 0x80);
+    return value;
+  }
+
+  /** Returns the size in bytes of the length or span position at the given offset. */
+  private int lengthSizeAt(@IntRange(from = 0) int offset) {
+    if (!wideFormat) {
+      return 2;
+    }
+    int size = 1;
+    while ((mappedByteBuffer.get(offset + size - 1) & 0x80) != 0) {
+      size++;
+    }
+    return size;
+  }
+
+  /** Returns the offset right after the string location (start and length) at the given offset. */
+  private int skipLocation(@IntRange(from = 0) int offset) {
+    return offset + 4 + lengthSizeAt(offset + 4);
+  }
+
+  @NonNull
+  private String readLocaleFrom(@IntRange(from = 0) int offset) {
+    return readLocale(mappedByteBuffer, offset);
+  }
+
+  @NonNull
+  private static String readLocale(@NonNull ByteBuffer packFile, @IntRange(from = 0) int offset) {
+    final int length;
+    if (packFile.get(offset + 2) == '\0') {
+      length = 2;
+    } else if (packFile.get(offset + 5) == '\0') {
+      length = 5;
+    } else {
+      length = StringPackData.LOCALE_CODE_SIZE;
+    }
+    byte[] stringBytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      stringBytes[i] = packFile.get(offset + i);
+    }
+    return new String(stringBytes, 0, stringBytes.length, StringPackData.ASCII);
+  }
+
+  private static int startOfLocaleTable(byte encodingByte) {
+    if ((encodingByte & StringPackData.FLAG_CONTENT_HASH) != 0) {
+      return StringPackData.HEADER_SIZE + StringPackData.CONTENT_HASH_SIZE;
+    }
+    return StringPackData.HEADER_SIZE;
+  }
+
+  /**
+   * Returns the locales stored in the given pack file, without mapping their translations. This
+   * doesn't change the position of {@code packFile}.
+   */
+  @NonNull
+  public static List<String> readLocales(@NonNull ByteBuffer packFile) {
+    final int numLocales = (packFile.get(0) & 0xFF) | ((packFile.get(1) & 0xFF) << 8);
+    final List<String> locales = new ArrayList<>(numLocales);
+    int caret = startOfLocaleTable(packFile.get(6));
+    for (int i = 0; i < numLocales; i++) {
+      locales.add(readLocale(packFile, caret));
+      caret += StringPackData.LOCALE_CODE_SIZE + 4;
+    }
+    return locales;
+  }
+
+  /**
+   * Maps the id -> location for strings, plurals and string arrays.
+   *
+   * @param startOfLocaleData
+   * @param headerStart
+   */
+  private void mapTranslations(@IntRange(from = 0) int startOfLocaleData, int headerStart) {
+    int caret = startOfLocaleData + headerStart;
+    if (compactIndex) {
+      caret = mapCompactTables(caret);
+    } else {
+      caret = mapStringsAndPlurals(caret);
+    }
+
+    if (hasArrays) {
+      final int numArrays = readIdFrom(caret);
+      caret += idSize; // Increment by the number of arrays read above
+      for (int i = 0; i < numArrays; i++) {
+        final int id = readIdFrom(caret);
+        caret += idSize; // Increment by the id of the array read above
+        arraySparseArray.append(id, caret);
+        final int itemCount = readIdFrom(caret);
+        // Skip the item count, and the string starting location and length of each item
+        caret += idSize;
+        for (int j = 0; j < itemCount; j++) {
+          caret = skipLocation(caret);
+        }
+      }
+    }
+
+    if (!hasSpans) {
+      return;
+    }
+    final int numStyled = readIdFrom(caret);
+    caret += idSize; // Increment by the number of styled strings read above
+    for (int i = 0; i < numStyled; i++) {
+      final int id = readIdFrom(caret);
+      final int quantityId = mappedByteBuffer.get(caret + idSize) & 0xFF;
+      caret += idSize + 1; // Increment by the id and quantity id (1) read above
+      spanSparseArray.put(
+          textKey(
+              id,
+              quantityId == StringPackData.SPAN_STRING_QUANTITY_ID ? STRING_INDEX : quantityId),
+          caret);
+      final int spanCount = readIdFrom(caret);
+      // Skip the span count, and for each span the name starting location and length, the span
+      // start and the span end
+      caret += idSize;
+      for (int j = 0; j < spanCount; j++) {
+        caret = skipLocation(caret);
+        caret += lengthSizeAt(caret);
+        caret += lengthSizeAt(caret);
+      }
+    }
+  }
+
+  /** Maps the strings and plurals at the given position, and returns the position after them. */
+  private int mapStringsAndPlurals(@IntRange(from = 0) int caret) {
+    final int numStrings = readIdFrom(caret);
+    caret += idSize; // Increment by the number of strings read above
+    final int numPlurals = readIdFrom(caret);
+    caret += idSize; // Increment by the number of plurals read above
+
+    // A more specific locale may override a styled string with one that has different or no spans.
+    final boolean overrideSpans = spanSparseArray.size() != 0;
+    for (int i = 0; i < numStrings; i++) {
+      final int id = readIdFrom(caret);
+      caret += idSize; // Increment by the id of the string read above
+      stringSparseArray.append(id, caret);
+      if (overrideSpans) {
+        spanSparseArray.delete(textKey(id, STRING_INDEX));
+      }
+      // Skip the string starting location and length, to be read later when string is fetched
+      caret = skipLocation(caret);
+    }
+
+    for (int i = 0; i < numPlurals; i++) {
+      final int id = readIdFrom(caret);
+      caret += idSize; // Increment by the id of the plural read above
+      pluralSparseArray.append(id, caret);
+      if (overrideSpans) {
+        for (int quantityId = 0; quantityId < STRING_INDEX; quantityId++) {
+          spanSparseArray.delete(textKey(id, quantityId));
+        }
+      }
+      final int quantityCount = mappedByteBuffer.get(caret);
+      caret++; // Increment by a single byte which are for quantity count read above
+      for (int j = 0; j < quantityCount; j++) {
+        // Skip the quantity id (1) + string starting location and length, to be read later
+        // when plural is fetched
+        caret = skipLocation(caret + 1);
+      }
+    }
+    return caret;
+  }
+
+  /** Reads the compact tables at the given position, and returns the position after them. */
+  private int mapCompactTables(@IntRange(from = 0) int caret) {
+    final CompactIndex strings = new CompactIndex(mappedByteBuffer, caret, false);
+    final CompactIndex plurals = new CompactIndex(mappedByteBuffer, strings.end(), true);
+    // A more specific locale may override a styled string with one that has different or no spans.
+    if (spanSparseArray.size() != 0) {
+      for (int id : strings.ids()) {
+        spanSparseArray.delete(textKey(id, STRING_INDEX));
+      }
+      for (int id : plurals.ids()) {
+        for (int quantityId = 0; quantityId < STRING_INDEX; quantityId++) {
+          spanSparseArray.delete(textKey(id, quantityId));
+        }
+      }
+    }
+    compactStrings.add(strings);
+    compactPlurals.add(plurals);
+    compactIdLimit = Math.max(compactIdLimit, Math.max(strings.lastId(), plurals.lastId()) + 1);
+    compactStringCount += strings.size();
+    return plurals.end();
+  }
+
+  /**
+   * Key of a string or plural quantity, for texts that may be styled. Ids are at most {@link
+   * StringPackData#MAX_ID}, so that keys don't overflow.
+   *
+   * @param index the quantity index of a plural, or {@link #STRING_INDEX} for a plain string
+   */
+  static int textKey(int id, int index) {
+    return (id << 3) | index;
+  }
+
+  /** Returns whether any string or plural quantity of the pack has spans. */
+  public boolean hasSpans() {
+    return spanSparseArray.size() != 0;
+  }
+
+  /** Returns whether the string or plural quantity for the given {@link #textKey} has spans. */
+  public boolean hasSpans(int textKey) {
+    return getSpanIndex(textKey) >= 0;
+  }
+
+  /** Returns the number of strings and plural quantities with spans. */
+  public int getStyledTextCount() {
+    return spanSparseArray.size();
+  }
+
+  /**
+   * Returns the index of the given {@link #textKey} among the texts with spans, from 0 to {@link
+   * #getStyledTextCount()}, or -1 if it has no spans.
+   */
+  public int getSpanIndex(int textKey) {
+    final int index = spanSparseArray.indexOfKey(textKey);
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * Loads a string or plural quantity with its styling.
+   *
+   * @param textKey see {@link #textKey(int, int)}
+   * @param styler applies the spans to the text
+   * @return the styled text, the plain text if it has no spans, or null if it doesn't exist
+   */
+  @Nullable
+  public synchronized CharSequence loadText(int textKey, @NonNull TextStyler styler) {
+    if (mappedByteBuffer == null) {
+      return null;
+    }
+    final int id = textKey >>> 3;
+    final int index = textKey & 0x7;
+    final long location;
+    if (index == STRING_INDEX) {
+      location = findString(id);
+    } else {
+      location = findPlural(id) ? quantityLocations[index] : CompactIndex.NO_LOCATION;
+    }
+    if (location == CompactIndex.NO_LOCATION) {
+      return null;
+    }
+    final String text = readString(location);
+    final int spansPosition = spanSparseArray.get(textKey);
+    if (spansPosition == 0) {
+      return text;
+    }
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onMappedLoad(StringPacksMetrics.TYPE_TEXT, CompactIndex.lengthOf(location));
+    }
+
+    int caret = spansPosition;
+    final int spanCount = readIdFrom(caret);
+    caret += idSize; // Increment by the span count read above
+    final String[] names = new String[spanCount];
+    final int[] starts = new int[spanCount];
+    final int[] ends = new int[spanCount];
+    for (int i = 0; i < spanCount; i++) {
+      names[i] = readString(locationAt(caret));
+      caret = skipLocation(caret); // Increment by the name starting location and length
+      starts[i] = readLengthFrom(caret);
+      caret += lengthSizeAt(caret);
+      ends[i] = readLengthFrom(caret);
+      caret += lengthSizeAt(caret);
+    }
+    return styler.style(text, names, starts, ends);
+  }
+
+  /**
+   * Returns the location of the string with the given id, or {@link CompactIndex#NO_LOCATION} if
+   * the pack doesn't have it.
+   */
+  private long findString(int id) {
+    if (!compactIndex) {
+      final int position = stringSparseArray.get(id);
+      return position != 0 ? locationAt(position) : CompactIndex.NO_LOCATION;
+    }
+    // From the most specific locale, which overrides the others.
+    for (int i = compactStrings.size() - 1; i >= 0; i--) {
+      final long location = compactStrings.get(i).findString(id);
+      if (location != CompactIndex.NO_LOCATION) {
+        return location;
+      }
+    }
+    return CompactIndex.NO_LOCATION;
+  }
+
+  /**
+   * Fills {@link #quantityLocations} with the location of each quantity of the given plural, and
+   * returns whether the pack has it.
+   */
+  private boolean findPlural(int id) {
+    if (compactIndex) {
+      // From the most specific locale, which overrides the others.
+      for (int i = compactPlurals.size() - 1; i >= 0; i--) {
+        if (compactPlurals.get(i).findPlural(id, quantityLocations)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    final int position = pluralSparseArray.get(id);
+    if (position == 0) {
+      return false;
+    }
+    Arrays.fill(quantityLocations, CompactIndex.NO_LOCATION);
+    int caret = position;
+    final int quantityCount = mappedByteBuffer.get(caret);
+    caret++; // Increment by a single byte which are for quantity count
+    for (int j = 0; j < quantityCount; j++) {
+      quantityLocations[mappedByteBuffer.get(caret)] = locationAt(caret + 1);
+      caret = skipLocation(caret + 1); // Increment by the quantity id (1) and string location
+    }
+    return true;
+  }
+
+  public synchronized String loadString(int id) {
+    if (mappedByteBuffer == null) {
+      return null;
+    }
+    final long location = findString(id);
+    if (location == CompactIndex.NO_LOCATION) {
+      return null;
+    }
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onMappedLoad(StringPacksMetrics.TYPE_STRING, CompactIndex.lengthOf(location));
+    }
+    final Tracer tracer = SpTrace.get();
+    if (tracer == null || tracedLoadCount++ % SpTrace.LOAD_SAMPLE_RATE != 0) {
+      return readString(location);
+    }
+    tracer.beginSection("StringPacks.loadString");
+    try {
+      return readString(location);
+    } finally {
+      tracer.endSection();
+    }
+  }
+
+  /**
+   * Loads several strings at once. The strings are read in the order they are stored in the string
+   * data, rather than in the order they are requested, so the reads walk through the mapped pages
+   * once.
+   *
+   * @param ids pack ids of the strings
+   * @param indices indices into {@code ids} and {@code out} of the strings to load
+   * @param count number of valid entries in {@code indices}
+   * @param out receives the loaded strings. Entries for strings missing from the pack are left as
+   *     is.
+   */
+  public synchronized void loadStrings(
+      @NonNull int[] ids, @NonNull int[] indices, int count, @NonNull String[] out) {
+    if (mappedByteBuffer == null) {
+      return;
+    }
+    final long[] locations = new long[count];
+    // Each entry is the string start in its high 32 bits, and the index in `locations` in its low
+    // 32 bits, so that sorting them sorts by string start.
+    final long[] order = new long[count];
+    int numFound = 0;
+    for (int i = 0; i < count; i++) {
+      final long location = findString(ids[indices[i]]);
+      if (location == CompactIndex.NO_LOCATION) {
+        continue;
+      }
+      locations[i] = location;
+      order[numFound++] = ((long) CompactIndex.startOf(location) << 32) | i;
+    }
+    Arrays.sort(order, 0, numFound);
+    final StringPacksMetrics metrics = SpMetrics.get();
+    for (int i = 0; i < numFound; i++) {
+      final int k = (int) order[i];
+      if (metrics != null) {
+        metrics.onMappedLoad(StringPacksMetrics.TYPE_STRING, CompactIndex.lengthOf(locations[k]));
+      }
+      out[indices[k]] = readString(locations[k]);
+    }
+  }
+
+  @NonNull
+  private String readString(long location) {
+    final int start = CompactIndex.startOf(location);
+    byte[] stringBytes = new byte[CompactIndex.lengthOf(location)];
+    mappedByteBuffer.position(startOfStringData + start);
+    mappedByteBuffer.get(stringBytes, 0, stringBytes.length);
+    return new String(stringBytes, start < utf16Start ? encoding : StringPackData.UTF_16BE);
+  }
+
+  /**
+   * Returns the location, as in {@link CompactIndex}, of the string whose starting location and
+   * length are at the given position.
+   */
+  private long locationAt(int position) {
+    return ((long) read32BitsFrom(position) << 32) | readLengthFrom(position + 4);
+  }
+
+  public synchronized String[] loadPlural(int id) {
+    if (mappedByteBuffer == null || !findPlural(id)) {
+      return null;
+    }
+    final String[] pluralMMap = new String[6];
+    int bytesDecoded = 0;
+    for (int quantityId = 0; quantityId < pluralMMap.length; quantityId++) {
+      final long location = quantityLocations[quantityId];
+      if (location != CompactIndex.NO_LOCATION) {
+        pluralMMap[quantityId] = readString(location);
+        bytesDecoded += CompactIndex.lengthOf(location);
+      }
+    }
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onMappedLoad(StringPacksMetrics.TYPE_PLURAL, bytesDecoded);
+    }
+    return pluralMMap;
+  }
+
+  @Nullable
+  public synchronized String[] loadStringArray(int id) {
+    final int position = arraySparseArray.get(id);
+    if (position == 0 || mappedByteBuffer == null) {
+      return null;
+    }
+    int caret = position;
+    final int itemCount = readIdFrom(caret);
+    caret += idSize; // Increment by the item count
+    final String[] array = new String[itemCount];
+    int bytesDecoded = 0;
+    for (int i = 0; i < itemCount; i++) {
+      final long location = locationAt(caret);
+      array[i] = readString(location);
+      bytesDecoded += CompactIndex.lengthOf(location);
+      caret = skipLocation(caret); // Increment by the string starting location and length
+    }
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onMappedLoad(StringPacksMetrics.TYPE_ARRAY, bytesDecoded);
+    }
+    return array;
+  }
+
+  /** Returns one more than the largest id of the strings and plurals. */
+  public int getStringAndPluralIdLimit() {
+    if (compactIndex) {
+      return compactIdLimit;
+    }
+    return Math.max(stringSparseArray.lastKey(), pluralSparseArray.lastKey()) + 1;
+  }
+
+  /** Returns the size of the mapped pack file in bytes, or 0 once it's closed. */
+  public synchronized long getMappedSize() {
+    return mappedByteBuffer != null ? mappedByteBuffer.capacity() : 0;
+  }
+
+  public boolean isEmpty() {
+    return compactIndex ? compactStringCount == 0 : stringSparseArray.size() == 0;
+  }
+
+  /**
+   * Releases the mapping. The underlying memory is unmapped once the buffer is garbage collected.
+   * Any load after this returns null.
+   */
+  @Override
+  public synchronized void close() {
+    if (mappedByteBuffer != null) {
+      mappedByteBuffer = null;
+      // The compact tables read the mapping too.
+      compactStrings.clear();
+      compactPlurals.clear();
+      liveMappingCount.decrementAndGet();
+    }
+  }
+
+  /** Returns the number of pack mappings that have not been closed yet. */
+  public static int getLiveMappingCount() {
+    return liveMappingCount.get();
+  }
+}
@@ -0,0 +1,287 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves strings in all the locales of a set of pack files at once, for example to render
+ * notifications for many recipients on a server.
+ *
+ * <p>Each pack file is mapped once. Each of its locales is read with the less specific locales of
+ * the same pack file as parents, so "es-MX" falls back to "es" when both are in the pack. Lookups
+ * for a locale that isn't packed fall back to its language, so "es-AR" is served by "es".
+ *
+ * <p>This is thread safe. The locale table is built up front and never changes, and lookups of
+ * cached strings don't take any lock. A lookup that misses the cache reads the pack file while
+ * holding the lock of its own locale only, so threads resolving different locales don't wait on
+ * each other.
+ */
+public class MultiLocaleStringPacks implements Closeable {
+
+  /** Quantity of a {@link Request} for a string, rather than a plural. */
+  public static final long NO_QUANTITY = Long.MIN_VALUE;
+
+  // Below this many requests per task, splitting a batch costs more than it saves.
+  private static final int MIN_REQUESTS_PER_TASK = 256;
+  // More tasks than threads, so that threads finishing early can take over the remaining work.
+  private static final int TASKS_PER_THREAD = 4;
+
+  /** A string or plural to resolve, and the arguments to format it with. */
+  public static final class Request {
+    @NonNull public final String locale;
+    public final int id;
+    public final long quantity;
+    @Nullable public final Object[] formatArgs;
+
+    /**
+     * @param locale locale tag, such as "es" or "es-MX"
+     * @param id pack id of the string, or of the plural when {@code quantity} is set
+     * @param quantity quantity to select the plural form with, or {@link #NO_QUANTITY}
+     * @param formatArgs arguments to format the result with, or none to return it as is
+     */
+    public Request(@NonNull String locale, int id, long quantity, @Nullable Object... formatArgs) {
+      this.locale = locale;
+      this.id = id;
+      this.quantity = quantity;
+      this.formatArgs = formatArgs;
+    }
+  }
+
+  private static final class LocalePack {
+    @NonNull final ParsedStringPack pack;
+    @NonNull final Locale locale;
+    @NonNull final PluralRules pluralRules;
+
+    LocalePack(@NonNull ParsedStringPack pack, @NonNull Locale locale) {
+      this.pack = pack;
+      this.locale = locale;
+      this.pluralRules = PluralRules.ruleForLocale(locale);
+    }
+  }
+
+  // Never modified after construction, so it can be read from any thread without locking.
+  @NonNull private final Map<String, LocalePack> localePacks;
+
+  /**
+   * @param packFiles the pack files, usually mapped. They are only read through their own views,
+   *     so their positions are left as is.
+   */
+  public MultiLocaleStringPacks(@NonNull Collection<? extends ByteBuffer> packFiles) {
+    final Map<String, LocalePack> packs = new HashMap<>();
+    for (ByteBuffer packFile : packFiles) {
+      final List<String> locales = MMappedStringPack.readLocales(packFile);
+      for (String locale : locales) {
+        if (packs.containsKey(locale)) {
+          SpLog.w("translations/MultiLocaleStringPacks duplicate locale: " + locale);
+          continue;
+        }
+        // Each locale reads through its own view of the pack file, since reads move its position.
+        final ParsedStringPack pack =
+            new ParsedStringPack(getParentLocales(locale, locales), packFile.duplicate());
+        packs.put(locale, new LocalePack(pack, toLocale(locale)));
+      }
+    }
+    localePacks = packs;
+  }
+
+  /** Maps the given pack files and reads all their locales. */
+  @NonNull
+  public static MultiLocaleStringPacks map(@NonNull Collection<File> files) throws IOException {
+    final List<ByteBuffer> packFiles = new ArrayList<>(files.size());
+    for (File file : files) {
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+        packFiles.add(
+            randomAccessFile
+                .getChannel()
+                .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length()));
+      }
+    }
+    return new MultiLocaleStringPacks(packFiles);
+  }
+
+  /** The language of the locale first, if it's in the same pack file, and then the locale. */
+  @NonNull
+  private static List<String> getParentLocales(
+      @NonNull String locale, @NonNull List<String> packLocales) {
+    final int separator = locale.indexOf('-');
+    if (separator == -1) {
+      return Collections.singletonList(locale);
+    }
+    final String language = locale.substring(0, separator);
+    if (!packLocales.contains(language)) {
+      return Collections.singletonList(locale);
+    }
+    final List<String> parents = new ArrayList<>(2);
+    parents.add(language);
+    parents.add(locale);
+    return parents;
+  }
+
+  @NonNull
+  private static Locale toLocale(@NonNull String locale) {
+    final int separator = locale.indexOf('-');
+    if (separator == -1) {
+      return new Locale(locale);
+    }
+    final String subtag = locale.substring(separator + 1);
+    // A script, such as "sr-Latn", doesn't change the plural rules or the number format.
+    return subtag.length() == 2
+        ? new Locale(locale.substring(0, separator), subtag)
+        : new Locale(locale.substring(0, separator));
+  }
+
+  /** Returns the locales in the pack files. */
+  @NonNull
+  public Set<String> getLocales() {
+    return Collections.unmodifiableSet(localePacks.keySet());
+  }
+
+  @Nullable
+  private LocalePack findLocalePack(@NonNull String locale) {
+    final LocalePack localePack = localePacks.get(locale);
+    if (localePack != null) {
+      return localePack;
+    }
+    final int separator = locale.indexOf('-');
+    if (separator == -1) {
+      return null;
+    }
+    final String language = locale.substring(0, separator);
+    if ("pt".equals(language)
+        && StringPackData.EUROPEAN_PORTUGUESE_LOCALES.contains(locale.substring(separator + 1))) {
+      final LocalePack european = localePacks.get("pt-PT");
+      if (european != null) {
+        return european;
+      }
+    }
+    return localePacks.get(language);
+  }
+
+  /** Returns the string, or null if neither the locale nor its language has it. */
+  @Nullable
+  public String getString(@NonNull String locale, int id) {
+    final LocalePack localePack = findLocalePack(locale);
+    return localePack != null ? localePack.pack.getString(id) : null;
+  }
+
+  /** Returns the plural form for the quantity, selected with the plural rules of the locale. */
+  @Nullable
+  public String getQuantityString(@NonNull String locale, int id, long quantity) {
+    final LocalePack localePack = findLocalePack(locale);
+    return localePack != null
+        ? localePack.pack.getQuantityString(id, quantity, localePack.pluralRules)
+        : null;
+  }
+
+  /**
+   * Returns the string or plural form for the request, formatted with its arguments in its locale
+   * like {@code Resources.getString(int, Object...)} does, or null if it's not packed.
+   */
+  @Nullable
+  public String resolve(@NonNull Request request) {
+    final LocalePack localePack = findLocalePack(request.locale);
+    if (localePack == null) {
+      return null;
+    }
+    final String result =
+        request.quantity == NO_QUANTITY
+            ? localePack.pack.getString(request.id)
+            : localePack.pack.getQuantityString(
+                request.id, request.quantity, localePack.pluralRules);
+    if (result == null || request.formatArgs == null || request.formatArgs.length == 0) {
+      return result;
+    }
+    return String.format(localePack.locale, result, request.formatArgs);
+  }
+
+  /**
+   * Resolves the requests on the calling thread.
+   *
+   * @param out receives the result of each request at the same index
+   */
+  public void resolveAll(@NonNull List<Request> requests, @NonNull String[] out) {
+    resolveRange(requests, out, 0, requests.size());
+  }
+
+  /**
+   * Resolves the requests in parallel on the given executor, and waits for all of them.
+   *
+   * @param out receives the result of each request at the same index
+   * @param threadCount number of threads of {@code executor} to spread the requests over
+   */
+  public void resolveAll(
+      @NonNull List<Request> requests,
+      @NonNull String[] out,
+      @NonNull ExecutorService executor,
+      int threadCount)
+      throws InterruptedException {
+    final int count = requests.size();
+    final int taskCount =
+        Math.max(1, Math.min(threadCount * TASKS_PER_THREAD, count / MIN_REQUESTS_PER_TASK));
+    if (taskCount == 1) {
+      resolveRange(requests, out, 0, count);
+      return;
+    }
+    final List<Callable<Void>> tasks = new ArrayList<>(taskCount);
+    for (int i = 0; i < taskCount; i++) {
+      // Each task writes to its own range of `out`, and invokeAll() publishes the writes.
+      final int start = (int) ((long) count * i / taskCount);
+      final int end = (int) ((long) count * (i + 1) / taskCount);
+      tasks.add(
+          () -> {
+            resolveRange(requests, out, start, end);
+            return null;
+          });
+    }
+    for (Future<Void> future : executor.invokeAll(tasks)) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  private void resolveRange(
+      @NonNull List<Request> requests, @NonNull String[] out, int start, int end) {
+    for (int i = start; i < end; i++) {
+      out[i] = resolve(requests.get(i));
+    }
+  }
+
+  /** Releases all the pack files. Nothing must be resolved after this. */
+  @Override
+  public void close() {
+    for (LocalePack localePack : localePacks.values()) {
+      localePack.pack.close();
+    }
+  }
+}
@@ -0,0 +1,437 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A string pack with its loaded strings cached.
+ *
+ * <p>The pack is reference counted. The creator holds the first reference, which is released by
+ * {@link #close()}. Readers that may race with the creator closing the pack should hold their own
+ * reference through {@link #tryAcquire()} and {@link #release()}. The mapping is released once the
+ * last reference is gone.
+ */
+public class ParsedStringPack implements Closeable {
+
+  // Ids below this are cached in `entries`, which has a slot for every id up to the largest one of
+  // the pack. Larger ids, which only wide format packs have, are cached in `sparseEntries`, so that
+  // a pack with a few large ids doesn't allocate a slot for every id below them.
+  static final int DENSE_ID_LIMIT = 1 << 16;
+
+  // Loaded strings, and plurals as String[], by pack id. They share the id space. Unlike a map,
+  // this doesn't box the id, so cache hits don't allocate.
+  @NonNull private final AtomicReferenceArray<Object> entries;
+  @NonNull
+  private final ConcurrentHashMap<Integer, Object> sparseEntries = new ConcurrentHashMap<>();
+  @NonNull private final ConcurrentHashMap<Integer, String[]> arrays = new ConcurrentHashMap<>();
+  // Styled strings and plural quantities, by MMappedStringPack.getSpanIndex(). Texts without spans
+  // are served from the caches above instead.
+  @NonNull private final AtomicReferenceArray<CharSequence> texts;
+
+  @Nullable private MMappedStringPack mMappedStringPack;
+  @NonNull private final TextStyler textStyler;
+
+  @NonNull private final AtomicInteger refCount = new AtomicInteger(1);
+  @NonNull private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  /** A pack whose styled strings are served without their spans. */
+  public ParsedStringPack(
+      @NonNull List<String> parentLocales, @Nullable ByteBuffer mappedPackFile) {
+    this(parentLocales, mappedPackFile, TextStyler.PLAIN);
+  }
+
+  /** @param textStyler applies the spans of styled strings, see {@link #getText(int)} */
+  public ParsedStringPack(
+      @NonNull List<String> parentLocales,
+      @Nullable ByteBuffer mappedPackFile,
+      @NonNull TextStyler textStyler) {
+    this.textStyler = textStyler;
+    if (mappedPackFile != null) {
+      final Tracer tracer = SpTrace.get();
+      if (tracer != null) {
+        tracer.beginSection("StringPacks.MMappedStringPack");
+      }
+      try {
+        mMappedStringPack = new MMappedStringPack(parentLocales, mappedPackFile);
+      } finally {
+        if (tracer != null) {
+          tracer.endSection();
+        }
+      }
+    }
+    entries =
+        new AtomicReferenceArray<>(
+            mMappedStringPack != null
+                ? Math.min(mMappedStringPack.getStringAndPluralIdLimit(), DENSE_ID_LIMIT)
+                : 0);
+    texts =
+        new AtomicReferenceArray<>(
+            mMappedStringPack != null ? mMappedStringPack.getStyledTextCount() : 0);
+  }
+
+  @Nullable
+  private Object getEntry(int id) {
+    if (id >= 0 && id < entries.length()) {
+      return entries.get(id);
+    }
+    return id >= DENSE_ID_LIMIT ? sparseEntries.get(id) : null;
+  }
+
+  private void putEntry(int id, @NonNull Object entry) {
+    if (id >= 0 && id < entries.length()) {
+      entries.set(id, entry);
+    } else if (id >= DENSE_ID_LIMIT) {
+      sparseEntries.put(id, entry);
+    }
+  }
+
+  public boolean isEmpty() {
+    if (mMappedStringPack != null) {
+      return mMappedStringPack.isEmpty();
+    }
+    return true;
+  }
+
+  @Nullable
+  public String getString(int id) {
+    final Object result = getEntry(id);
+    if (result instanceof String) {
+      reportCacheHit(StringPacksMetrics.TYPE_STRING);
+      return (String) result;
+    }
+    // String not loaded or doesn't exist.
+    String loadedString = null;
+    if (mMappedStringPack != null) {
+      loadedString = mMappedStringPack.loadString(id);
+    }
+    if (loadedString != null) {
+      putEntry(id, loadedString);
+    }
+    return loadedString;
+  }
+
+  /**
+   * Returns the string with its styling, such as bold or italic spans, as made by the {@link
+   * TextStyler} of this pack. Strings without styling are returned as a plain {@link String}.
+   */
+  @Nullable
+  public CharSequence getText(int id) {
+    return getStyledText(id, MMappedStringPack.STRING_INDEX, getString(id));
+  }
+
+  /**
+   * Resolves several strings at once. Cache misses are loaded together, in the order they are laid
+   * out in the pack.
+   *
+   * @param ids pack ids of the strings. Negative ids are skipped.
+   * @param out receives the string for each id at the same index, or null if it doesn't exist.
+   */
+  public void getStrings(@NonNull int[] ids, @NonNull String[] out) {
+    final int count = ids.length;
+    int[] misses = null;
+    int numMisses = 0;
+    for (int i = 0; i < count; i++) {
+      if (ids[i] < 0) {
+        continue;
+      }
+      final Object cached = getEntry(ids[i]);
+      out[i] = cached instanceof String ? (String) cached : null;
+      if (out[i] == null) {
+        if (misses == null) {
+          misses = new int[count - i];
+        }
+        misses[numMisses++] = i;
+      } else {
+        reportCacheHit(StringPacksMetrics.TYPE_STRING);
+      }
+    }
+    if (numMisses == 0 || mMappedStringPack == null) {
+      return;
+    }
+    mMappedStringPack.loadStrings(ids, misses, numMisses, out);
+    for (int i = 0; i < numMisses; i++) {
+      final String loadedString = out[misses[i]];
+      if (loadedString != null) {
+        putEntry(ids[misses[i]], loadedString);
+      }
+    }
+  }
+
+  // This must be kept in sync with the `_IDS_FOR_QUANTITY` dictionary in string_pack.py
+  private static int quantityIndex(int quantity) {
+    switch (quantity) {
+      case PluralRules.QUANTITY_ZERO:
+        return 1;
+      case PluralRules.QUANTITY_ONE:
+        return 2;
+      case PluralRules.QUANTITY_TWO:
+        return 3;
+      case PluralRules.QUANTITY_FEW:
+        return 4;
+      case PluralRules.QUANTITY_MANY:
+        return 5;
+      default:
+        return 0; // PluralRules.QUANTITY_OTHER
+    }
+  }
+
+  @Nullable
+  private String[] getPlural(int id) {
+    final Object cached = getEntry(id);
+    String[] plural = cached instanceof String[] ? (String[]) cached : null;
+    if (plural != null) {
+      reportCacheHit(StringPacksMetrics.TYPE_PLURAL);
+    } else {
+      // Plural set not loaded or doesn't exist.
+      String[] loadedPlural = null;
+      if (mMappedStringPack != null) {
+        loadedPlural = mMappedStringPack.loadPlural(id);
+      }
+      if (loadedPlural != null) {
+        putEntry(id, loadedPlural);
+      }
+      plural = loadedPlural;
+    }
+    return plural;
+  }
+
+  /**
+   * Returns the string array with the given id. The array is shared with other callers, so it must
+   * not be modified.
+   */
+  @Nullable
+  public String[] getStringArray(int id) {
+    final String[] result = arrays.get(id);
+    if (result != null) {
+      reportCacheHit(StringPacksMetrics.TYPE_ARRAY);
+      return result;
+    }
+    // Array not loaded or doesn't exist.
+    String[] loadedArray = null;
+    if (mMappedStringPack != null) {
+      loadedArray = mMappedStringPack.loadStringArray(id);
+    }
+    if (loadedArray != null) {
+      arrays.put(id, loadedArray);
+    }
+    return loadedArray;
+  }
+
+  /**
+   * Loads the given strings, plurals and string arrays into the cache, so that looking them up
+   * later doesn't read the pack file.
+   *
+   * @param ids pack ids of strings, plurals or string arrays. Negative ids are skipped.
+   */
+  public void prewarm(@NonNull int[] ids) {
+    final String[] out = new String[ids.length];
+    getStrings(ids, out);
+    for (int i = 0; i < ids.length; i++) {
+      if (out[i] == null && ids[i] >= 0) {
+        // Strings, plurals and arrays share the id space, so this is either a plural, an array, or
+        // not in the pack.
+        if (getPlural(ids[i]) == null) {
+          getStringArray(ids[i]);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  public String getQuantityString(int id, long quantity, @NonNull PluralRules pluralRules) {
+    final String[] plural = getPlural(id);
+    if (plural == null) {
+      // It doesn't exist.
+      return null;
+    }
+    return selectQuantity(plural, pluralRules.quantityForNumber(quantity));
+  }
+
+  /**
+   * @param visibleFractionDigits number of fraction digits {@code quantity} is displayed with
+   * @see PluralRules#quantityForNumber(double, int)
+   */
+  @Nullable
+  public String getQuantityString(
+      int id, double quantity, int visibleFractionDigits, @NonNull PluralRules pluralRules) {
+    final String[] plural = getPlural(id);
+    if (plural == null) {
+      // It doesn't exist.
+      return null;
+    }
+    return selectQuantity(
+        plural, pluralRules.quantityForNumber(quantity, visibleFractionDigits));
+  }
+
+  /** Prefer the primitive overloads, which don't box the quantity. */
+  @Nullable
+  public String getQuantityString(int id, Object quantity, @NonNull PluralRules pluralRules) {
+    final String[] plural = getPlural(id);
+    if (plural == null) {
+      // It doesn't exist.
+      return null;
+    }
+    return selectQuantity(plural, pluralRules.quantityForNumber(quantity));
+  }
+
+  /** The plural with its styling. See {@link #getText(int)}. */
+  @Nullable
+  public CharSequence getQuantityText(int id, long quantity, @NonNull PluralRules pluralRules) {
+    final String[] plural = getPlural(id);
+    if (plural == null) {
+      // It doesn't exist.
+      return null;
+    }
+    int index = quantityIndex(pluralRules.quantityForNumber(quantity));
+    if (plural[index] == null) {
+      // Fallback to QUANTITY_OTHER.
+      index = 0;
+    }
+    return getStyledText(id, index, plural[index]);
+  }
+
+  @Nullable
+  private CharSequence getStyledText(int id, int index, @Nullable String plainText) {
+    // Most packs have no styled texts, and most texts of the ones that do are plain.
+    if (plainText == null || mMappedStringPack == null || !mMappedStringPack.hasSpans()) {
+      return plainText;
+    }
+    final int textKey = MMappedStringPack.textKey(id, index);
+    final int spanIndex = mMappedStringPack.getSpanIndex(textKey);
+    if (spanIndex < 0) {
+      return plainText;
+    }
+    final CharSequence result = texts.get(spanIndex);
+    if (result != null) {
+      reportCacheHit(StringPacksMetrics.TYPE_TEXT);
+      return result;
+    }
+    final CharSequence loadedText = mMappedStringPack.loadText(textKey, textStyler);
+    if (loadedText != null) {
+      texts.set(spanIndex, loadedText);
+    }
+    return loadedText;
+  }
+
+  private static void reportCacheHit(@StringPacksMetrics.Type int type) {
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onCacheHit(type);
+    }
+  }
+
+  /**
+   * Returns the number of cached entries and their estimated size, which counts 2 bytes per char,
+   * and the size of the mapping.
+   */
+  @NonNull
+  public StringPacksMetrics.MemorySnapshot getMemorySnapshot() {
+    int cachedEntries = 0;
+    long cachedChars = 0;
+    for (int i = 0; i < entries.length(); i++) {
+      final Object entry = entries.get(i);
+      if (entry != null) {
+        cachedEntries++;
+        cachedChars += lengthOf(entry);
+      }
+    }
+    for (Object entry : sparseEntries.values()) {
+      cachedEntries++;
+      cachedChars += lengthOf(entry);
+    }
+    for (String[] array : arrays.values()) {
+      cachedEntries++;
+      cachedChars += sumLengths(array);
+    }
+    for (int i = 0; i < texts.length(); i++) {
+      final CharSequence text = texts.get(i);
+      if (text != null) {
+        cachedEntries++;
+        cachedChars += text.length();
+      }
+    }
+    final long mappedBytes = mMappedStringPack != null ? mMappedStringPack.getMappedSize() : 0;
+    return new StringPacksMetrics.MemorySnapshot(cachedEntries, cachedChars * 2, mappedBytes);
+  }
+
+  /** Returns the length of a cached string, or the total length of a cached plural. */
+  private static long lengthOf(@NonNull Object entry) {
+    return entry instanceof String ? ((String) entry).length() : sumLengths((String[]) entry);
+  }
+
+  private static long sumLengths(@NonNull String[] strings) {
+    long length = 0;
+    for (String string : strings) {
+      if (string != null) {
+        length += string.length();
+      }
+    }
+    return length;
+  }
+
+  @Nullable
+  private static String selectQuantity(
+      @NonNull String[] plural, @PluralRules.Quantity int quantity) {
+    String result = plural[quantityIndex(quantity)];
+    if (result != null) {
+      return result;
+    }
+    // Fallback to QUANTITY_OTHER.
+    return plural[0];
+  }
+
+  /**
+   * Takes a reference to this pack, so it stays readable until {@link #release()} is called.
+   *
+   * @return false if the pack has already been released, in which case it must not be read.
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      final int count = refCount.get();
+      if (count <= 0) {
+        return false;
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Releases a reference taken with {@link #tryAcquire()}. */
+  public void release() {
+    if (refCount.decrementAndGet() == 0) {
+      if (mMappedStringPack != null) {
+        mMappedStringPack.close();
+      }
+      for (int i = 0; i < entries.length(); i++) {
+        entries.set(i, null);
+      }
+      sparseEntries.clear();
+      arrays.clear();
+      for (int i = 0; i < texts.length(); i++) {
+        texts.set(i, null);
+      }
+    }
+  }
+
+  /** Releases the creator's reference. Calling it more than once has no further effect. */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      release();
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2007 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.Size;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * This class is needed in WhatsApp to work around the incorrect or missing plural rules in earlier
+ * versions of Android, as well as support for non-int quantity selectors.
+ */
+public abstract class PluralRules {
+  public static final int QUANTITY_OTHER = 0x0000;
+  public static final int QUANTITY_ZERO = 0x0001;
+  public static final int QUANTITY_ONE = 0x0002;
+  public static final int QUANTITY_TWO = 0x0004;
+  public static final int QUANTITY_FEW = 0x0008;
+  public static final int QUANTITY_MANY = 0x0010;
+
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({QUANTITY_OTHER, QUANTITY_ZERO, QUANTITY_ONE, QUANTITY_TWO, QUANTITY_FEW, QUANTITY_MANY})
+  public @interface Quantity {}
+
+  /**
+   * For definition and examples for the parameters, @see <a
+   * href="http://unicode.org/reports/tr35/tr35-numbers.html#Plural_Operand_Meanings">the LDML
+   * spec</a>.
+   *
+   * @param n absolute value of the source number (integer and decimals)
+   * @param i integer digits of n
+   * @param v number of visible fraction digits in n, <i>with</i> trailing zeros.
+   * @param w number of visible fraction digits in n, <i>without</i> trailing zeros.
+   * @param f visible fractional digits in n, <i>with</i> trailing zeros.
+   * @param t visible fractional digits in n, <i>without</i> trailing zeros.
+   */
+  @Quantity
+  public abstract int quantityForNumber(double n, long i, int v, int w, long f, long t);
+
+  // Integers below this are resolved through a table computed on first use, since most counts
+  // passed to plurals are small.
+  private static final int SMALL_QUANTITY_TABLE_SIZE = 256;
+
+  // Powers of ten that fit in a long, indexed by number of visible fraction digits.
+  private static final long[] POWERS_OF_TEN = {
+    1L,
+    10L,
+    100L,
+    1000L,
+    10000L,
+    100000L,
+    1000000L,
+    10000000L,
+    100000000L,
+    1000000000L,
+    10000000000L,
+    100000000000L,
+    1000000000000L,
+    10000000000000L,
+    100000000000000L,
+    1000000000000000L,
+    10000000000000000L,
+    100000000000000000L,
+    1000000000000000000L
+  };
+
+  @Nullable private volatile byte[] smallQuantities;
+
+  @Quantity
+  public int quantityForNumber(long number) {
+    if (number >= 0 && number < SMALL_QUANTITY_TABLE_SIZE) {
+      byte[] table = smallQuantities;
+      if (table == null) {
+        table = new byte[SMALL_QUANTITY_TABLE_SIZE];
+        for (int i = 0; i < SMALL_QUANTITY_TABLE_SIZE; i++) {
+          table[i] = (byte) quantityForNumber(i, i, 0, 0, 0, 0);
+        }
+        smallQuantities = table;
+      }
+      return table[(int) number];
+    }
+    return quantityForNumber(number, number, 0, 0, 0, 0);
+  }
+
+  /**
+   * Returns a quantity selector for a decimal number, as it is displayed with the given number of
+   * fraction digits. For example, 1.5 displayed as "1.50" is {@code quantityForNumber(1.5, 2)}.
+   * This is equivalent to {@link #quantityForNumber(String)} with the formatted number, without
+   * formatting or parsing it.
+   *
+   * @param number the number
+   * @param visibleFractionDigits number of fraction digits displayed, including trailing zeros
+   */
+  @Quantity
+  public int quantityForNumber(
+      double number, @IntRange(from = 0, to = 18) int visibleFractionDigits) {
+    if (Double.isNaN(number)
+        || Double.isInfinite(number)
+        || visibleFractionDigits < 0
+        || visibleFractionDigits >= POWERS_OF_TEN.length) {
+      return QUANTITY_OTHER;
+    }
+    final double absolute = Math.abs(number);
+    final long scale = POWERS_OF_TEN[visibleFractionDigits];
+    long i = (long) absolute;
+    long f = Math.round((absolute - i) * scale);
+    if (f >= scale) {
+      // Rounds up to the next integer when displayed, e.g. 1.999 with 2 digits is "2.00".
+      i++;
+      f -= scale;
+    }
+    if (visibleFractionDigits == 0) {
+      return quantityForNumber(i);
+    }
+    int w = visibleFractionDigits;
+    long t = f;
+    while (w > 0 && t % 10 == 0) {
+      t /= 10;
+      w--;
+    }
+    final double n = i + (double) f / scale;
+    return quantityForNumber(n, i, visibleFractionDigits, w, f, t);
+  }
+
+  /**
+   * Takes a decimal number as a string, and returns a quantity selector based on it. The input
+   * number should be formatted with US English rules with no thousands separators, such as
+   * "123456", "7", "5.10", "1.5", or "0.1234", otherwise the result in undefined.
+   */
+  @Quantity
+  public int quantityForNumber(@NonNull @Size(min = 1) String number) {
+    final int decimalIndex = number.indexOf('.');
+    try {
+      if (decimalIndex == -1) {
+        final long i = Long.parseLong(number);
+        return quantityForNumber(i, i, 0, 0, 0, 0);
+      } else {
+        final double n = Double.parseDouble(number);
+        final long i = decimalIndex == 0 ? 0 : Long.parseLong(number.substring(0, decimalIndex));
+
+        final String fractional = number.substring(decimalIndex + 1);
+        final int v = fractional.length();
+        int w = v;
+        while (w > 0 && fractional.charAt(w - 1) == '0') {
+          w--;
+        }
+        final long f = Long.parseLong(fractional);
+        final long t = w == 0 ? 0 : Long.parseLong(fractional.substring(0, w));
+        return quantityForNumber(n, i, v, w, f, t);
+      }
+    } catch (NumberFormatException e) {
+      return QUANTITY_OTHER;
+    }
+  }
+
+  /**
+   * Returns a quantity selector for a boxed number or a string. Prefer the primitive overloads,
+   * which don't need the number to be boxed.
+   */
+  @Quantity
+  public int quantityForNumber(@NonNull Object number) {
+    if (number instanceof String) {
+      return quantityForNumber((String) number);
+    } else if (number instanceof Long
+        || number instanceof Integer
+        || number instanceof Short
+        || number instanceof Byte) {
+      return quantityForNumber(((Number) number).longValue());
+    } else if (number instanceof Double || number instanceof Float) {
+      final double value = ((Number) number).doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        return QUANTITY_OTHER;
+      }
+      // Without formatting information, use the shortest representation of the number.
+      final int scale = BigDecimal.valueOf(value).stripTrailingZeros().scale();
+      return quantityForNumber(value, Math.max(0, scale));
+    } else {
+      return QUANTITY_OTHER;
+    }
+  }
+
+  // Rules for each rule family in PluralRulesData, created the first time a locale needs them.
+  // The rules are compiled from CLDR plurals information by
+  // library/scripts/compile_plural_rules.py.
+  @GuardedBy("families")
+  private static final PluralRules[] families =
+      new PluralRules[PluralRulesData.FAMILY_OFFSETS.length()];
+
+  private static final String EUROPEAN_PORTUGUESE = "pt_PT";
+
+  @NonNull
+  public static PluralRules ruleForLocale(@NonNull Locale locale) {
+    final String language = locale.getLanguage();
+    final String region = locale.getCountry();
+    int family = -1;
+    if (!region.isEmpty()) {
+      // Try both language and region first, if there's a region (Portuguese rules differ based on
+      // region).
+      if ("pt".equals(language) && StringPackData.EUROPEAN_PORTUGUESE_LOCALES.contains(region)) {
+        // If we are on European Portuguese, all its sublocales use the pt_PT rules.
+        family = familyForLocale(EUROPEAN_PORTUGUESE);
+      } else {
+        family = familyForLocale(language + "_" + region);
+      }
+    }
+    if (family == -1) {
+      // Now try just the language.
+      family = familyForLocale(language);
+    }
+    if (family == -1) {
+      // Still not found. Use the default rule, which is an "other"-only rule.
+      family = familyForLocale("root");
+    }
+    if (family == -1) {
+      // If root doesn't exist, we are broken beyond repair.
+      throw new NullPointerException("No plural rule found for 'root' locale.");
+    }
+    synchronized (families) {
+      PluralRules rules = families[family];
+      if (rules == null) {
+        rules = new CompiledPluralRules(PluralRulesData.FAMILY_OFFSETS.charAt(family));
+        families[family] = rules;
+      }
+      return rules;
+    }
+  }
+
+  /**
+   * Returns the rule family of a locale such as "fr" or "pt_PT", or -1 if it has no rules of its
+   * own. This is a binary search over the sorted locales in {@link PluralRulesData}.
+   */
+  private static int familyForLocale(@NonNull String locale) {
+    final String locales = PluralRulesData.LOCALES;
+    final String offsets = PluralRulesData.LOCALE_OFFSETS;
+    int low = 0;
+    int high = offsets.length() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int start = offsets.charAt(mid);
+      final int end = mid + 1 < offsets.length() ? offsets.charAt(mid + 1) - 1 : locales.length();
+      final int comparison = compareRegion(locales, start, end, locale);
+      if (comparison < 0) {
+        low = mid + 1;
+      } else if (comparison > 0) {
+        high = mid - 1;
+      } else {
+        return PluralRulesData.LOCALE_FAMILIES.charAt(mid);
+      }
+    }
+    return -1;
+  }
+
+  private static int compareRegion(
+      @NonNull String text, int start, int end, @NonNull String other) {
+    final int length = end - start;
+    final int commonLength = Math.min(length, other.length());
+    for (int k = 0; k < commonLength; k++) {
+      final int difference = text.charAt(start + k) - other.charAt(k);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - other.length();
+  }
+}
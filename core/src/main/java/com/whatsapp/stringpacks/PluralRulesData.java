@@ -0,0 +1,156 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+// @generated by library/scripts/compile_plural_rules.py from CLDR plurals.xml (revision 14397).
+// CLDR data is Copyright © Unicode, Inc.
+// For terms of use, see http://www.unicode.org/copyright.html
+
+package com.whatsapp.stringpacks;
+
+/** Compiled CLDR plural rules, interpreted by {@link CompiledPluralRules}. */
+final class PluralRulesData {
+
+  // Locales that have plural rules, sorted and separated by spaces.
+  static final String LOCALES =
+      "af ak am an ar ars as asa ast az be bem bez bg bho bm bn bo br brx bs ca ce ceb cgg chr"
+      + " ckb cs cy da de dsb dv dz ee el en eo es et eu fa ff fi fil fo fr fur fy ga gd gl gsw"
+      + " gu guw gv ha haw he hi hr hsb hu hy ia id ig ii in io is it iu iw ja jbo jgo ji jmc jv"
+      + " jw ka kab kaj kcg kde kea kk kkj kl km kn ko ks ksb ksh ku kw ky lag lb lg lkt ln lo"
+      + " lt lv mas mg mgo mk ml mn mo mr ms mt my nah naq nb nd ne nl nn nnh no nqo nr nso ny"
+      + " nyn om or os osa pa pap pl prg ps pt pt_PT rm ro rof root ru rwk sah saq sc scn sd sdh"
+      + " se seh ses sg sh shi si sk sl sma smi smj smn sms sn so sq sr ss ssy st su sv sw syr"
+      + " ta te teo th ti tig tk tl tn to tr ts tzm ug uk ur uz ve vi vo vun wa wae wo xh xog yi"
+      + " yo yue zh zu";
+
+  // Where each locale in LOCALES starts, in the same order.
+  static final String LOCALE_OFFSETS =
+      "\u0000\u0003\u0006\u0009\u000c\u000f\u0013\u0016\u001a\u001e\u0021\u0024\u0028\u002c"
+      + "\u002f\u0033\u0036\u0039\u003c\u003f\u0043\u0046\u0049\u004c\u0050\u0054\u0058\\\u005f"
+      + "\u0062\u0065\u0068\u006c\u006f\u0072\u0075\u0078\u007b\u007e\u0081\u0084\u0087\u008a"
+      + "\u008d\u0090\u0094\u0097\u009a\u009e\u00a1\u00a4\u00a7\u00aa\u00ae\u00b1\u00b5\u00b8"
+      + "\u00bb\u00bf\u00c2\u00c5\u00c8\u00cc\u00cf\u00d2\u00d5\u00d8\u00db\u00de\u00e1\u00e4"
+      + "\u00e7\u00ea\u00ed\u00f0\u00f3\u00f7\u00fb\u00fe\u0102\u0105\u0108\u010b\u010f\u0113"
+      + "\u0117\u011b\u011f\u0122\u0126\u0129\u012c\u012f\u0132\u0135\u0139\u013d\u0140\u0143"
+      + "\u0146\u014a\u014d\u0150\u0154\u0157\u015a\u015d\u0160\u0164\u0167\u016b\u016e\u0171"
+      + "\u0174\u0177\u017a\u017d\u0180\u0183\u0187\u018b\u018e\u0191\u0194\u0197\u019a\u019e"
+      + "\u01a1\u01a5\u01a8\u01ac\u01af\u01b3\u01b6\u01b9\u01bc\u01c0\u01c3\u01c7\u01ca\u01ce"
+      + "\u01d1\u01d4\u01da\u01dd\u01e0\u01e4\u01e9\u01ec\u01f0\u01f4\u01f8\u01fb\u01ff\u0202"
+      + "\u0206\u0209\u020d\u0211\u0214\u0217\u021b\u021e\u0221\u0224\u0228\u022c\u0230\u0234"
+      + "\u0238\u023b\u023e\u0241\u0244\u0247\u024b\u024e\u0251\u0254\u0257\u025b\u025e\u0261"
+      + "\u0265\u0268\u026b\u026f\u0272\u0275\u0278\u027b\u027e\u0281\u0285\u0288\u028b\u028e"
+      + "\u0291\u0294\u0297\u029a\u029e\u02a1\u02a5\u02a8\u02ab\u02af\u02b2\u02b5\u02b9\u02bc";
+
+  // The rule family of each locale in LOCALES, in the same order.
+  static final String LOCALE_FAMILIES =
+      "\u0008\u0006\u0001\u0008\"\"\u0001\u0008\u0004\u0008\u001a\u0008\u0008\u0008\u0006"
+      + "\u0000\u0001\u0000\u001e\u0008\u0013\u0004\u0008\u000c\u0008\u0008\u0008\u0018\u0023"
+      + "\u0009\u0004\u0016\u0008\u0000\u0008\u0008\u0004\u0008\u0008\u0004\u0008\u0001\u0002"
+      + "\u0004\u000c\u0008\u0002\u0008\u0004\u001f\u0014\u0004\u0008\u0001\u0006\u0020\u0008"
+      + "\u0008\u0017\u0001\u0013\u0016\u0008\u0002\u0004\u0000\u0000\u0000\u0000\u0004\n\u0004"
+      + "\u0010\u0017\u0000\u0000\u0008\u0004\u0008\u0000\u0000\u0008\u0002\u0008\u0008\u0000"
+      + "\u0000\u0008\u0008\u0008\u0000\u0001\u0000\u0008\u0008\u000f\u0008\u0021\u0008\u000e"
+      + "\u0008\u0008\u0000\u0006\u0000\u001b\r\u0008\u0006\u0008\u000b\u0008\u0008\u0012\u0008"
+      + "\u0000\u001c\u0000\u0008\u0010\u0008\u0008\u0008\u0004\u0008\u0008\u0008\u0000\u0008"
+      + "\u0006\u0008\u0008\u0008\u0008\u0008\u0000\u0006\u0008\u0019\r\u0008\u0003\u0004\u0008"
+      + "\u0012\u0008\u0000\u001d\u0008\u0000\u0008\u0004\u0004\u0008\u0008\u0010\u0008\u0000"
+      + "\u0000\u0013\u0011\u0005\u0018\u0015\u0010\u0010\u0010\u0010\u0010\u0008\u0008\u0008"
+      + "\u0013\u0008\u0008\u0008\u0000\u0004\u0004\u0008\u0008\u0008\u0008\u0000\u0006\u0008"
+      + "\u0008\u000c\u0008\u0000\u0008\u0008\u0007\u0008\u001d\u0004\u0008\u0008\u0000\u0008"
+      + "\u0008\u0006\u0008\u0000\u0008\u0008\u0004\u0000\u0000\u0000\u0001";
+
+  // Where each rule family starts in PROGRAM.
+  static final String FAMILY_OFFSETS =
+      "\u0000\u0001\u000e\u0018\u0020\u002c\u003f\u0047\u0054\\\u006f\u0086\u00a3\u00cf\u010e"
+      + "\u0123\u0132\u0141\u0155\u0173\u01ac\u01c8\u01f2\u0229\u0250\u026e\u02af\u02de\u0300"
+      + "\u031d\u0360\u03a3\u03c0\u03f4\u045c\u0482";
+
+  // See CompiledPluralRules for the format.
+  static final String PROGRAM =
+      "\u0000\u0001\u0002\u0002\u0004\u0001\u0001\u0000\u0000\u0004\u0000\u0001\u0001\u0001"
+      + "\u0001\u0002\u0001\u0006\u0001\u0002\u0000\u0000\u0001\u0001\u0001\u0002\u0001\u0004"
+      + "\u0001\u0001\u0000\u0001\u0001\u0002\u0001\u0008\u0001\u0001\u0001\u0001\u0002\u0001"
+      + "\u0000\u0000\u0001\u0002\u0002\u0006\u0000\u0002\u0000\u0000\u0001\u0001\u0008\u0001"
+      + "\u0001\u0000\u0000\u0004\u0001\u0001\u0001\u0001\u0002\u0001\u0004\u0000\u0001\u0000"
+      + "\u0001\u0001\u0002\u0002\u0004\u0000\u0001\u0000\u0001\u0004\u0000\u0001\u000b\u0063"
+      + "\u0001\u0002\u0001\u0004\u0000\u0001\u0001\u0001\u0001\u0002\u0002\u0004\u0000\u0001"
+      + "\u0001\u0001\n\u0025\u0001\u0000\u0000\u0001\u0002\u0000\u0000\u0001\u0001\u0001\u0002"
+      + "\u0002\u000e\u0005\u0001\u0000\u0000\u0011\n\u0001\u0001\u0001\u0031\u0064\u0001\u000b"
+      + "\u000b\u0004\u0025\u0001\u0000\u0000\u0001\u0002\u0002\u000e\u0002\u0001\u0000\u0000"
+      + "\u0011\n\u0001\u0001\u0001\u0031\u0064\u0001\u000b\u000b\n\u0014\n\u0001\u0001\u0001"
+      + "\u0034\u0064\u0001\u000b\u000b\u0001\u0002\u0003\u000c\u0002\u0001\u0000\u0000\u0001"
+      + "\u0003\u0001\u0001\u0002\u0002\u0003\u0003\r\u0002\u0001\u0000\u0000\u0031\n\u0003"
+      + "\u0004\u0004\u0006\u0006\u0009\u0009\r\"\u0001\u0000\u0000\u0034\n\u0003\u0004\u0004"
+      + "\u0006\u0006\u0009\u0009\u0002\u0001\u0003\u0005\u0010\n\u0001\u0000\u0000\u0005\u0010"
+      + "\u0064\u0001\u000b\u0013\u0009\u0002\u0001\u0002\u0002\u0014\u0064\u0001\u000b\u0013"
+      + "\u0002\u0003\n\u0010\n\u0001\u0001\u0001\u0030\u0064\u0001\u000b\u000b\u000e\u0002"
+      + "\u0001\u0002\u0002\u0014\n\u0001\u0001\u0001\u0034\u0064\u0001\u000b\u000b\u0009\""
+      + "\u0001\u0002\u0002\u0014\n\u0001\u0001\u0001\u0002\u0001\u0001\u0004\u0000\u0001\u0000"
+      + "\u0000\u0002\u0001\n\u0001\u0002\u0000\u0000\u0001\u0001\u0020\u0001\u0000\u0000\u0002"
+      + "\u0001\u0001\u0004\u0000\u0001\u0000\u0000\u0002\u0001\u0004\u0000\u0001\u0001\u0001"
+      + "\u0002\u0002\u0001\u0004\u0000\u0001\u0001\u0001\u0004\u0001\u0004\u0000\u0001\u0002"
+      + "\u0002\u0002\u0002\u0002\u0004\u0001\u0001\u0000\u0000\u0004\u0000\u0001\u0001\u0001"
+      + "\u0008\u0001\u0004\u0000\u0001\u0002\n\u0002\u0002\u0001\u0008\u0001\u0001\u0001\u0001"
+      + "\u0002\u0001\u0000\u0000\u0008\u0003\u0004\"\u0001\u0000\u0000\u0004\u0000\u0001\u0000"
+      + "\u0000\u0005\u0010\u0064\u0001\u0002\u0013\u0002\u0002\u0002\u000e\u0002\u0001\u0000"
+      + "\u0000\u0011\n\u0001\u0001\u0001\u0031\u0064\u0001\u000b\u000b\n\u0014\n\u0001\u0001"
+      + "\u0001\u0034\u0064\u0001\u000b\u000b\u0008\u0002\u000e\u0002\u0001\u0000\u0000\u0011\n"
+      + "\u0001\u0002\u0004\u0031\u0064\u0001\u000c\u000e\n\u0014\n\u0001\u0002\u0004\u0034"
+      + "\u0064\u0001\u000c\u000e\u0003\u0002\u0001\u0006\u0000\u0002\u0001\u0001\u000b\u000b"
+      + "\u0004\u0001\u0006\u0000\u0002\u0002\u0002\u000c\u000c\u0008\u0001\u0006\u0000\u0002"
+      + "\u0003\n\r\u0013\u0003\u0002\u0001\u0009\u0002\u0001\u0000\u0000\u0011\u0064\u0001"
+      + "\u0001\u0001\u0004\u0001\u0009\u0002\u0001\u0000\u0000\u0011\u0064\u0001\u0002\u0002"
+      + "\u0008\u0002\u0009\u0002\u0001\u0000\u0000\u0011\u0064\u0001\u0003\u0004\u0004\"\u0001"
+      + "\u0000\u0000\u0003\u0002\u0002\u0009\u0002\u0001\u0000\u0000\u0011\u0064\u0001\u0001"
+      + "\u0001\u0005\u0014\u0064\u0001\u0001\u0001\u0004\u0002\u0009\u0002\u0001\u0000\u0000"
+      + "\u0011\u0064\u0001\u0002\u0002\u0005\u0014\u0064\u0001\u0002\u0002\u0008\u0002\u0009"
+      + "\u0002\u0001\u0000\u0000\u0011\u0064\u0001\u0003\u0004\u0005\u0014\u0064\u0001\u0003"
+      + "\u0004\u0003\u0002\u0001\u0008\u0001\u0001\u0001\u0001\u0002\u0001\u0000\u0000\u0004"
+      + "\u0001\u0008\u0001\u0001\u0002\u0002\u0002\u0001\u0000\u0000\u0010\u0001\r\u0002\u0001"
+      + "\u0000\u0000\u0020\u0001\u0000\n\u0010\n\u0001\u0000\u0000\u0003\u0002\u0001\u0008"
+      + "\u0001\u0001\u0001\u0001\u0002\u0001\u0000\u0000\u0008\u0001\u0008\u0001\u0001\u0002"
+      + "\u0004\u0002\u0001\u0000\u0000\u0010\u0001\u0004\"\u0001\u0000\u0000\u0003\u0002\u0001"
+      + "\u0008\u0001\u0001\u0001\u0001\u0002\u0001\u0000\u0000\u0008\u0001\u000e\u0002\u0001"
+      + "\u0000\u0000\u0011\n\u0001\u0002\u0004\u0031\u0064\u0001\u000c\u000e\u0010\u0003\r"
+      + "\u0002\u0001\u0000\u0000\u0021\u0001\u0001\u0001\u0011\n\u0001\u0000\u0001\u0009\u0002"
+      + "\u0001\u0000\u0000\u0011\n\u0001\u0005\u0009\u0009\u0002\u0001\u0000\u0000\u0011\u0064"
+      + "\u0001\u000c\u000e\u0003\u0002\u0001\n\u0010\n\u0001\u0001\u0001\u0030\u0064\u0001"
+      + "\u000b\u000b\u0008\u0001\n\u0010\n\u0001\u0002\u0004\u0030\u0064\u0001\u000c\u000e"
+      + "\u0010\u0003\u0005\u0010\n\u0001\u0000\u0000\u0005\u0010\n\u0001\u0005\u0009\u0005"
+      + "\u0010\u0064\u0001\u000b\u000e\u0003\u0002\u0001\n\u0010\n\u0001\u0001\u0001\u0030"
+      + "\u0064\u0001\u000b\u0013\u0008\u0001\n\u0010\n\u0001\u0002\u0009\u0030\u0064\u0001"
+      + "\u000b\u0013\u0010\u0001\u0004\u0024\u0001\u0000\u0000\u0003\u0002\u0001\u0004\u0000"
+      + "\u0001\u0001\u0001\u0008\u0002\u0004\u0000\u0001\u0000\u0000\u0005\u0010\u0064\u0001"
+      + "\u0002\n\u0010\u0001\u0005\u0010\u0064\u0001\u000b\u0013\u0003\u0002\u0001\u000e\u0002"
+      + "\u0001\u0000\u0000\u0011\n\u0001\u0001\u0001\u0031\u0064\u0001\u000b\u000b\u0008\u0001"
+      + "\u000e\u0002\u0001\u0000\u0000\u0011\n\u0001\u0002\u0004\u0031\u0064\u0001\u000c\u000e"
+      + "\u0010\u0003\u0009\u0002\u0001\u0000\u0000\u0011\n\u0001\u0000\u0000\u0009\u0002\u0001"
+      + "\u0000\u0000\u0011\n\u0001\u0005\u0009\u0009\u0002\u0001\u0000\u0000\u0011\u0064\u0001"
+      + "\u000b\u000e\u0004\u0002\u0001\u000e\u0010\n\u0001\u0001\u0001\u0030\u0064\u0003\u000b"
+      + "\u000b\u0047\u0047\u005b\u005b\u0004\u0001\u000e\u0010\n\u0001\u0002\u0002\u0030\u0064"
+      + "\u0003\u000c\u000c\u0048\u0048\\\\\u0008\u0001\u0010\u0010\n\u0002\u0003\u0004\u0009"
+      + "\u0009\u0030\u0064\u0003\n\u0013\u0046\u004f\u005a\u0063\u0010\u0001\n\u0020\u0001"
+      + "\u0000\u0000\u0010\u800f\u4240\u0001\u0000\u0000\u0004\u0002\u0001\u0004\u0000\u0001"
+      + "\u0001\u0001\u0004\u0001\u0004\u0000\u0001\u0002\u0002\u0008\u0001\u0004\u0000\u0001"
+      + "\u0003\u0006\u0010\u0001\u0004\u0000\u0001\u0007\n\u0004\u0002\u0001\u0009\u0002\u0001"
+      + "\u0000\u0000\u0011\n\u0001\u0001\u0001\u0004\u0001\u0009\u0002\u0001\u0000\u0000\u0011"
+      + "\n\u0001\u0002\u0002\u0008\u0001\u0011\u0002\u0001\u0000\u0000\u0011\u0064\u0005\u0000"
+      + "\u0000\u0014\u0014\u0028\u0028\u003c\u003c\u0050\u0050\u0010\u0001\u0004\"\u0001\u0000"
+      + "\u0000\u0005\u0001\u0001\u0004\u0000\u0001\u0000\u0000\u0002\u0001\u0004\u0000\u0001"
+      + "\u0001\u0001\u0004\u0003\r\u0010\u0064\u0005\u0002\u0002\u0016\u0016\u002a\u002a\u003e"
+      + "\u003e\u0052\u0052\u0017\u0010\u03e8\u0001\u0000\u0000\u0010\u8001\u86a0\u0004\u03e8"
+      + "\u4e20\u8000\u9c40\u8000\u9c40\u8000\uea60\u8000\uea60\u8001\u3880\u8001\u3880\u000c"
+      + "\u0020\u0001\u0000\u0000\u0010\u800f\u4240\u0001\u8001\u86a0\u8001\u86a0\u0008\u0001\r"
+      + "\u0010\u0064\u0005\u0003\u0003\u0017\u0017\u002b\u002b\u003f\u003f\u0053\u0053\u0010"
+      + "\u0001\u0011\u0020\u0001\u0001\u0001\u0010\u0064\u0005\u0001\u0001\u0015\u0015\u0029"
+      + "\u0029\u003d\u003d\u0051\u0051\u0005\u0001\u0001\u0004\u0000\u0001\u0000\u0000\u0002"
+      + "\u0001\u0004\u0000\u0001\u0001\u0001\u0004\u0001\u0004\u0000\u0001\u0002\u0002\u0008"
+      + "\u0001\u0005\u0010\u0064\u0001\u0003\n\u0010\u0001\u0005\u0010\u0064\u0001\u000b\u0063"
+      + "\u0005\u0001\u0001\u0004\u0000\u0001\u0000\u0000\u0002\u0001\u0004\u0000\u0001\u0001"
+      + "\u0001\u0004\u0001\u0004\u0000\u0001\u0002\u0002\u0008\u0001\u0004\u0000\u0001\u0003"
+      + "\u0003\u0010\u0001\u0004\u0000\u0001\u0006\u0006";
+
+  private PluralRulesData() {}
+}
@@ -0,0 +1,25 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.Nullable;
+
+public class SpMetrics {
+  // Read once per lookup. Callers check for null before doing any work for the metrics, so there is
+  // no cost without a listener.
+  @Nullable private static volatile StringPacksMetrics listener;
+
+  /** The client can set a metrics listener here. Otherwise StringPacks will not collect metrics */
+  public static void setListener(@Nullable StringPacksMetrics metrics) {
+    listener = metrics;
+  }
+
+  @Nullable
+  static StringPacksMetrics get() {
+    return listener;
+  }
+}
@@ -0,0 +1,28 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.Nullable;
+
+public class SpTrace {
+  // Only one in this many string loads from the pack file is traced, so tracing a cold start
+  // doesn't drown it in tiny sections.
+  static final int LOAD_SAMPLE_RATE = 32;
+
+  // Read once per traced operation, and nothing is traced while it's null.
+  @Nullable private static volatile Tracer tracer;
+
+  /** The client can set a tracer here. Otherwise StringPacks will not emit any trace sections */
+  public static void setTracer(@Nullable Tracer newTracer) {
+    tracer = newTracer;
+  }
+
+  @Nullable
+  static Tracer get() {
+    return tracer;
+  }
+}
@@ -0,0 +1,97 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.util.Arrays;
+
+/**
+ * Maps ints to ints like {@code android.util.SparseIntArray}, without depending on Android. The
+ * keys are kept sorted in one array and looked up by binary search, and {@link #append} is a fast
+ * path for keys added in increasing order, which is how pack ids are stored.
+ */
+final class SparseIntMap {
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  SparseIntMap() {
+    this(10);
+  }
+
+  SparseIntMap(int initialCapacity) {
+    keys = new int[initialCapacity];
+    values = new int[initialCapacity];
+  }
+
+  int get(int key) {
+    return get(key, 0);
+  }
+
+  int get(int key, int valueIfKeyNotFound) {
+    final int index = Arrays.binarySearch(keys, 0, size, key);
+    return index >= 0 ? values[index] : valueIfKeyNotFound;
+  }
+
+  /** Returns the index of the key, from 0 to {@link #size()}, or a negative number if absent. */
+  int indexOfKey(int key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  void put(int key, int value) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+    index = ~index;
+    if (size == keys.length) {
+      grow();
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    keys[index] = key;
+    values[index] = value;
+    size++;
+  }
+
+  void append(int key, int value) {
+    if (size != 0 && key <= keys[size - 1]) {
+      put(key, value);
+      return;
+    }
+    if (size == keys.length) {
+      grow();
+    }
+    keys[size] = key;
+    values[size] = value;
+    size++;
+  }
+
+  void delete(int key) {
+    final int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      size--;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns the largest key, or -1 if there are none. */
+  int lastKey() {
+    return size != 0 ? keys[size - 1] : -1;
+  }
+
+  private void grow() {
+    final int capacity = Math.max(4, size * 2);
+    keys = Arrays.copyOf(keys, capacity);
+    values = Arrays.copyOf(values, capacity);
+  }
+}
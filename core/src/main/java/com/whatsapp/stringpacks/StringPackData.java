@@ -0,0 +1,84 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StringPackData {
+  private static final String REGION_ANGOLA = "AO";
+  private static final String REGION_CAPE_VERDE = "CV";
+  private static final String REGION_EQUITORIAL_GUINEA = "GQ";
+  private static final String REGION_FRANCE = "FR";
+  private static final String REGION_GUINEA_BISSAU = "GW";
+  private static final String REGION_LUXEMBOURG = "LU";
+  private static final String REGION_MACAU = "MO";
+  private static final String REGION_MOZAMBIQUE = "MZ";
+  private static final String REGION_PORTUGAL = "PT";
+  private static final String REGION_SAO_TOME_AND_PRINCIPE = "ST";
+  private static final String REGION_SWITZERLAND = "CH";
+  private static final String REGION_TIMOR_LESTE = "TL";
+
+  // List of Portuguese sublocales that map to pt-PT, from
+  // CLDR's common/supplemental/supplementalData.xml, under <parentLocales>.
+  public static final Set<String> EUROPEAN_PORTUGUESE_LOCALES =
+      Collections.unmodifiableSet(
+          new HashSet<>(
+              Arrays.asList(
+                  REGION_ANGOLA,
+                  REGION_CAPE_VERDE,
+                  REGION_EQUITORIAL_GUINEA,
+                  REGION_FRANCE,
+                  REGION_GUINEA_BISSAU,
+                  REGION_LUXEMBOURG,
+                  REGION_MACAU,
+                  REGION_MOZAMBIQUE,
+                  REGION_PORTUGAL,
+                  REGION_SAO_TOME_AND_PRINCIPE,
+                  REGION_SWITZERLAND,
+                  REGION_TIMOR_LESTE)));
+
+  static final int LOCALE_CODE_SIZE = 7;
+  static final int HEADER_SIZE = 11;
+
+  // The encoding byte of the header holds the encoding id in its low bits, and format flags in its
+  // high bits. Keep in sync with `_ENCODING_MASK` and `_FLAG_*` in string_pack.py
+  static final int ENCODING_MASK = 0x07;
+  // The strings and plurals of each locale are in compact tables. See CompactIndex.
+  static final int FLAG_COMPACT_INDEX = 0x08;
+  // The header is followed by a hash of the rest of the pack.
+  static final int FLAG_CONTENT_HASH = 0x10;
+  static final int CONTENT_HASH_SIZE = 8;
+  // Each locale's data ends with a table of the spans of its styled strings.
+  static final int FLAG_SPANS = 0x20;
+  // Quantity id of span table entries for plain strings, rather than plurals.
+  static final int SPAN_STRING_QUANTITY_ID = 0xFF;
+  // Each locale's plurals are followed by a table of its string arrays.
+  static final int FLAG_ARRAYS = 0x40;
+  // Ids and counts take 32 bits instead of 16, and string lengths and span positions are varints,
+  // for packs with more than 32,767 ids per locale or strings of more than 32 KB.
+  static final int FLAG_WIDE_FORMAT = 0x80;
+  // Largest id of a string, plural or array, so that styled texts can be keyed by the id and a
+  // 3-bit quantity index in an int. See MMappedStringPack.textKey(). Keep in sync with `MAX_ID` in
+  // string_pack.py
+  static final int MAX_ID = (1 << 28) - 1;
+  static final int MAX_HEADER_SIZE = HEADER_SIZE + CONTENT_HASH_SIZE;
+
+  @SuppressWarnings("CharsetObjectCanBeUsed")
+  static final Charset ASCII = Charset.forName("US-ASCII");
+
+  // Keep in sync with `_ENCODING_ID` in string_pack.py
+  @SuppressWarnings("CharsetObjectCanBeUsed")
+  static final Charset[] ENCODINGS = {Charset.forName("UTF-8"), Charset.forName("UTF-16BE")};
+  // Encoding id of packs whose locales have different encodings. The string data starts with the
+  // 4-byte offset in it of the UTF-16BE strings, which follow the UTF-8 ones.
+  static final int ENCODING_PER_LOCALE = 2;
+  static final Charset UTF_16BE = ENCODINGS[1];
+}
@@ -0,0 +1,310 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.IntRange;
+import androidx.annotation.NonNull;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Checks that a pack file is well formed, for packs that don't come from the app itself, such as
+ * the ones installed at runtime. The header, the locale table and the tables of every locale are
+ * read, and every string location is checked to be within the string data, so that a truncated or
+ * corrupted pack is rejected up front instead of failing or reading garbage on lookups. If the pack
+ * has a content hash, it must match the rest of the pack.
+ *
+ * <p>This reads the whole pack, so it's meant for packs that are checked once when they're
+ * installed, not on every load.
+ */
+final class StringPackValidator {
+
+  private final ByteBuffer packFile;
+  // The part of the pack file before the string data, so that reading a table past its end fails.
+  private ByteBuffer tables;
+  private int stringDataSize;
+  // Offset in the string data of the UTF-16BE strings of packs with per-locale encodings.
+  private int utf16Start;
+  private boolean wideFormat;
+  private int idSize;
+  private final long[] quantityLocations = new long[MMappedStringPack.STRING_INDEX];
+
+  private StringPackValidator(@NonNull ByteBuffer packFile) {
+    this.packFile = packFile;
+  }
+
+  /**
+   * Returns whether the given pack file is well formed. Only absolute reads are used, so the
+   * position of {@code packFile} doesn't change.
+   */
+  static boolean isValid(@NonNull ByteBuffer packFile) {
+    try {
+      new StringPackValidator(packFile).validate();
+      return true;
+    } catch (IllegalArgumentException | IndexOutOfBoundsException exception) {
+      SpLog.w("StringPackValidator: invalid pack: " + exception);
+      return false;
+    }
+  }
+
+  private void validate() {
+    final int size = packFile.limit();
+    check(size >= StringPackData.HEADER_SIZE, "pack is smaller than its header");
+    final int numLocales = read16BitsFrom(packFile, 0);
+    final int startOfLocaleData = read32BitsFrom(packFile, 2);
+    final byte encodingByte = packFile.get(6);
+    final int startOfStringData = read32BitsFrom(packFile, 7);
+    final int encodingId = encodingByte & StringPackData.ENCODING_MASK;
+    check(
+        encodingId < StringPackData.ENCODINGS.length
+            || encodingId == StringPackData.ENCODING_PER_LOCALE,
+        "unrecognized encoding " + encodingId);
+    wideFormat = (encodingByte & StringPackData.FLAG_WIDE_FORMAT) != 0;
+    idSize = wideFormat ? 4 : 2;
+
+    final boolean hasContentHash = (encodingByte & StringPackData.FLAG_CONTENT_HASH) != 0;
+    final int startOfLocaleTable =
+        StringPackData.HEADER_SIZE + (hasContentHash ? StringPackData.CONTENT_HASH_SIZE : 0);
+    final long endOfLocaleTable =
+        startOfLocaleTable + (long) numLocales * (StringPackData.LOCALE_CODE_SIZE + 4);
+    check(
+        numLocales > 0
+            && endOfLocaleTable <= startOfLocaleData
+            && startOfLocaleData <= startOfStringData
+            && startOfStringData >= 0
+            && startOfStringData <= size,
+        "header is out of bounds");
+    if (hasContentHash) {
+      checkContentHash(startOfLocaleTable, size);
+    }
+
+    tables = packFile.duplicate();
+    tables.limit(startOfStringData);
+    stringDataSize = size - startOfStringData;
+    if (encodingId == StringPackData.ENCODING_PER_LOCALE) {
+      check(stringDataSize >= 4, "missing start of the UTF-16BE strings");
+      utf16Start = read32BitsFrom(packFile, startOfStringData);
+      check(utf16Start >= 4 && utf16Start <= stringDataSize, "UTF-16BE strings out of bounds");
+    } else {
+      utf16Start = stringDataSize;
+    }
+
+    final boolean compactIndex = (encodingByte & StringPackData.FLAG_COMPACT_INDEX) != 0;
+    final boolean hasArrays = (encodingByte & StringPackData.FLAG_ARRAYS) != 0;
+    final boolean hasSpans = (encodingByte & StringPackData.FLAG_SPANS) != 0;
+    for (int i = 0; i < numLocales; i++) {
+      final int entry = startOfLocaleTable + i * (StringPackData.LOCALE_CODE_SIZE + 4);
+      final int headerStart = read32BitsFrom(packFile, entry + StringPackData.LOCALE_CODE_SIZE);
+      check(headerStart >= 0, "locale data out of bounds");
+      int caret = startOfLocaleData + headerStart;
+      caret = compactIndex ? validateCompactTables(caret) : validateStringsAndPlurals(caret);
+      if (hasArrays) {
+        caret = validateArrays(caret);
+      }
+      if (hasSpans) {
+        validateSpans(caret);
+      }
+    }
+  }
+
+  private void checkContentHash(int startOfLocaleTable, int size) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException exception) {
+      // Always available on Android and in the JDK, but don't reject the pack for it.
+      SpLog.w("StringPackValidator: could not check the content hash: " + exception);
+      return;
+    }
+    final ByteBuffer content = packFile.duplicate();
+    content.limit(size).position(startOfLocaleTable);
+    digest.update(content);
+    final byte[] hash = digest.digest();
+    for (int i = 0; i < StringPackData.CONTENT_HASH_SIZE; i++) {
+      check(hash[i] == packFile.get(StringPackData.HEADER_SIZE + i), "content hash mismatch");
+    }
+  }
+
+  /** Validates the strings and plurals at the given position, and returns the position after. */
+  private int validateStringsAndPlurals(@IntRange(from = 0) int caret) {
+    final int numStrings = readIdFrom(caret);
+    caret += idSize;
+    final int numPlurals = readIdFrom(caret);
+    caret += idSize;
+    for (int i = 0; i < numStrings; i++) {
+      readResourceIdFrom(caret);
+      caret = validateLocation(caret + idSize);
+    }
+    for (int i = 0; i < numPlurals; i++) {
+      readResourceIdFrom(caret);
+      caret += idSize;
+      final int quantityCount = tables.get(caret++);
+      for (int j = 0; j < quantityCount; j++) {
+        checkQuantityId(tables.get(caret++));
+        caret = validateLocation(caret);
+      }
+    }
+    return caret;
+  }
+
+  /** Validates the compact tables at the given position, and returns the position after them. */
+  private int validateCompactTables(@IntRange(from = 0) int caret) {
+    final CompactIndex strings = validateCompactTable(caret, false);
+    for (int id : strings.ids()) {
+      checkResourceId(id);
+      checkLocation(strings.findString(id));
+    }
+    final CompactIndex plurals = validateCompactTable(strings.end(), true);
+    for (int id : plurals.ids()) {
+      checkResourceId(id);
+      check(plurals.findPlural(id, quantityLocations), "plural table is not sorted");
+      for (long location : quantityLocations) {
+        if (location != CompactIndex.NO_LOCATION) {
+          checkLocation(location);
+        }
+      }
+    }
+    return plurals.end();
+  }
+
+  private CompactIndex validateCompactTable(@IntRange(from = 0) int start, boolean plurals) {
+    final int count = read32BitsFrom(tables, start);
+    final int blockCount = read32BitsFrom(tables, start + 4);
+    final int dataSize = read32BitsFrom(tables, start + 8);
+    // Check the sizes before they're used to allocate or to seek.
+    check(
+        count >= 0
+            && blockCount == (count + CompactIndex.BLOCK_SIZE - 1) / CompactIndex.BLOCK_SIZE
+            && dataSize >= 0
+            && start + 12 + 8L * blockCount + dataSize <= tables.limit(),
+        "compact table out of bounds");
+    return new CompactIndex(tables, start, plurals);
+  }
+
+  /** Validates the string arrays at the given position, and returns the position after them. */
+  private int validateArrays(@IntRange(from = 0) int caret) {
+    final int numArrays = readIdFrom(caret);
+    caret += idSize;
+    for (int i = 0; i < numArrays; i++) {
+      readResourceIdFrom(caret);
+      final int itemCount = readIdFrom(caret + idSize);
+      caret += idSize * 2; // Skip the id and the item count
+      for (int j = 0; j < itemCount; j++) {
+        caret = validateLocation(caret);
+      }
+    }
+    return caret;
+  }
+
+  private void validateSpans(@IntRange(from = 0) int caret) {
+    final int numStyled = readIdFrom(caret);
+    caret += idSize;
+    for (int i = 0; i < numStyled; i++) {
+      readResourceIdFrom(caret);
+      final int quantityId = tables.get(caret + idSize) & 0xFF;
+      if (quantityId != StringPackData.SPAN_STRING_QUANTITY_ID) {
+        checkQuantityId(quantityId);
+      }
+      final int spanCount = readIdFrom(caret + idSize + 1);
+      caret += idSize + 1 + idSize; // Skip the id, the quantity id and the span count
+      for (int j = 0; j < spanCount; j++) {
+        caret = validateLocation(caret);
+        final int start = readLengthFrom(caret);
+        caret += lengthSizeAt(caret);
+        final int end = readLengthFrom(caret);
+        caret += lengthSizeAt(caret);
+        check(0 <= start && start <= end, "span out of bounds");
+      }
+    }
+  }
+
+  /**
+   * Validates the string starting location and length at the given position, and returns the
+   * position after them.
+   */
+  private int validateLocation(@IntRange(from = 0) int caret) {
+    checkLocation(((long) read32BitsFrom(tables, caret) << 32) | readLengthFrom(caret + 4));
+    return caret + 4 + lengthSizeAt(caret + 4);
+  }
+
+  private void checkLocation(long location) {
+    final int start = CompactIndex.startOf(location);
+    final int end = start + CompactIndex.lengthOf(location);
+    final int limit = start < utf16Start ? utf16Start : stringDataSize;
+    check(
+        start >= 0 && start <= end && end <= limit,
+        "string at " + start + " out of the string data");
+  }
+
+  private static void checkQuantityId(int quantityId) {
+    check(
+        quantityId >= 0 && quantityId < MMappedStringPack.STRING_INDEX,
+        "unrecognized quantity id " + quantityId);
+  }
+
+  private static void check(boolean condition, @NonNull String message) {
+    if (!condition) {
+      throw new IllegalArgumentException(message);
+    }
+  }
+
+  private int readIdFrom(@IntRange(from = 0) int offset) {
+    final int id = wideFormat ? read32BitsFrom(tables, offset) : read16BitsFrom(tables, offset);
+    check(id >= 0, "negative id or count");
+    return id;
+  }
+
+  /** Reads the id of a string, plural or array, as opposed to a count. */
+  private int readResourceIdFrom(@IntRange(from = 0) int offset) {
+    final int id = readIdFrom(offset);
+    checkResourceId(id);
+    return id;
+  }
+
+  private static void checkResourceId(int id) {
+    check(id >= 0 && id <= StringPackData.MAX_ID, "id " + id + " out of range");
+  }
+
+  private int readLengthFrom(@IntRange(from = 0) int offset) {
+    if (!wideFormat) {
+      return read16BitsFrom(tables, offset);
+    }
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      check(shift < 32, "varint too long");
+      b = tables.get(offset++) & 0xFF;
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b >= 0x80);
+    return value;
+  }
+
+  private int lengthSizeAt(@IntRange(from = 0) int offset) {
+    if (!wideFormat) {
+      return 2;
+    }
+    int size = 1;
+    while ((tables.get(offset + size - 1) & 0x80) != 0) {
+      size++;
+    }
+    return size;
+  }
+
+  private static int read16BitsFrom(@NonNull ByteBuffer buffer, @IntRange(from = 0) int offset) {
+    return (buffer.get(offset) & 0xFF) | ((buffer.get(offset + 1) & 0xFF) << 8);
+  }
+
+  private static int read32BitsFrom(@NonNull ByteBuffer buffer, @IntRange(from = 0) int offset) {
+    return (buffer.get(offset) & 0xFF)
+        | ((buffer.get(offset + 1) & 0xFF) << 8)
+        | ((buffer.get(offset + 2) & 0xFF) << 16)
+        | ((buffer.get(offset + 3) & 0xFF) << 24);
+  }
+}
@@ -0,0 +1,87 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * This allows the StringPacks consumer to collect metrics, such as cache hit rates and how long
+ * {@code StringPacks#setUp} takes. Set it with {@link SpMetrics#setListener}.
+ *
+ * <p>Callbacks happen on the thread doing the lookup, often the main thread, so they should only
+ * update counters. Lookups don't call the listener at all when none is set.
+ */
+public interface StringPacksMetrics {
+
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({TYPE_STRING, TYPE_PLURAL, TYPE_TEXT, TYPE_ARRAY})
+  @interface Type {}
+
+  int TYPE_STRING = 0;
+  int TYPE_PLURAL = 1;
+  // A styled string or plural quantity, see StringPacks#getText(int).
+  int TYPE_TEXT = 2;
+  int TYPE_ARRAY = 3;
+
+  @Retention(RetentionPolicy.SOURCE)
+  @IntDef({PHASE_EXTRACT, PHASE_MAP, PHASE_INDEX, PHASE_PLURAL_RULES})
+  @interface Phase {}
+
+  // Copying the pack file out of the assets, or checking that it was already extracted.
+  int PHASE_EXTRACT = 0;
+  // Mapping the extracted pack file into memory.
+  int PHASE_MAP = 1;
+  // Reading the locale tables of the mapped pack.
+  int PHASE_INDEX = 2;
+  // Resolving the plural rules of the locale.
+  int PHASE_PLURAL_RULES = 3;
+
+  /** A lookup was served from the cache of the current pack. */
+  void onCacheHit(@Type int type);
+
+  /**
+   * A lookup was read from the mapped pack file.
+   *
+   * @param bytesDecoded size of the string data decoded for it, in bytes
+   */
+  void onMappedLoad(@Type int type, int bytesDecoded);
+
+  /** A lookup was served by the app resources, because it is not packed or no pack is loaded. */
+  void onFallback(@Type int type);
+
+  /** A phase of {@code StringPacks#setUp} completed. */
+  void onSetUpPhase(@Phase int phase, long durationNanos);
+
+  /** Memory held by the current pack. See {@code StringPacks#getMemorySnapshot()}. */
+  final class MemorySnapshot {
+    /** Number of strings, plurals, styled texts and arrays cached. */
+    public final int cachedEntries;
+    /** Estimated size of the cached characters, in bytes. */
+    public final long cachedBytes;
+    /** Size of the mapped pack file, in bytes. */
+    public final long mappedBytes;
+
+    public MemorySnapshot(int cachedEntries, long cachedBytes, long mappedBytes) {
+      this.cachedEntries = cachedEntries;
+      this.cachedBytes = cachedBytes;
+      this.mappedBytes = mappedBytes;
+    }
+
+    @Override
+    public String toString() {
+      return "MemorySnapshot{cachedEntries="
+          + cachedEntries
+          + ", cachedBytes="
+          + cachedBytes
+          + ", mappedBytes="
+          + mappedBytes
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Turns a styled string and the spans stored for it in the pack into text for the platform, such
+ * as an Android {@code Spanned}. A span name is a tag, followed by ";key=value" for each of its
+ * attributes, such as "b" or "a;href=https://www.whatsapp.com".
+ */
+public interface TextStyler {
+
+  /** Drops the spans, for platforms without styled text. */
+  TextStyler PLAIN = (text, spanNames, spanStarts, spanEnds) -> text;
+
+  /**
+   * @param spanNames name of each span
+   * @param spanStarts start of each span in {@code text}, in chars
+   * @param spanEnds end of each span in {@code text}, in chars, exclusive
+   */
+  @NonNull
+  CharSequence style(
+      @NonNull String text,
+      @NonNull String[] spanNames,
+      @NonNull int[] spanStarts,
+      @NonNull int[] spanEnds);
+}
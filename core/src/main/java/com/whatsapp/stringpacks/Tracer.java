@@ -0,0 +1,21 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import androidx.annotation.NonNull;
+
+/**
+ * This allows the StringPacks consumer to pass down a custom tracer, for example to forward trace
+ * sections to their own tracing library. On Android, see {@code SystemTracer#enable()} for systrace
+ * and Perfetto.
+ */
+public interface Tracer {
+  /** Sections are nested and always ended on the thread that began them. */
+  void beginSection(@NonNull String name);
+
+  void endSection();
+}
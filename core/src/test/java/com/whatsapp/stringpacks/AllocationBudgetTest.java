@@ -0,0 +1,168 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Allocation budgets of the lookups that run on every string an app shows. Cached lookups must not
+ * allocate at all, so a change that adds boxing or a temporary object to them fails here.
+ */
+@RunWith(JUnit4.class)
+public class AllocationBudgetTest {
+
+  private ParsedStringPack parsedStringPack;
+
+  @Before
+  public void setUp() throws IOException {
+    parsedStringPack = loadPack("strings_zh.pack", Collections.singletonList("zh"));
+  }
+
+  private ParsedStringPack loadPack(String fileName, List<String> locales) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(getPath(fileName), "r")) {
+      return new ParsedStringPack(
+          locales,
+          randomAccessFile
+              .getChannel()
+              .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length()));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    parsedStringPack.close();
+  }
+
+  private String getPath(String fileName) {
+    return getClass().getClassLoader().getResource(fileName).getPath();
+  }
+
+  @Test
+  public void getString_cacheHit_doesNotAllocate() {
+    assertThat(parsedStringPack.getString(StringPacksTestData.STRING_ID)).isNotNull();
+
+    long bytes =
+        AllocationMeter.bytesPerCall(
+            () -> parsedStringPack.getString(StringPacksTestData.STRING_ID));
+
+    assertWithMessage("Bytes allocated per cached getString()").that(bytes).isEqualTo(0L);
+  }
+
+  @Test
+  public void getText_cacheHit_doesNotAllocate() {
+    assertThat(parsedStringPack.getText(StringPacksTestData.STRING_ID)).isNotNull();
+
+    long bytes =
+        AllocationMeter.bytesPerCall(() -> parsedStringPack.getText(StringPacksTestData.STRING_ID));
+
+    assertWithMessage("Bytes allocated per cached getText()").that(bytes).isEqualTo(0L);
+  }
+
+  @Test
+  public void getText_inPackWithSpans_cacheHit_doesNotAllocate() throws IOException {
+    // Ids whose text keys are above 127, which are not in the Integer cache, so that boxing them
+    // allocates: a plain string and a styled one.
+    ParsedStringPack compactPack = loadPack("strings_compact.pack", Arrays.asList("en"));
+    ParsedStringPack widePack = loadPack("strings_wide.pack", Arrays.asList("en", "en-GB"));
+    assertThat(compactPack.getText(78)).isEqualTo("String 78");
+    assertThat(widePack.getText(40000)).isNotNull();
+
+    long plainBytes = AllocationMeter.bytesPerCall(() -> compactPack.getText(78));
+    long styledBytes = AllocationMeter.bytesPerCall(() -> widePack.getText(40000));
+    compactPack.close();
+    widePack.close();
+
+    assertWithMessage("Bytes allocated per cached getText() of a plain string")
+        .that(plainBytes)
+        .isEqualTo(0L);
+    assertWithMessage("Bytes allocated per cached getText() of a styled string")
+        .that(styledBytes)
+        .isEqualTo(0L);
+  }
+
+  @Test
+  public void loadPack_withSparseIds_doesNotAllocatePerId() {
+    // The largest id of the pack is 2^28 - 1, so a slot per id would take over a gigabyte, while
+    // the dense slots take at most 8 bytes each.
+    final long bytes =
+        AllocationMeter.bytesAllocatedBy(
+            () -> {
+              try {
+                loadPack("strings_sparse.pack", Collections.singletonList("en")).close();
+              } catch (IOException exception) {
+                throw new AssertionError(exception);
+              }
+            });
+
+    assertWithMessage("Bytes allocated to load a pack with sparse ids")
+        .that(bytes)
+        .isLessThan(8L * ParsedStringPack.DENSE_ID_LIMIT + 64 * 1024);
+  }
+
+  @Test
+  public void getQuantityString_cacheHit_doesNotAllocate() {
+    PluralRules pluralRules = PluralRules.ruleForLocale(new Locale("ru"));
+    assertThat(
+            parsedStringPack.getQuantityString(StringPacksTestData.PLURALS_ID, 21, pluralRules))
+        .isNotNull();
+
+    long bytes =
+        AllocationMeter.bytesPerCall(
+            () ->
+                parsedStringPack.getQuantityString(
+                    StringPacksTestData.PLURALS_ID, 21, pluralRules));
+
+    assertWithMessage("Bytes allocated per cached getQuantityString()").that(bytes).isEqualTo(0L);
+  }
+
+  @Test
+  public void getQuantityString_withFractionDigits_cacheHit_doesNotAllocate() {
+    PluralRules pluralRules = PluralRules.ruleForLocale(new Locale("ru"));
+    assertThat(
+            parsedStringPack.getQuantityString(StringPacksTestData.PLURALS_ID, 1.5, 1, pluralRules))
+        .isNotNull();
+
+    long bytes =
+        AllocationMeter.bytesPerCall(
+            () ->
+                parsedStringPack.getQuantityString(
+                    StringPacksTestData.PLURALS_ID, 1.5, 1, pluralRules));
+
+    assertWithMessage("Bytes allocated per cached getQuantityString()").that(bytes).isEqualTo(0L);
+  }
+
+  @Test
+  public void multiLocaleGetString_cacheHit_doesNotAllocate() throws IOException {
+    MultiLocaleStringPacks packs =
+        MultiLocaleStringPacks.map(
+            Collections.singletonList(new File(getPath("strings_ha.pack"))));
+    assertThat(packs.getString("ha-NG", StringPacksTestData.STRING_ID)).isNotNull();
+
+    long bytes =
+        AllocationMeter.bytesPerCall(() -> packs.getString("ha-NG", StringPacksTestData.STRING_ID));
+    packs.close();
+
+    assertWithMessage("Bytes allocated per cached MultiLocaleStringPacks.getString()")
+        .that(bytes)
+        .isEqualTo(0L);
+  }
+}
@@ -0,0 +1,146 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Checks {@link MMappedStringPack} against app-sized packs, generated by generate_corpus.py.
+ *
+ * <p>These run with {@code ./gradlew :core:scaleTest}, which generates the corpus first and passes
+ * its directory in the {@code stringpacks.scaleCorpus} system property. They are skipped without
+ * it. The budgets are loose enough for a busy CI machine, so going over one is a real regression.
+ */
+@RunWith(JUnit4.class)
+public class MMappedStringPackScaleTest {
+
+  // Median time to read the index of a pack, for the language and its regional variant.
+  private static final long LOAD_BUDGET_MILLIS = 50;
+  // Heap allocated to index a pack, per string or plural id.
+  private static final long INDEX_BYTES_PER_ID_BUDGET = 32;
+  // Average time to load a string or plural that isn't cached yet.
+  private static final long LOOKUP_BUDGET_NANOS = 20_000;
+
+  private static final int LOAD_RUNS = 9;
+
+  private final List<ByteBuffer> packFiles = new ArrayList<>();
+
+  @Before
+  public void setUp() throws IOException {
+    final String corpus = System.getProperty("stringpacks.scaleCorpus");
+    assumeTrue("No scale corpus to test against", corpus != null);
+    final File[] files = new File(corpus).listFiles((dir, name) -> name.endsWith(".pack"));
+    assertWithMessage("Pack files in " + corpus).that(files).isNotNull();
+    Arrays.sort(files);
+    for (File file : files) {
+      try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+        packFiles.add(
+            randomAccessFile
+                .getChannel()
+                .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length()));
+      }
+    }
+    assertThat(packFiles).isNotEmpty();
+  }
+
+  /** The language first, and then its regional variant if it has one. */
+  private static List<String> parentLocales(ByteBuffer packFile) {
+    final List<String> locales = new ArrayList<>(MMappedStringPack.readLocales(packFile));
+    Collections.sort(locales, (a, b) -> a.length() - b.length());
+    return locales;
+  }
+
+  @Test
+  public void load_withinBudget() {
+    for (ByteBuffer packFile : packFiles) {
+      final List<String> parentLocales = parentLocales(packFile);
+      final long[] durations = new long[LOAD_RUNS];
+      for (int i = 0; i < LOAD_RUNS; i++) {
+        final long start = System.nanoTime();
+        final MMappedStringPack pack = new MMappedStringPack(parentLocales, packFile.duplicate());
+        durations[i] = System.nanoTime() - start;
+        pack.close();
+      }
+      Arrays.sort(durations);
+
+      assertWithMessage("Milliseconds to load " + parentLocales)
+          .that(durations[LOAD_RUNS / 2] / 1_000_000)
+          .isAtMost(LOAD_BUDGET_MILLIS);
+    }
+  }
+
+  @Test
+  public void index_withinMemoryBudget() {
+    for (ByteBuffer packFile : packFiles) {
+      final List<String> parentLocales = parentLocales(packFile);
+      final MMappedStringPack[] pack = new MMappedStringPack[1];
+
+      final long bytes =
+          AllocationMeter.bytesAllocatedBy(
+              () -> pack[0] = new MMappedStringPack(parentLocales, packFile.duplicate()));
+      final int idCount = pack[0].getStringAndPluralIdLimit();
+      pack[0].close();
+
+      assertThat(idCount).isGreaterThan(0);
+      assertWithMessage("Index bytes per id of " + parentLocales)
+          .that(bytes / idCount)
+          .isAtMost(INDEX_BYTES_PER_ID_BUDGET);
+    }
+  }
+
+  @Test
+  public void lookup_withinBudget() {
+    for (ByteBuffer packFile : packFiles) {
+      final List<String> parentLocales = parentLocales(packFile);
+      final MMappedStringPack pack = new MMappedStringPack(parentLocales, packFile.duplicate());
+      final int[] ids = new int[pack.getStringAndPluralIdLimit()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = i;
+      }
+      // In random order, as an app would look them up, rather than in the order of the pack.
+      final Random random = new Random(42);
+      for (int i = ids.length - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+      }
+
+      int missing = 0;
+      final long start = System.nanoTime();
+      for (int id : ids) {
+        if (pack.loadString(id) == null && pack.loadPlural(id) == null) {
+          missing++;
+        }
+      }
+      final long nanosPerLookup = (System.nanoTime() - start) / ids.length;
+      pack.close();
+
+      assertWithMessage("Ids missing from " + parentLocales).that(missing).isEqualTo(0);
+      assertWithMessage("Nanoseconds per lookup in " + parentLocales)
+          .that(nanosPerLookup)
+          .isAtMost(LOOKUP_BUDGET_NANOS);
+    }
+  }
+}
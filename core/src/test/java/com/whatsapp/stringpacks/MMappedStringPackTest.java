@@ -0,0 +1,613 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MMappedStringPackTest {
+
+  private ParsedStringPack parsedStringPack;
+
+  @Before
+  public void setUp() {
+    parsedStringPack = loadPack("strings_zh.pack", Collections.singletonList("zh"));
+  }
+
+  private ParsedStringPack loadPack(String fileName, List<String> parentLocales) {
+    return loadPack(fileName, parentLocales, TextStyler.PLAIN);
+  }
+
+  private ParsedStringPack loadPack(
+      String fileName, List<String> parentLocales, TextStyler textStyler) {
+    try {
+      InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName);
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int len;
+      while ((len = inputStream.read(buffer)) > -1) {
+        baos.write(buffer, 0, len);
+      }
+      baos.flush();
+
+      byte[] bytes = baos.toByteArray();
+      RandomAccessFile randomAccessFile =
+          new RandomAccessFile(getClass().getClassLoader().getResource(fileName).getPath(), "r");
+      FileChannel fileChannel = randomAccessFile.getChannel();
+      MappedByteBuffer mappedByteBuffer =
+          fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, bytes.length);
+
+      return new ParsedStringPack(parentLocales, mappedByteBuffer, textStyler);
+    } catch (IOException e) {
+      assertWithMessage("Test setup failure" + e).fail();
+      return null;
+    }
+  }
+
+  @Test
+  public void getString() {
+    String stringMMapped = parsedStringPack.getString(StringPacksTestData.STRING_ID);
+    assertThat(stringMMapped).isEqualTo("你好，世界");
+  }
+
+  @Test
+  public void getString_MultipleTimes() {
+    String firstMMapped = parsedStringPack.getString(StringPacksTestData.STRING_ID);
+    assertThat(firstMMapped).isEqualTo("你好，世界");
+
+    String secondMMapped = parsedStringPack.getString(StringPacksTestData.STRING_ID);
+    assertThat(secondMMapped).isEqualTo("你好，世界");
+  }
+
+  @Test
+  public void getString_WithNonexistentId() {
+    String nonexistentMMapped =
+        parsedStringPack.getString(StringPacksTestData.EXPECTED_STRINGS.length + 1);
+    assertThat(nonexistentMMapped).isNull();
+  }
+
+  @Test
+  public void getPlural_WithNonexistentId() {
+    String nonexistentMMapped =
+        parsedStringPack.getQuantityString(
+            StringPacksTestData.PLURALS_ID + 1, 2, StringPacksTestData.TEST_PLURAL_RULES);
+    assertThat(nonexistentMMapped).isNull();
+  }
+
+  @Test
+  public void getPlurals_WithTestPluralRules() {
+    String[] expectedQuantityStrings = {"零个", "一个", "两个", "少许", "多数", "其他"};
+    for (int i = 0; i < expectedQuantityStrings.length; i++) {
+      String string =
+          parsedStringPack.getQuantityString(
+              StringPacksTestData.PLURALS_ID, (long) i, StringPacksTestData.TEST_PLURAL_RULES);
+      assertThat(string).isEqualTo(expectedQuantityStrings[i]);
+    }
+  }
+
+  @Test
+  public void getStrings() {
+    int[] ids = {
+      StringPacksTestData.STRING_ID, 3, -1, StringPacksTestData.EXPECTED_STRINGS.length, 1
+    };
+    String[] out = new String[ids.length];
+
+    parsedStringPack.getStrings(ids, out);
+
+    assertThat(out)
+        .asList()
+        .containsExactly(
+            StringPacksTestData.EXPECTED_STRINGS[StringPacksTestData.STRING_ID],
+            StringPacksTestData.EXPECTED_STRINGS[3],
+            null,
+            null,
+            StringPacksTestData.EXPECTED_STRINGS[1])
+        .inOrder();
+  }
+
+  @Test
+  public void getText_withoutStyler_returnsPlainText() {
+    ParsedStringPack styledPack = loadPack("strings_styled.pack", Arrays.asList("en", "en-GB"));
+
+    CharSequence text = styledPack.getText(0);
+    assertThat(text).isEqualTo("Tap here to continue");
+    assertThat(styledPack.getQuantityText(2, 1, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("1 item");
+  }
+
+  @Test
+  public void getText_passesSpansToStyler() {
+    List<String> styled = new ArrayList<>();
+    TextStyler styler =
+        (text, spanNames, spanStarts, spanEnds) -> {
+          for (int i = 0; i < spanNames.length; i++) {
+            styled.add(spanNames[i] + " " + spanStarts[i] + ".." + spanEnds[i]);
+          }
+          return "styled " + text;
+        };
+    ParsedStringPack styledPack =
+        loadPack("strings_styled.pack", Arrays.asList("en", "en-GB"), styler);
+
+    CharSequence text = styledPack.getText(0);
+    assertThat(text).isEqualTo("styled Tap here to continue");
+    assertThat(styled).containsExactly("b 4..8");
+    // Styled texts are cached.
+    assertThat(styledPack.getText(0)).isSameInstanceAs(text);
+    // The plain string is still available without the spans.
+    assertThat(styledPack.getString(0)).isEqualTo("Tap here to continue");
+    // "en-GB" overrides the italic "color" with a plain "colour".
+    assertThat(styledPack.getText(1)).isEqualTo("colour");
+  }
+
+  @Test
+  public void getStringArray() {
+    ParsedStringPack arraysPack = loadPack("strings_arrays.pack", Arrays.asList("en", "en-GB"));
+
+    String[] colors = arraysPack.getStringArray(0);
+    assertThat(colors).asList().containsExactly("Red", "Green", "Grey").inOrder();
+    // Arrays are decoded once and cached.
+    assertThat(arraysPack.getStringArray(0)).isSameInstanceAs(colors);
+    // Strings and arrays share the id space.
+    assertThat(arraysPack.getStringArray(1)).isNull();
+    assertThat(arraysPack.getString(0)).isNull();
+    assertThat(arraysPack.getString(1)).isEqualTo("Pick a colour");
+
+    ParsedStringPack englishPack = loadPack("strings_arrays.pack", Arrays.asList("en"));
+    assertThat(englishPack.getStringArray(0)).asList().containsExactly("Red", "Green", "Gray");
+  }
+
+  @Test
+  public void wideFormat() {
+    List<String> styled = new ArrayList<>();
+    TextStyler styler =
+        (text, spanNames, spanStarts, spanEnds) -> {
+          for (int i = 0; i < spanNames.length; i++) {
+            styled.add(spanNames[i] + " " + spanStarts[i] + ".." + spanEnds[i]);
+          }
+          return text;
+        };
+    ParsedStringPack widePack = loadPack("strings_wide.pack", Arrays.asList("en", "en-GB"), styler);
+    String longText = String.join(" ", Collections.nCopies(12, "Lorem ipsum dolor sit amet"));
+
+    // "en-GB" overrides string 1, and the rest comes from "en".
+    assertThat(widePack.getString(1)).isEqualTo("Colour");
+    // Ids above 32,767 and lengths that take more than one byte.
+    assertThat(widePack.getString(40000)).isEqualTo(longText + " then bold");
+    assertThat(widePack.getQuantityString(0, 1, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("1 item");
+    assertThat(widePack.getQuantityString(0, 5, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("%d items");
+    assertThat(widePack.getStringArray(40001)).asList().containsExactly("Red", "Green").inOrder();
+    widePack.getText(40000);
+    assertThat(styled).containsExactly("b 329..333");
+  }
+
+  @Test
+  public void compactIndex() {
+    List<String> styled = new ArrayList<>();
+    TextStyler styler =
+        (text, spanNames, spanStarts, spanEnds) -> {
+          for (int i = 0; i < spanNames.length; i++) {
+            styled.add(spanNames[i] + " " + spanStarts[i] + ".." + spanEnds[i]);
+          }
+          return text;
+        };
+    ParsedStringPack compactPack =
+        loadPack("strings_compact.pack", Arrays.asList("en", "en-GB"), styler);
+
+    // "en-GB" overrides strings 1 and 40, and its string 1 has no spans.
+    assertThat(compactPack.getText(1)).isEqualTo("Colour");
+    assertThat(styled).isEmpty();
+    assertThat(compactPack.getString(40)).isEqualTo("String forty");
+    // The strings span three blocks, and the odd ids between them aren't in the pack.
+    for (int id = 2; id < 80; id += 2) {
+      if (id != 40) {
+        assertThat(compactPack.getString(id)).isEqualTo("String " + id);
+      }
+      assertThat(compactPack.getString(id + 1)).isNull();
+    }
+    String[] out = new String[3];
+    compactPack.getStrings(new int[] {78, 3, 2}, out);
+    assertThat(out).asList().containsExactly("String 78", null, "String 2").inOrder();
+    assertThat(compactPack.getQuantityString(0, 1, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("1 item");
+    assertThat(compactPack.getQuantityString(0, 5, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("%d items");
+    assertThat(compactPack.getStringArray(80)).asList().containsExactly("Red", "Green").inOrder();
+  }
+
+  @Test
+  public void compactIndex_stylesLessSpecificLocale() {
+    List<String> styled = new ArrayList<>();
+    TextStyler styler =
+        (text, spanNames, spanStarts, spanEnds) -> {
+          for (int i = 0; i < spanNames.length; i++) {
+            styled.add(spanNames[i] + " " + spanStarts[i] + ".." + spanEnds[i]);
+          }
+          return text;
+        };
+    ParsedStringPack compactPack =
+        loadPack("strings_compact.pack", Collections.singletonList("en"), styler);
+
+    assertThat(compactPack.getText(1)).isEqualTo("Tap here");
+    assertThat(styled).containsExactly("b 4..8");
+  }
+
+  @Test
+  public void perLocaleEncoding() {
+    List<String> styled = new ArrayList<>();
+    TextStyler styler =
+        (text, spanNames, spanStarts, spanEnds) -> {
+          for (int i = 0; i < spanNames.length; i++) {
+            styled.add(spanNames[i] + " " + spanStarts[i] + ".." + spanEnds[i]);
+          }
+          return text;
+        };
+    // "zh" is in UTF-16BE and "zh-Latn" in UTF-8.
+    ParsedStringPack latinPack =
+        loadPack("strings_per_locale.pack", Arrays.asList("zh", "zh-Latn"), styler);
+
+    assertThat(latinPack.getString(2)).isEqualTo("Ni hao, shijie");
+    assertThat(latinPack.getQuantityString(0, 1, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("1 ge xiangmu");
+    assertThat(latinPack.getText(1)).isEqualTo("Dianji zheli");
+    assertThat(styled).containsExactly("b 7..12");
+    // "zh-Latn" doesn't override the array, which is read from "zh" in the same pack.
+    assertThat(latinPack.getStringArray(3)).asList().containsExactly("红色", "绿色").inOrder();
+
+    styled.clear();
+    ParsedStringPack hanPack =
+        loadPack("strings_per_locale.pack", Collections.singletonList("zh"), styler);
+
+    assertThat(hanPack.getString(2)).isEqualTo("你好，世界");
+    assertThat(hanPack.getQuantityString(0, 5, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("%d 个项目");
+    assertThat(hanPack.getText(1)).isEqualTo("点击这里");
+    assertThat(styled).containsExactly("b 2..4");
+  }
+
+  @Test
+  public void metrics_reportCacheHitsAndMappedLoads() {
+    final CountingMetrics metrics = new CountingMetrics();
+    SpMetrics.setListener(metrics);
+    try {
+      parsedStringPack.getString(StringPacksTestData.STRING_ID);
+      parsedStringPack.getString(StringPacksTestData.STRING_ID);
+      parsedStringPack.getQuantityString(0, 1, StringPacksTestData.TEST_PLURAL_RULES);
+      parsedStringPack.getQuantityString(0, 2, StringPacksTestData.TEST_PLURAL_RULES);
+      parsedStringPack.getQuantityString(0, 3, StringPacksTestData.TEST_PLURAL_RULES);
+    } finally {
+      SpMetrics.setListener(null);
+    }
+
+    assertThat(metrics.mappedLoads[StringPacksMetrics.TYPE_STRING]).isEqualTo(1);
+    assertThat(metrics.cacheHits[StringPacksMetrics.TYPE_STRING]).isEqualTo(1);
+    assertThat(metrics.mappedLoads[StringPacksMetrics.TYPE_PLURAL]).isEqualTo(1);
+    assertThat(metrics.cacheHits[StringPacksMetrics.TYPE_PLURAL]).isEqualTo(2);
+    assertThat(metrics.bytesDecoded).isGreaterThan(0L);
+  }
+
+  @Test
+  public void tracer_tracesConstructionAndSampledLoads() {
+    final List<String> sections = new ArrayList<>();
+    SpTrace.setTracer(
+        new Tracer() {
+          @Override
+          public void beginSection(String name) {
+            sections.add(name);
+          }
+
+          @Override
+          public void endSection() {
+            sections.add("end");
+          }
+        });
+    try {
+      ParsedStringPack tracedPack = loadPack("strings_zh.pack", Collections.singletonList("zh"));
+      // Only the first of every LOAD_SAMPLE_RATE loads is traced.
+      for (int id = 1; id <= 3; id++) {
+        tracedPack.getString(id);
+      }
+    } finally {
+      SpTrace.setTracer(null);
+    }
+
+    assertThat(sections)
+        .containsExactly(
+            "StringPacks.MMappedStringPack",
+            "StringPacks.mapTranslations",
+            "end",
+            "end",
+            "StringPacks.loadString",
+            "end")
+        .inOrder();
+  }
+
+  @Test
+  public void tracer_endsSectionsOfMalformedPack() throws IOException {
+    final ByteBuffer packFile = readPack("strings_zh.pack");
+    // Points the translations of the first locale past the end of the file.
+    packFile.putInt(StringPackData.HEADER_SIZE + StringPackData.LOCALE_CODE_SIZE, 0x7FFFFF00);
+    final List<String> sections = new ArrayList<>();
+    SpTrace.setTracer(
+        new Tracer() {
+          @Override
+          public void beginSection(String name) {
+            sections.add(name);
+          }
+
+          @Override
+          public void endSection() {
+            sections.add("end");
+          }
+        });
+    try {
+      new ParsedStringPack(Collections.singletonList("zh"), packFile);
+      assertWithMessage("Expected the malformed pack to be rejected").fail();
+    } catch (IndexOutOfBoundsException expected) {
+      // Expected
+    } finally {
+      SpTrace.setTracer(null);
+    }
+
+    assertThat(sections)
+        .containsExactly(
+            "StringPacks.MMappedStringPack", "StringPacks.mapTranslations", "end", "end")
+        .inOrder();
+  }
+
+  private ByteBuffer readPack(String fileName) throws IOException {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName)) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int len;
+      while ((len = inputStream.read(buffer)) > -1) {
+        baos.write(buffer, 0, len);
+      }
+      return ByteBuffer.wrap(baos.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  @Test
+  public void getMemorySnapshot_countsCachedEntries() {
+    assertThat(parsedStringPack.getMemorySnapshot().cachedEntries).isEqualTo(0);
+
+    parsedStringPack.getString(StringPacksTestData.STRING_ID);
+    StringPacksMetrics.MemorySnapshot snapshot = parsedStringPack.getMemorySnapshot();
+    assertThat(snapshot.cachedEntries).isEqualTo(1);
+    // "你好，世界" is 5 chars.
+    assertThat(snapshot.cachedBytes).isEqualTo(10L);
+    assertThat(snapshot.mappedBytes).isGreaterThan(0L);
+
+    parsedStringPack.close();
+    snapshot = parsedStringPack.getMemorySnapshot();
+    assertThat(snapshot.cachedEntries).isEqualTo(0);
+    assertThat(snapshot.mappedBytes).isEqualTo(0L);
+  }
+
+  @Test
+  public void getString_sparseIdsAboveDenseLimit() {
+    ParsedStringPack sparsePack =
+        loadPack("strings_sparse.pack", Collections.singletonList("en"));
+
+    assertThat(sparsePack.getString(1)).isEqualTo("First");
+    assertThat(sparsePack.getString(StringPackData.MAX_ID)).isEqualTo("Last");
+    assertThat(sparsePack.getString(StringPackData.MAX_ID)).isEqualTo("Last");
+    assertThat(sparsePack.getString(ParsedStringPack.DENSE_ID_LIMIT)).isNull();
+    assertThat(sparsePack.getQuantityString(0, 1, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("1 item");
+    // "First" and "Last" are 9 chars, and the plural 14.
+    StringPacksMetrics.MemorySnapshot snapshot = sparsePack.getMemorySnapshot();
+    assertThat(snapshot.cachedEntries).isEqualTo(3);
+    assertThat(snapshot.cachedBytes).isEqualTo(46L);
+
+    sparsePack.close();
+    assertThat(sparsePack.getMemorySnapshot().cachedEntries).isEqualTo(0);
+  }
+
+  @Test
+  public void close_releasesMappingAfterReadersDrain() {
+    final int liveMappings = MMappedStringPack.getLiveMappingCount();
+
+    assertThat(parsedStringPack.tryAcquire()).isTrue();
+    parsedStringPack.close();
+    // A reader still holds a reference, so the pack must remain readable.
+    assertThat(parsedStringPack.getString(StringPacksTestData.STRING_ID)).isEqualTo("你好，世界");
+    assertThat(MMappedStringPack.getLiveMappingCount()).isEqualTo(liveMappings);
+
+    parsedStringPack.release();
+    assertThat(MMappedStringPack.getLiveMappingCount()).isEqualTo(liveMappings - 1);
+    assertThat(parsedStringPack.getString(StringPacksTestData.STRING_ID)).isNull();
+    assertThat(parsedStringPack.tryAcquire()).isFalse();
+  }
+
+  @Test
+  public void constructor_malformedPackIsNotCountedAsLiveMapping() {
+    final int liveMappings = MMappedStringPack.getLiveMappingCount();
+
+    try {
+      new MMappedStringPack(Collections.singletonList("zh"), ByteBuffer.wrap(new byte[4]));
+      assertWithMessage("Expected the truncated pack to be rejected").fail();
+    } catch (IndexOutOfBoundsException expected) {
+      // Expected
+    }
+    assertThat(MMappedStringPack.getLiveMappingCount()).isEqualTo(liveMappings);
+  }
+
+  @Test
+  public void getString_onDemandLoadingSameString_calledFromMultipleThreads()
+      throws InterruptedException {
+    int numberOfThreads = 100;
+    String expected = "你好，世界";
+    ExecutorService service = Executors.newFixedThreadPool(numberOfThreads);
+    CountDownLatch latch = new CountDownLatch(numberOfThreads);
+
+    Callable<String> getStringTaskMMap =
+        () -> {
+          String string = parsedStringPack.getString(StringPacksTestData.STRING_ID);
+          latch.countDown();
+          return string;
+        };
+    List<Callable<String>> tasksWithMMap = new ArrayList<>();
+    for (int i = 0; i < numberOfThreads; i++) {
+      tasksWithMMap.add(getStringTaskMMap);
+    }
+    List<Future<String>> resultsWithMMap = service.invokeAll(tasksWithMMap, 2, TimeUnit.SECONDS);
+    latch.await();
+    // To allow any remaining tasks to return their result since latch.countDown happened before
+    // returning the string
+    Thread.sleep(2000);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Future<String> result = resultsWithMMap.get(i);
+      assertThat(!result.isCancelled()).isTrue();
+      try {
+        assertWithMessage("Problem fetching correct string")
+            .that(result.get())
+            .isEqualTo(expected);
+      } catch (ExecutionException ee) {
+        assertWithMessage("Exception when fetching string " + ee.toString()).that(false).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void getString_onDemandLoadingMultipleStrings_calledFromMultipleThreads()
+      throws InterruptedException {
+    int numberOfThreads = 100;
+    int numStringToCall = StringPacksTestData.EXPECTED_STRINGS.length;
+    ExecutorService service = Executors.newFixedThreadPool(numberOfThreads);
+    CountDownLatch latch = new CountDownLatch(numberOfThreads);
+    Random random = new Random();
+
+    List<Callable<List<String>>> tasksWithMMap = new ArrayList<>();
+    for (int i = 0; i < numberOfThreads; i++) {
+      final int nextRandomNumber = random.nextInt(numStringToCall - 1) + 1;
+      // Add tasks to be called
+      tasksWithMMap.add(
+          () -> {
+            List<String> outcome = new ArrayList<>();
+            outcome.add(StringPacksTestData.EXPECTED_STRINGS[nextRandomNumber]);
+            outcome.add(parsedStringPack.getString(nextRandomNumber));
+            latch.countDown();
+            return outcome;
+          });
+    }
+    List<Future<List<String>>> resultsWithMMap =
+        service.invokeAll(tasksWithMMap, 5, TimeUnit.SECONDS);
+    latch.await();
+    // To allow any remaining tasks to return their result since latch.countDown happened before
+    // returning the string
+    Thread.sleep(2000);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Future<List<String>> result = resultsWithMMap.get(i);
+      assertThat(!result.isCancelled()).isTrue();
+      try {
+        List<String> output = result.get();
+        assertWithMessage("Problem fetching correct string")
+            .that(output.get(1))
+            .isEqualTo(output.get(0));
+      } catch (ExecutionException ee) {
+        assertWithMessage("Exception when fetching string " + ee.toString()).that(false).isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void getQuantityString_onDemandLoading_calledFromMultipleThreads()
+      throws InterruptedException {
+    int numberOfThreads = 100;
+    String[] expected = {"零个", "一个", "两个", "少许", "多数", "其他"};
+    int numQuantityStrings = expected.length;
+    ExecutorService service = Executors.newFixedThreadPool(numberOfThreads);
+    CountDownLatch latch = new CountDownLatch(numberOfThreads);
+
+    Callable<String[]> getQuantityStringTaskMMap =
+        () -> {
+          String[] result = new String[numQuantityStrings];
+          for (int i = 0; i < numQuantityStrings; i++) {
+            result[i] =
+                parsedStringPack.getQuantityString(
+                    StringPacksTestData.PLURALS_ID,
+                    (long) i,
+                    StringPacksTestData.TEST_PLURAL_RULES);
+          }
+          latch.countDown();
+          return result;
+        };
+    List<Callable<String[]>> tasksWithMMap = new ArrayList<>();
+    for (int i = 0; i < numberOfThreads; i++) {
+      tasksWithMMap.add(getQuantityStringTaskMMap);
+    }
+    List<Future<String[]>> resultsWithMMap = service.invokeAll(tasksWithMMap, 2, TimeUnit.SECONDS);
+    latch.await();
+    // To allow any remaining tasks to return their result since latch.countDown happened before
+    // returning the string
+    Thread.sleep(2000);
+    for (int i = 0; i < numberOfThreads; i++) {
+      Future<String[]> result = resultsWithMMap.get(i);
+      assertThat(!result.isCancelled()).isTrue();
+      try {
+        String[] actual = result.get();
+        for (int j = 0; j < numQuantityStrings; j++) {
+          assertWithMessage("Correct plural not fetched").that(actual[j]).isEqualTo(expected[j]);
+        }
+      } catch (ExecutionException ee) {
+        assertWithMessage("Exception when fetching plurals " + ee.toString()).that(false).isTrue();
+      }
+    }
+  }
+
+  private static class CountingMetrics implements StringPacksMetrics {
+    final int[] cacheHits = new int[4];
+    final int[] mappedLoads = new int[4];
+    long bytesDecoded;
+
+    @Override
+    public void onCacheHit(int type) {
+      cacheHits[type]++;
+    }
+
+    @Override
+    public void onMappedLoad(int type, int bytesDecoded) {
+      mappedLoads[type]++;
+      this.bytesDecoded += bytesDecoded;
+    }
+
+    @Override
+    public void onFallback(int type) {}
+
+    @Override
+    public void onSetUpPhase(int phase, long durationNanos) {}
+  }
+}
@@ -0,0 +1,124 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MultiLocaleStringPacksTest {
+
+  private MultiLocaleStringPacks packs;
+
+  @Before
+  public void setUp() throws IOException {
+    packs = map("strings_zh.pack", "strings_zh-rTW.pack", "strings_ha.pack");
+  }
+
+  @After
+  public void tearDown() {
+    packs.close();
+  }
+
+  private MultiLocaleStringPacks map(String... fileNames) throws IOException {
+    List<File> files = new ArrayList<>();
+    for (String fileName : fileNames) {
+      files.add(new File(getClass().getClassLoader().getResource(fileName).getPath()));
+    }
+    return MultiLocaleStringPacks.map(files);
+  }
+
+  @Test
+  public void getLocales() {
+    assertThat(packs.getLocales()).containsExactly("zh", "zh-TW", "ha", "ha-NG");
+  }
+
+  @Test
+  public void getString() {
+    assertThat(packs.getString("zh", 1)).isEqualTo(StringPacksTestData.EXPECTED_STRINGS[1]);
+    assertThat(packs.getString("zh-TW", StringPacksTestData.STRING_ID)).isEqualTo("你好，世界");
+    assertThat(packs.getString("ha-NG", StringPacksTestData.STRING_ID))
+        .isEqualTo("Sannu Duniya");
+    assertThat(packs.getString("fr", StringPacksTestData.STRING_ID)).isNull();
+  }
+
+  @Test
+  public void getString_fallsBackToParentLocales() {
+    // "ha-NG" falls back to "ha", which is in the same pack file.
+    assertThat(packs.getString("ha-NG", StringPacksTestData.FALLBACK_STRING_ID))
+        .isEqualTo("Barka dai arewacin amurka");
+    // "ha" doesn't have the strings of "ha-NG".
+    assertThat(packs.getString("ha", StringPacksTestData.STRING_ID)).isNull();
+    // A locale that isn't packed is served by its language.
+    assertThat(packs.getString("ha-NE", StringPacksTestData.FALLBACK_STRING_ID))
+        .isEqualTo("Barka dai arewacin amurka");
+    assertThat(packs.getString("zh-HK", 1)).isEqualTo(StringPacksTestData.EXPECTED_STRINGS[1]);
+  }
+
+  @Test
+  public void getQuantityString() {
+    assertThat(packs.getQuantityString("zh", StringPacksTestData.PLURALS_ID, 1))
+        .isEqualTo("其他");
+  }
+
+  @Test
+  public void resolve_formatsArguments() throws IOException {
+    MultiLocaleStringPacks styledPacks = map("strings_styled.pack");
+
+    assertThat(styledPacks.resolve(new MultiLocaleStringPacks.Request("en-GB", 2, 1000, 1000)))
+        .isEqualTo("1000 items");
+    assertThat(
+            styledPacks.resolve(
+                new MultiLocaleStringPacks.Request(
+                    "en", 1, MultiLocaleStringPacks.NO_QUANTITY)))
+        .isEqualTo("color");
+    styledPacks.close();
+  }
+
+  @Test
+  public void resolveAll_inParallel_matchesSequential() throws IOException, InterruptedException {
+    String[] locales = {"zh", "zh-TW", "ha", "ha-NG", "ha-NE", "fr"};
+    List<MultiLocaleStringPacks.Request> requests = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      String locale = locales[i % locales.length];
+      requests.add(
+          i % 5 == 0
+              ? new MultiLocaleStringPacks.Request(locale, StringPacksTestData.PLURALS_ID, i)
+              : new MultiLocaleStringPacks.Request(
+                  locale, i % 16, MultiLocaleStringPacks.NO_QUANTITY));
+    }
+    // Resolve in parallel first, so that threads race to load the same strings.
+    String[] out = new String[requests.size()];
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      packs.resolveAll(requests, out, executor, 4);
+    } finally {
+      executor.shutdown();
+    }
+
+    String[] expected = new String[requests.size()];
+    MultiLocaleStringPacks sequentialPacks =
+        map("strings_zh.pack", "strings_zh-rTW.pack", "strings_ha.pack");
+    sequentialPacks.resolveAll(requests, expected);
+    sequentialPacks.close();
+
+    assertThat(out).isEqualTo(expected);
+    assertThat(Arrays.asList(out)).contains("Sannu Duniya");
+  }
+}
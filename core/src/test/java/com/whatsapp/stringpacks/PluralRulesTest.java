@@ -0,0 +1,154 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PluralRulesTest {
+
+  private static final String[] LOCALES = {
+    "ar", "be", "br", "cs", "cy", "en", "fr", "ga", "he", "is", "lt", "lv", "pl", "pt", "ru", "sl"
+  };
+
+  @Test
+  public void quantityForNumber_long_matchesString() {
+    for (String language : LOCALES) {
+      final PluralRules rules = PluralRules.ruleForLocale(new Locale(language));
+      for (long n = 0; n < 1000; n++) {
+        assertWithMessage(language + " " + n)
+            .that(rules.quantityForNumber(n))
+            .isEqualTo(rules.quantityForNumber(Long.toString(n)));
+      }
+    }
+  }
+
+  @Test
+  public void quantityForNumber_double_matchesString() {
+    for (String language : LOCALES) {
+      final PluralRules rules = PluralRules.ruleForLocale(new Locale(language));
+      for (int visibleFractionDigits = 0; visibleFractionDigits <= 2; visibleFractionDigits++) {
+        for (int k = 0; k < 500; k++) {
+          final double n = k / Math.pow(10, visibleFractionDigits);
+          final String formatted =
+              String.format(Locale.US, "%." + visibleFractionDigits + "f", n);
+          assertWithMessage(language + " " + formatted)
+              .that(rules.quantityForNumber(n, visibleFractionDigits))
+              .isEqualTo(rules.quantityForNumber(formatted));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void quantityForNumber_boxedIntegerAndDouble() {
+    final PluralRules rules = PluralRules.ruleForLocale(new Locale("ru"));
+    assertThat(rules.quantityForNumber((Object) 1)).isEqualTo(PluralRules.QUANTITY_ONE);
+    assertThat(rules.quantityForNumber((Object) 3)).isEqualTo(PluralRules.QUANTITY_FEW);
+    assertThat(rules.quantityForNumber((Object) 1.5)).isEqualTo(PluralRules.QUANTITY_OTHER);
+  }
+
+  @Test
+  public void quantityForNumber_roundsToVisibleDigits() {
+    final PluralRules rules = PluralRules.ruleForLocale(new Locale("en"));
+    // 0.999 displayed with no fraction digits is "1".
+    assertThat(rules.quantityForNumber(0.999, 0)).isEqualTo(PluralRules.QUANTITY_ONE);
+    assertThat(rules.quantityForNumber(1.0, 1)).isEqualTo(PluralRules.QUANTITY_OTHER);
+  }
+
+  @Test
+  public void compiledRules_matchLegacyRules() {
+    final List<String> numbers = new ArrayList<>();
+    for (long n = 0; n < 2000; n++) {
+      numbers.add(Long.toString(n));
+    }
+    for (long n = 2000; n <= 2000000; n += 1000) {
+      numbers.add(Long.toString(n));
+    }
+    for (int visibleFractionDigits = 1; visibleFractionDigits <= 3; visibleFractionDigits++) {
+      for (int k = 0; k < 3000; k++) {
+        numbers.add(
+            String.format(
+                Locale.US,
+                "%." + visibleFractionDigits + "f",
+                k / Math.pow(10, visibleFractionDigits)));
+      }
+    }
+
+    for (String language : LegacyPluralRules.languages()) {
+      final PluralRules legacy = LegacyPluralRules.ruleForLanguage(language);
+      final String[] parts = language.split("_");
+      final PluralRules compiled =
+          PluralRules.ruleForLocale(
+              parts.length > 1 ? new Locale(parts[0], parts[1]) : new Locale(language));
+      for (String number : numbers) {
+        if (isKnownLegacyDifference(language, number)) {
+          continue;
+        }
+        assertWithMessage(language + " " + number)
+            .that(compiled.quantityForNumber(number))
+            .isEqualTo(legacy.quantityForNumber(number));
+      }
+    }
+  }
+
+  @Test
+  public void compiledRules_fixLegacyBretonFew() {
+    // n % 10 = 3..4,9 and n % 100 != 10..19,70..79,90..99
+    final PluralRules rules = PluralRules.ruleForLocale(new Locale("br"));
+    assertThat(rules.quantityForNumber(3)).isEqualTo(PluralRules.QUANTITY_FEW);
+    assertThat(rules.quantityForNumber(13)).isEqualTo(PluralRules.QUANTITY_OTHER);
+    assertThat(rules.quantityForNumber(29)).isEqualTo(PluralRules.QUANTITY_FEW);
+    assertThat(rules.quantityForNumber(79)).isEqualTo(PluralRules.QUANTITY_OTHER);
+    assertThat(rules.quantityForNumber(94)).isEqualTo(PluralRules.QUANTITY_OTHER);
+    assertThat(rules.quantityForNumber(103)).isEqualTo(PluralRules.QUANTITY_FEW);
+  }
+
+  @Test
+  public void ruleForLocale_fallsBackToRoot() {
+    final PluralRules rules = PluralRules.ruleForLocale(new Locale("xx"));
+    assertThat(rules.quantityForNumber(1)).isEqualTo(PluralRules.QUANTITY_OTHER);
+    assertThat(PluralRules.ruleForLocale(new Locale("pt", "AO")))
+        .isSameInstanceAs(PluralRules.ruleForLocale(new Locale("pt", "PT")));
+  }
+
+  @Test
+  public void ruleForLocale_loadsFewerClassesThanLegacyRules() throws Exception {
+    // The hand-written rules were all created on first use, while the compiled rules only create
+    // the family of the requested locale.
+    final IsolatingClassLoader eager =
+        new IsolatingClassLoader(PluralRulesTest.class.getClassLoader());
+    assertThat(eager.invokeStatic("LegacyPluralRules", "ruleForLanguage", String.class, "fr"))
+        .isNotNull();
+    final IsolatingClassLoader lazy =
+        new IsolatingClassLoader(PluralRulesTest.class.getClassLoader());
+    assertThat(lazy.invokeStatic("PluralRules", "ruleForLocale", Locale.class, Locale.FRENCH))
+        .isNotNull();
+    assertThat(lazy.getClassesLoaded()).isLessThan(eager.getClassesLoaded());
+  }
+
+  // The legacy Breton rule expanded "n % 100 != 10..19,70..79,90..99" incorrectly, and returned
+  // "few" for numbers like 13 and 13.0.
+  private static boolean isKnownLegacyDifference(String language, String number) {
+    final double n = Double.parseDouble(number);
+    if (!"br".equals(language) || n != Math.floor(n)) {
+      return false;
+    }
+    final double lastTwoDigits = n % 100;
+    return (10 <= lastTwoDigits && lastTwoDigits <= 19)
+        || (70 <= lastTwoDigits && lastTwoDigits <= 79)
+        || (90 <= lastTwoDigits && lastTwoDigits <= 99);
+  }
+}
@@ -0,0 +1,127 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StringPackValidatorTest {
+
+  private static final String[] FIXTURES = {
+    "strings_zh.pack",
+    "strings_zh-rTW.pack",
+    "strings_ha.pack",
+    "strings_arrays.pack",
+    "strings_compact.pack",
+    "strings_per_locale.pack",
+    "strings_styled.pack",
+    "strings_wide.pack",
+    "strings_sparse.pack",
+  };
+
+  private byte[] readFixture(String fileName) throws IOException {
+    InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int len;
+    while ((len = inputStream.read(buffer)) > -1) {
+      baos.write(buffer, 0, len);
+    }
+    inputStream.close();
+    return baos.toByteArray();
+  }
+
+  @Test
+  public void acceptsWellFormedPacks() throws IOException {
+    for (String fileName : FIXTURES) {
+      assertWithMessage(fileName)
+          .that(StringPackValidator.isValid(ByteBuffer.wrap(readFixture(fileName))))
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void rejectsTruncatedPacks() throws IOException {
+    for (String fileName : FIXTURES) {
+      final byte[] bytes = readFixture(fileName);
+      for (int size : new int[] {0, StringPackData.HEADER_SIZE, bytes.length - 1}) {
+        assertWithMessage(fileName + " truncated to " + size)
+            .that(StringPackValidator.isValid(ByteBuffer.wrap(Arrays.copyOf(bytes, size))))
+            .isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void rejectsContentHashMismatch() throws IOException {
+    // The compact fixture has a content hash, so corrupting any byte after the header is caught.
+    final byte[] bytes = readFixture("strings_compact.pack");
+    bytes[bytes.length - 1] ^= 1;
+    assertThat(StringPackValidator.isValid(ByteBuffer.wrap(bytes))).isFalse();
+  }
+
+  @Test
+  public void rejectsUnrecognizedEncoding() throws IOException {
+    final byte[] bytes = readFixture("strings_zh.pack");
+    bytes[6] = (byte) ((bytes[6] & ~StringPackData.ENCODING_MASK) | StringPackData.ENCODING_MASK);
+    assertThat(StringPackValidator.isValid(ByteBuffer.wrap(bytes))).isFalse();
+  }
+
+  @Test
+  public void rejectsLocaleDataOutOfBounds() throws IOException {
+    final byte[] bytes = readFixture("strings_zh.pack");
+    // The locale data of the first locale, right after its locale code.
+    final int headerStart = StringPackData.HEADER_SIZE + StringPackData.LOCALE_CODE_SIZE;
+    Arrays.fill(bytes, headerStart, headerStart + 4, (byte) 0x7F);
+    assertThat(StringPackValidator.isValid(ByteBuffer.wrap(bytes))).isFalse();
+  }
+
+  @Test
+  public void rejectsIdsAboveMaximum() throws IOException, NoSuchAlgorithmException {
+    for (int id : new int[] {StringPackData.MAX_ID + 1, Integer.MAX_VALUE}) {
+      final ByteBuffer packFile =
+          ByteBuffer.wrap(readFixture("strings_wide.pack")).order(ByteOrder.LITTLE_ENDIAN);
+      final int startOfLocaleTable = StringPackData.MAX_HEADER_SIZE;
+      final int localeData =
+          packFile.getInt(2) + packFile.getInt(startOfLocaleTable + StringPackData.LOCALE_CODE_SIZE);
+      // The id of the first string of the first locale, after the string and plural counts.
+      packFile.putInt(localeData + 8, id);
+      // Keep the content hash matching, so that only the id is wrong.
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(packFile.array(), startOfLocaleTable, packFile.limit() - startOfLocaleTable);
+      System.arraycopy(
+          digest.digest(),
+          0,
+          packFile.array(),
+          StringPackData.HEADER_SIZE,
+          StringPackData.CONTENT_HASH_SIZE);
+
+      assertWithMessage("id " + id).that(StringPackValidator.isValid(packFile)).isFalse();
+    }
+  }
+
+  @Test
+  public void doesNotMovePosition() throws IOException {
+    final ByteBuffer packFile = ByteBuffer.wrap(readFixture("strings_styled.pack"));
+    packFile.position(3);
+    assertThat(StringPackValidator.isValid(packFile)).isTrue();
+    assertThat(packFile.position()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,66 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated on the heap per call of a lookup, so that tests can fail when a
+ * change adds allocations to a hot path.
+ *
+ * <p>This relies on the allocation counter of HotSpot JVMs. Tests are skipped on JVMs without it.
+ */
+final class AllocationMeter {
+
+  private static final int WARM_UP_CALLS = 20000;
+  private static final int MEASURED_CALLS = 20000;
+
+  private AllocationMeter() {}
+
+  /**
+   * Returns the bytes allocated per call of {@code call}, on average. It's called enough times
+   * beforehand that class loading and caches being filled are not counted.
+   */
+  static long bytesPerCall(Runnable call) {
+    final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+    final long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARM_UP_CALLS; i++) {
+      call.run();
+    }
+    final long before = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_CALLS; i++) {
+      call.run();
+    }
+    final long after = threadBean.getThreadAllocatedBytes(threadId);
+    return (after - before) / MEASURED_CALLS;
+  }
+
+  /** Returns the bytes allocated by a single call of {@code call}, such as loading a pack. */
+  static long bytesAllocatedBy(Runnable call) {
+    final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+    final long threadId = Thread.currentThread().getId();
+    final long before = threadBean.getThreadAllocatedBytes(threadId);
+    call.run();
+    return threadBean.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(
+        "Allocation counters are not supported",
+        bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+    final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    return threadBean;
+  }
+}
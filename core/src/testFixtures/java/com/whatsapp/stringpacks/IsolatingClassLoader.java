@@ -0,0 +1,79 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Defines the library classes itself, and delegates everything else to its parent, so that the
+ * library classes are loaded and initialized again as in a new process. Counts the classes it
+ * defines.
+ */
+final class IsolatingClassLoader extends ClassLoader {
+
+  private static final String PACKAGE_PREFIX = "com.whatsapp.stringpacks.";
+
+  private int classesLoaded;
+
+  IsolatingClassLoader(ClassLoader parent) {
+    super(parent);
+  }
+
+  /** Returns the number of library classes loaded so far. */
+  int getClassesLoaded() {
+    return classesLoaded;
+  }
+
+  /** Loads the given library class, initializes it and calls one of its static methods. */
+  Object invokeStatic(
+      String simpleClassName, String methodName, Class<?> parameterType, Object argument)
+      throws ReflectiveOperationException {
+    final Class<?> clazz = Class.forName(PACKAGE_PREFIX + simpleClassName, true, this);
+    final Method method = clazz.getDeclaredMethod(methodName, parameterType);
+    method.setAccessible(true);
+    return method.invoke(null, argument);
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (!name.startsWith(PACKAGE_PREFIX)) {
+      return super.loadClass(name, resolve);
+    }
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> clazz = findLoadedClass(name);
+      if (clazz == null) {
+        final byte[] bytes = readClass(name);
+        clazz = defineClass(name, bytes, 0, bytes.length);
+        classesLoaded++;
+      }
+      if (resolve) {
+        resolveClass(clazz);
+      }
+      return clazz;
+    }
+  }
+
+  private byte[] readClass(String name) throws ClassNotFoundException {
+    try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+      if (in == null) {
+        throw new ClassNotFoundException(name);
+      }
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new ClassNotFoundException(name, e);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+#!/usr/bin/env python3
+
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+"""Measures how long packs take to build, and the size of their string data.
+
+The packs are the ones of a corpus from generate_corpus.py, and each of them is compiled
+in both encodings, like `string_pack.build_with_dict` does. Run it with larger corpora
+to check that the build time grows about linearly with the number of strings.
+"""
+
+import argparse
+import time
+from typing import List, Tuple
+
+import generate_corpus
+import string_pack
+
+_ENCODINGS = ["UTF-8", "UTF-16BE"]
+
+
+def benchmark(
+    config: generate_corpus.CorpusConfig,
+) -> List[Tuple[str, str, float, int]]:
+    """Returns the language, encoding, compile time in seconds and string data size in
+    bytes of each pack of the corpus."""
+    results = []
+    for language, translation_dict in generate_corpus.generate(config).items():
+        for encoding in _ENCODINGS:
+            pack = string_pack.StringPack(
+                encoding=encoding,
+                translation=translation_dict,
+                compact_index=config.compact_index,
+            )
+            start = time.perf_counter()
+            pack.compile()
+            elapsed = time.perf_counter() - start
+            results.append((language, encoding, elapsed, pack.string_buffer_size()))
+    return results
+
+
+def main():
+    defaults = generate_corpus.CorpusConfig()
+    arg_parser = argparse.ArgumentParser(description=__doc__)
+    arg_parser.add_argument("--strings", type=int, default=defaults.string_count)
+    arg_parser.add_argument("--languages", type=int, default=3)
+    arg_parser.add_argument("--seed", type=int, default=defaults.seed)
+    arg_parser.add_argument("--compact-index", action="store_true")
+    args = arg_parser.parse_args()
+
+    results = benchmark(
+        generate_corpus.CorpusConfig(
+            string_count=args.strings,
+            language_count=args.languages,
+            seed=args.seed,
+            compact_index=args.compact_index,
+        )
+    )
+    for language, encoding, elapsed, size in results:
+        print(f"{language}\t{encoding}\t{elapsed:.2f} s\t{size} bytes")
+    print(
+        f"total\t\t{sum(result[2] for result in results):.2f} s\t"
+        f"{sum(result[3] for result in results)} bytes"
+    )
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,311 @@
+#!/usr/bin/env python3
+
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+"""Compiles CLDR cardinal plural rules into the tables read by CompiledPluralRules.java.
+
+Usage:
+    ./compile_plural_rules.py --plurals path/to/cldr/common/supplemental/plurals.xml
+
+Without --plurals, the copy of plurals.xml in resources/ is compiled. The generated
+PluralRulesData.java is written next to CompiledPluralRules.java unless --output is
+given.
+
+The copy in resources/ is still CLDR revision 14397, from 2015, which the original
+hand-written rules were based on. It lacks the locales and rule changes of later
+CLDR releases, and needs to be replaced with the plurals.xml of a current one.
+
+Each rule family is compiled into a small program stored in a string constant:
+
+    family   := category_count category*
+    category := quantity branch_count branch*        (one branch per `or`)
+    branch   := length relation*                     (`and` of all relations)
+    relation := op [modulus] range_count range*
+    range    := value value                          (inclusive bounds)
+
+`op` holds the operand in its low bits, plus OP_MODULUS when a modulus follows and
+OP_NEGATE for `!=`. Values below 0x8000 take one char; larger values take two, with
+the high bit of the first set. The implicit "other" category is not stored.
+"""
+
+import argparse
+import logging
+import os
+import re
+from typing import Dict, List, Tuple
+from xml.etree import ElementTree
+
+# These must be kept in sync with PluralRules.java and CompiledPluralRules.java.
+_QUANTITIES = {"zero": 0x01, "one": 0x02, "two": 0x04, "few": 0x08, "many": 0x10}
+_OPERANDS = {"n": 0, "i": 1, "v": 2, "w": 3, "f": 4, "t": 5, "e": 6, "c": 7}
+_OP_MODULUS = 0x10
+_OP_NEGATE = 0x20
+
+_MAX_SHORT_VALUE = 0x7FFF
+_MAX_VALUE = 0x7FFFFFFF
+
+_RELATION_RE = re.compile(r"^([a-z])\s*(?:%\s*(\d+))?\s*(!=|=)\s*(.+)$")
+_RANGE_RE = re.compile(r"^(\d+)(?:\.\.(\d+))?$")
+
+_SCRIPT_DIR = os.path.dirname(os.path.abspath(__file__))
+_DEFAULT_PLURALS_FILE = os.path.join(_SCRIPT_DIR, "resources", "plurals.xml")
+_DEFAULT_OUTPUT_FILE = os.path.join(
+    _SCRIPT_DIR,
+    "..",
+    "..",
+    "core",
+    "src",
+    "main",
+    "java",
+    "com",
+    "whatsapp",
+    "stringpacks",
+    "PluralRulesData.java",
+)
+
+_JAVA_LINE_LIMIT = 100
+
+
+def read_plural_rules(plurals_file) -> Tuple[str, List[Tuple[List[str], List]]]:
+    """Returns the CLDR revision and a list of (locales, [(category, condition)])."""
+    root = ElementTree.parse(plurals_file).getroot()
+    version = root.find("version")
+    revision = ""
+    if version is not None:
+        match = re.search(r"\d+(\.\d+)*", version.get("number", ""))
+        if match:
+            revision = match.group(0)
+
+    families = []
+    for plurals in root.iter("plurals"):
+        if plurals.get("type", "cardinal") != "cardinal":
+            continue
+        for plural_rules in plurals.iter("pluralRules"):
+            locales = plural_rules.get("locales").split()
+            categories = []
+            for plural_rule in plural_rules.iter("pluralRule"):
+                category = plural_rule.get("count")
+                condition = (plural_rule.text or "").split("@")[0].strip()
+                if category == "other":
+                    continue
+                if category not in _QUANTITIES:
+                    raise ValueError(f"Unknown plural category '{category}'")
+                categories.append((category, condition))
+            families.append((locales, categories))
+    return revision, families
+
+
+def encode_value(value) -> List[int]:
+    if value < 0 or value > _MAX_VALUE:
+        raise ValueError(f"Value {value} is out of range")
+    if value <= _MAX_SHORT_VALUE:
+        return [value]
+    return [0x8000 | (value >> 16), value & 0xFFFF]
+
+
+def compile_relation(relation) -> List[int]:
+    match = _RELATION_RE.match(relation.strip())
+    if match is None:
+        raise ValueError(f"Unsupported plural relation '{relation}'")
+    operand, modulus, operator, range_list = match.groups()
+    if operand not in _OPERANDS:
+        raise ValueError(f"Unknown plural operand '{operand}'")
+
+    op = _OPERANDS[operand]
+    if operator == "!=":
+        op |= _OP_NEGATE
+    code = []
+    if modulus is not None:
+        op |= _OP_MODULUS
+        code.extend(encode_value(int(modulus)))
+
+    ranges = [item.strip() for item in range_list.split(",")]
+    code.append(len(ranges))
+    for item in ranges:
+        range_match = _RANGE_RE.match(item)
+        if range_match is None:
+            raise ValueError(f"Unsupported plural range '{item}'")
+        low = int(range_match.group(1))
+        high = int(range_match.group(2) or low)
+        code.extend(encode_value(low))
+        code.extend(encode_value(high))
+    return [op] + code
+
+
+def compile_condition(condition) -> List[int]:
+    branches = condition.split(" or ")
+    code = [len(branches)]
+    for branch in branches:
+        branch_code = []
+        for relation in branch.split(" and "):
+            branch_code.extend(compile_relation(relation))
+        code.append(len(branch_code))
+        code.extend(branch_code)
+    return code
+
+
+def compile_family(categories) -> List[int]:
+    code = [len(categories)]
+    for category, condition in categories:
+        code.append(_QUANTITIES[category])
+        code.extend(compile_condition(condition))
+    return code
+
+
+def compile_plural_rules(families) -> Tuple[Dict[str, int], List[int], List[int]]:
+    """Returns the family index for each locale, the family offsets, and the program."""
+    locale_families = {}
+    family_offsets = []
+    program = []
+    programs_seen = {}
+    for locales, categories in families:
+        family_code = tuple(compile_family(categories))
+        # Locales listed separately in CLDR may still share identical rules.
+        family = programs_seen.get(family_code)
+        if family is None:
+            family = len(family_offsets)
+            programs_seen[family_code] = family
+            family_offsets.append(len(program))
+            program.extend(family_code)
+        for locale in locales:
+            locale_families[locale] = family
+    if len(program) > 0xFFFF:
+        raise ValueError("Plural rule program is too large")
+    return locale_families, family_offsets, program
+
+
+# Java translates \\uXXXX escapes before parsing, so these need ordinary escapes.
+_JAVA_SPECIAL_ESCAPES = {0x0A: "\\n", 0x0D: "\\r", 0x22: '\\"', 0x5C: "\\\\"}
+
+
+def _wrap_java_string(name, chars) -> str:
+    body_indent = "      "
+    max_content = _JAVA_LINE_LIMIT - len(body_indent) - len(' + ";') - 2
+    lines = []
+    line = ""
+    for c in chars:
+        escape = _JAVA_SPECIAL_ESCAPES.get(c, f"\\u{c:04x}")
+        if len(line) + len(escape) > max_content:
+            lines.append('"' + line + '"')
+            line = ""
+        line += escape
+    lines.append('"' + line + '"')
+    joined = f"\n{body_indent}+ ".join(lines)
+    return f"  static final String {name} =\n{body_indent}{joined};\n"
+
+
+def _split_words(words, max_content) -> List[str]:
+    lines = []
+    line = ""
+    for word in words:
+        candidate = word if not line else line + " " + word
+        if len(candidate) > max_content and line:
+            lines.append('"' + line + '"')
+            line = " " + word
+        else:
+            line = candidate
+    if line:
+        lines.append('"' + line + '"')
+    return lines
+
+
+def _word_offsets(text, count) -> List[int]:
+    offsets = [0]
+    for index, char in enumerate(text):
+        if char == " ":
+            offsets.append(index + 1)
+    assert len(offsets) == count
+    return offsets
+
+
+def generate_java(revision, locale_families, family_offsets, program) -> str:
+    locales = sorted(locale_families)
+    body_indent = "      "
+    max_content = _JAVA_LINE_LIMIT - len(body_indent) - len(' + ";') - 2
+    locale_lines = _split_words(locales, max_content)
+
+    source_revision = f" (revision {revision})" if revision else ""
+    return (
+        "/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.\n"
+        " *\n"
+        " * This source code is licensed under the Apache 2.0 license found in\n"
+        " * the LICENSE file in the root directory of this source tree.\n"
+        " */\n"
+        "\n"
+        "// \u0040generated by library/scripts/compile_plural_rules.py from CLDR plurals.xml"
+        f"{source_revision}.\n"
+        "// CLDR data is Copyright © Unicode, Inc.\n"
+        "// For terms of use, see http://www.unicode.org/copyright.html\n"
+        "\n"
+        "package com.whatsapp.stringpacks;\n"
+        "\n"
+        "/** Compiled CLDR plural rules, interpreted by {@link CompiledPluralRules}. */"
+        "\n"
+        "final class PluralRulesData {\n"
+        "\n"
+        "  // Locales that have plural rules, sorted and separated by spaces.\n"
+        "  static final String LOCALES =\n"
+        + body_indent
+        + f"\n{body_indent}+ ".join(locale_lines)
+        + ";\n"
+        "\n"
+        "  // Where each locale in LOCALES starts, in the same order.\n"
+        + _wrap_java_string(
+            "LOCALE_OFFSETS", _word_offsets(" ".join(locales), len(locales))
+        )
+        + "\n"
+        "  // The rule family of each locale in LOCALES, in the same order.\n"
+        + _wrap_java_string(
+            "LOCALE_FAMILIES", [locale_families[locale] for locale in locales]
+        )
+        + "\n"
+        "  // Where each rule family starts in PROGRAM.\n"
+        + _wrap_java_string("FAMILY_OFFSETS", family_offsets)
+        + "\n"
+        "  // See CompiledPluralRules for the format.\n"
+        + _wrap_java_string("PROGRAM", program)
+        + "\n"
+        "  private PluralRulesData() {}\n"
+        "}\n"
+    )
+
+
+def create_arg_parser():
+    arg_parser = argparse.ArgumentParser(
+        description="Compile CLDR plural rules into PluralRulesData.java."
+    )
+    arg_parser.add_argument(
+        "--plurals",
+        help="Location of CLDR plurals.xml.",
+        default=_DEFAULT_PLURALS_FILE,
+    )
+    arg_parser.add_argument(
+        "--output",
+        help="Location of the generated Java file.",
+        default=_DEFAULT_OUTPUT_FILE,
+    )
+    return arg_parser
+
+
+def main():
+    logging.basicConfig(level=logging.INFO)
+
+    args = create_arg_parser().parse_args()
+
+    revision, families = read_plural_rules(args.plurals)
+    locale_families, family_offsets, program = compile_plural_rules(families)
+    with open(args.output, "w", encoding="utf-8") as output:
+        output.write(generate_java(revision, locale_families, family_offsets, program))
+    logging.info(
+        "Compiled %d locales into %d rule families (%d chars)",
+        len(locale_families),
+        len(family_offsets),
+        len(program),
+    )
+
+
+if __name__ == "__main__":
+    main()
@@ -16,6 +16,7 @@ from typing import Dict, List, Set, Tuple
 from xml.etree import ElementTree
 
 import string_pack_config
+from id_finder import RESOURCE_TYPES
 from move_strings_for_packing import get_resource_content_with_resources_header
 
 
@@ -36,8 +37,64 @@ def separate_namespace(attribute_name):
 
 STRING_USAGE_RE = re.compile("@string/([A-Za-z0-9_]+)")
 
+# Arrays referenced from XML are read by the framework through TypedArray, which never
+# goes through StringPackResources, whichever widget uses them.
+ARRAY_USAGE_RE = re.compile("@array/([A-Za-z0-9_]+)")
+
+CODE_STRING_USAGE_RE = re.compile(r"\bR\.(string|plurals|array)\.([A-Za-z0-9_]+)")
+
+LAYOUT_FILE_RE = re.compile(r"/res/layout[^/]*/([A-Za-z0-9_]+)\.xml$")
+
 OK_NAMESPACES = {"http://schemas.android.com/tools"}
 
+ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android"
+
+# A plain reference to a string, as opposed to one in a data binding expression.
+STRING_REFERENCE_RE = re.compile("^@string/[A-Za-z0-9_]+$")
+
+# The tags of TextView and of its subclasses in the framework, AppCompat and Material
+# components, whose android:text and android:hint StringPackInflaterFactory sets. Custom
+# TextView subclasses can still be listed in safe_widget_classes.
+TEXT_VIEW_TAGS = {
+    "TextView",
+    "Button",
+    "EditText",
+    "CheckBox",
+    "RadioButton",
+    "Switch",
+    "ToggleButton",
+    "CheckedTextView",
+    "AutoCompleteTextView",
+    "MultiAutoCompleteTextView",
+    "androidx.appcompat.widget.AppCompatTextView",
+    "androidx.appcompat.widget.AppCompatButton",
+    "androidx.appcompat.widget.AppCompatEditText",
+    "androidx.appcompat.widget.AppCompatCheckBox",
+    "androidx.appcompat.widget.AppCompatRadioButton",
+    "androidx.appcompat.widget.AppCompatToggleButton",
+    "androidx.appcompat.widget.AppCompatCheckedTextView",
+    "androidx.appcompat.widget.AppCompatAutoCompleteTextView",
+    "androidx.appcompat.widget.AppCompatMultiAutoCompleteTextView",
+    "androidx.appcompat.widget.SwitchCompat",
+    "com.google.android.material.button.MaterialButton",
+    "com.google.android.material.textview.MaterialTextView",
+    "com.google.android.material.textfield.TextInputEditText",
+    "com.google.android.material.chip.Chip",
+}
+
+# Layout tags that aren't views, so StringPackInflaterFactory never sees them.
+NON_VIEW_TAGS = {
+    "include",
+    "merge",
+    "fragment",
+    "requestFocus",
+    "tag",
+    "layout",
+    "data",
+    "variable",
+    "import",
+}
+
 # Previously, we would just generate a list of string ids and their mapping, one pair per line
 # broken with newlines.
 # Unfortunately, this breaks if there are around 8k strings or so as it results in the method's
@@ -48,7 +105,9 @@ OK_NAMESPACES = {"http://schemas.android.com/tools"}
 # (getStringPacksMapping()) to use the generated code.
 MAX_IDS_PER_METHOD = 8000
 
-DONOTPACK_RE = re.compile('<(?:string|plurals) name="([^"]+)".*donotpack="true"')
+DONOTPACK_RE = re.compile(
+    '<(?:string|plurals|string-array) name="([^"]+)".*donotpack="true"'
+)
 
 
 def find_donotpack_strings(filename):
@@ -59,7 +118,20 @@ def find_donotpack_strings(filename):
     return result
 
 
-def find_strings_used_in_xml(filename, safe_widgets):
+def is_set_by_inflater_factory(tag, namespace, attrib, value):
+    """Returns whether StringPackInflaterFactory sets the given attribute of a tag."""
+    if namespace != ANDROID_NAMESPACE or not STRING_REFERENCE_RE.match(value):
+        return False
+    if attrib == "contentDescription":
+        return tag not in NON_VIEW_TAGS
+    return attrib in ("text", "hint") and tag in TEXT_VIEW_TAGS
+
+
+def find_strings_used_in_xml(filename, safe_widgets, inflater_factory=False):
+    """Returns the strings and arrays used in the given XML file that can't be packed.
+
+    If inflater_factory is set, the file is a layout inflated with
+    StringPackInflaterFactory, so the strings that it sets on views are safe."""
     result = set()
     # Ignore the file if it throws an error while parsing
     # Started seeing this in some of the xml files, that were not layout files. We do not expect
@@ -67,6 +139,8 @@ def find_strings_used_in_xml(filename, safe_widgets):
     try:
         tree = ElementTree.parse(filename)
         for node in tree.findall(".//"):
+            for value in [node.text or ""] + list(node.attrib.values()):
+                result.update(ARRAY_USAGE_RE.findall(value))
             if node.tag in safe_widgets:
                 continue  # Certain widgets can handle @string just fine
             if node.text is not None:
@@ -78,6 +152,10 @@ def find_strings_used_in_xml(filename, safe_widgets):
                     namespace, attrib = separate_namespace(key)
                     if namespace in OK_NAMESPACES:
                         continue  # Certain namespace are safe to use @string in
+                    if inflater_factory and is_set_by_inflater_factory(
+                        node.tag, namespace, attrib, value
+                    ):
+                        continue
                     result.add(string_usage_match.group(1))
     except ElementTree.ParseError:
         logging.warning(
@@ -90,7 +168,25 @@ def find_strings_used_in_xml(filename, safe_widgets):
         return result
 
 
-NAME_CATCHER_RE = re.compile('<(string|plurals) name="([^"]+)"')
+def find_unpackable_arrays(filename):
+    """Returns the string arrays whose items can't be packed as plain text.
+
+    Packed array items are plain text, so arrays with styled items, or items that
+    reference other resources, stay in the resources."""
+    result = set()
+    try:
+        root = ElementTree.parse(filename).getroot()
+    except ElementTree.ParseError:
+        return result
+    for array in root.iter("string-array"):
+        for item in array:
+            if len(item) > 0 or (item.text or "").strip().startswith(("@", "?")):
+                result.add(array.attrib["name"])
+                break
+    return result
+
+
+NAME_CATCHER_RE = re.compile('<(string|plurals|string-array) name="([^"]+)"')
 
 
 def output_string_ids_setting(sp_config, strings_to_move: Set):
@@ -105,7 +201,15 @@ def output_string_ids_setting(sp_config, strings_to_move: Set):
     if class_file_path is not None:
         output_string_ids_map(class_file_path, sorted_strings_to_move)
     else:
-        output_string_ids_config(resource_config_setting, sorted_strings_to_move)
+        # The id ranges only cover strings and plurals, so arrays are not packed then.
+        output_string_ids_config(
+            resource_config_setting,
+            [
+                string_tuple
+                for string_tuple in sorted_strings_to_move
+                if string_tuple[0] != "array"
+            ],
+        )
 
 
 def _generate_java_source_line(content: str, value: int):
@@ -323,6 +427,139 @@ def generate_kotlin_internal(string_pack_ids, method_name):
     return result
 
 
+def find_strings_used_in_layout(filename) -> Set[Tuple]:
+    """Returns all the strings a layout references at runtime, whichever widget uses them."""
+    result = set()
+    try:
+        tree = ElementTree.parse(filename)
+    except ElementTree.ParseError:
+        return result
+    for node in tree.iter():
+        if node.text is not None:
+            for string in STRING_USAGE_RE.findall(node.text):
+                result.add(("string", string))
+        for key, value in node.attrib.items():
+            namespace, attrib = separate_namespace(key)
+            if namespace in OK_NAMESPACES:
+                continue  # Not used at runtime
+            for string in STRING_USAGE_RE.findall(value):
+                result.add(("string", string))
+    return result
+
+
+def find_strings_used_in_code(filename) -> Set[Tuple]:
+    with open(filename, "rt") as source_file:
+        return set(CODE_STRING_USAGE_RE.findall(source_file.read()))
+
+
+def _to_method_name(prefix, name):
+    return prefix + "".join(part[:1].upper() + part[1:] for part in name.split("_"))
+
+
+def generate_screen_manifests(
+    xml_files, source_files, strings_to_move: Set
+) -> Dict[str, List[Tuple]]:
+    """Maps each layout and screen source file to the packed strings it uses.
+
+    Layouts are keyed `layout<Name>`, source files `screen<ClassName>`. Files with the
+    same key, such as the variants of a layout in layout-land/, share the union of
+    their strings."""
+    manifests = {}
+    for filename in xml_files:
+        match = LAYOUT_FILE_RE.search(filename)
+        if match:
+            used = find_strings_used_in_layout(filename) & strings_to_move
+            if used:
+                key = _to_method_name("layout", match.group(1))
+                manifests.setdefault(key, set()).update(used)
+    for filename in source_files:
+        class_name = path.splitext(path.basename(filename))[0]
+        used = find_strings_used_in_code(filename) & strings_to_move
+        if used:
+            key = _to_method_name("screen", class_name)
+            manifests.setdefault(key, set()).update(used)
+    return {key: sorted(used) for key, used in manifests.items()}
+
+
+def output_screen_manifests(class_file_path: str, manifests: Dict[str, List[Tuple]]):
+    if not path.exists(class_file_path):
+        print("Can't find the screen manifests class file: " + class_file_path)
+        return
+
+    with open(class_file_path, "rt") as manifests_file:
+        existing_class_file_lines = manifests_file.readlines()
+
+    region_start_index = None
+    region_end_index = None
+    for i, line in enumerate(existing_class_file_lines):
+        if "// region" in line:
+            region_start_index = i
+        elif "// endregion" in line:
+            region_end_index = i
+
+    if region_start_index is None or region_end_index is None:
+        print(
+            "Can't find the String Pack screen manifests region in %s to update content."
+            % class_file_path
+        )
+        return
+
+    is_kotlin = class_file_path.endswith(".kt")
+    generated = []
+    for method_name in sorted(manifests):
+        ids = [
+            (" " * 10 + "R.%s.%s,") % (string_type, string_name)
+            for string_type, string_name in manifests[method_name]
+        ]
+        generated += (
+            generate_kotlin_screen_manifest(ids, method_name)
+            if is_kotlin
+            else generate_java_screen_manifest(ids, method_name)
+        )
+
+    with open(class_file_path, "wt") as manifests_file:
+        manifests_file.writelines(
+            existing_class_file_lines[0 : region_start_index + 1]
+            + generated
+            + existing_class_file_lines[region_end_index:]
+        )
+    print("Updated: " + class_file_path)
+
+
+def generate_java_screen_manifest(string_pack_ids, method_name):
+    result = []
+    result += " " * 2 + "public static int[] %s() {\n" % method_name
+    result += " " * 6 + "return new int[]{\n"
+    for line in string_pack_ids:
+        result += line + "\n"
+    result += " " * 6 + "};\n"
+    result += " " * 2 + "}\n"
+    result += "\n"
+    return result
+
+
+def generate_kotlin_screen_manifest(string_pack_ids, method_name):
+    result = []
+    result += "fun %s(): IntArray {\n" % method_name
+    result += " " * 4 + "return intArrayOf(\n"
+    for line in string_pack_ids:
+        result += line + "\n"
+    result += " " * 4 + ")\n"
+    result += "}\n"
+    result += "\n"
+    return result
+
+
+def is_inflated_with_factory(sp_config, filename) -> bool:
+    """Whether the file is one of the layouts that the config lists as inflated with
+    StringPackInflaterFactory."""
+    match = LAYOUT_FILE_RE.search(filename)
+    return match is not None and any(
+        re.fullmatch(pattern, match.group(1))
+        for pattern in sp_config.layout_inflater_factory
+    )
+
+
 def generate_non_movable_set(sp_config, xml_files) -> Set:
     not_movable = set()
     for filename in xml_files:
@@ -330,11 +567,16 @@ def generate_non_movable_set(sp_config, xml_files) -> Set:
             continue
         if filename.endswith("/values/strings.xml"):
             not_movable.update(find_donotpack_strings(filename))
+            not_movable.update(find_unpackable_arrays(filename))
             continue
         if filename.endswith("/strings.xml"):
             continue
         not_movable.update(
-            find_strings_used_in_xml(filename, sp_config.safe_widget_classes)
+            find_strings_used_in_xml(
+                filename,
+                sp_config.safe_widget_classes,
+                is_inflated_with_factory(sp_config, filename),
+            )
         )
     return not_movable
 
@@ -349,17 +591,32 @@ def find_movable_strings(sp_config, print_reverse=False):
     strings_to_move = set()
     for source_file in sp_config.get_default_string_files():
         with open(source_file) as english_sources:
-            for match in NAME_CATCHER_RE.findall(english_sources.read()):
-                msg_name = match[1]
+            for tag, msg_name in NAME_CATCHER_RE.findall(english_sources.read()):
                 if msg_name in not_movable:
                     if print_reverse:
                         print(msg_name)
                     continue
-                strings_to_move.add(match)
+                strings_to_move.add((RESOURCE_TYPES[tag], msg_name))
 
     # Don't output IDs if we are interested in the unmovable strings.
     if not print_reverse:
         output_string_ids_setting(sp_config, strings_to_move)
+        if sp_config.screen_manifests_class_file_path is not None:
+            source_files = []
+            if sp_config.find_screen_source_files_command is not None:
+                source_files = subprocess.check_output(
+                    sp_config.find_screen_source_files_command,
+                    shell=True,
+                    encoding="ASCII",
+                ).split("\n")
+            output_screen_manifests(
+                sp_config.screen_manifests_class_file_path,
+                generate_screen_manifests(
+                    [f for f in xml_files if f],
+                    [f for f in source_files if f],
+                    strings_to_move,
+                ),
+            )
 
 
 def main():
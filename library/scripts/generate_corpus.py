@@ -0,0 +1,222 @@
+#!/usr/bin/env python3
+
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+"""Generates synthetic corpora of string packs, to test and measure packs at app scale.
+
+The corpus has one pack file per language, like pack_strings.py writes, with some of
+the languages also having a regional variant in the same pack file. Each pack is built
+with `string_pack.build_with_dict`, so it is laid out exactly like a real pack.
+"""
+
+import argparse
+import os
+import random
+from typing import Dict, List, Set
+
+import string_pack
+
+# Letters of each script, and the languages written in it. The languages are taken in
+# turn from each script, so that any number of languages gives an even script mix.
+_SCRIPTS = {
+    "latin": (
+        "abcdefghijklmnopqrstuvwxyzáéíóúàèçñöüßøå",
+        ["es", "fr", "de", "it", "nl", "pl", "sv", "tr", "vi", "id", "ro", "cs"],
+    ),
+    "cyrillic": (
+        "абвгдеёжзийклмнопрстуфхцчшщъыьэюя",
+        ["ru", "uk", "bg", "sr", "kk", "mk"],
+    ),
+    "arabic": ("ابتثجحخدذرزسشصضطظعغفقكلمنهوي", ["ar", "fa", "ur"]),
+    "devanagari": ("अआइईउऊएऐओऔकखगघचछजझटठडढणतथदधनपफबभमयरलवशसह", ["hi", "mr"]),
+    "han": ("的一是不了人我在有他这中大来上国个到说们为子和你地出道也时年", ["zh", "ja"]),
+    "hangul": ("가나다라마바사아자차카타파하거너더러머버서어저처", ["ko"]),
+    "thai": ("กขคงจฉชซญดตถทนบปผพฟภมยรลวศสหอฮ", ["th"]),
+}
+
+# Regions of the regional variants. "XA" and "XB" are private use regions.
+_REGIONS = ["XA", "XB"]
+
+# Placeholders that strings are formatted with, as they appear in resources.
+_PLACEHOLDERS = ["%1$s", "%1$d", "%2$s"]
+
+
+class CorpusConfig(object):
+    "The shape of a generated corpus."
+
+    def __init__(
+        self,
+        string_count: int = 20000,
+        plural_ratio: float = 0.05,
+        language_count: int = 12,
+        region_ratio: float = 0.25,
+        override_ratio: float = 0.1,
+        placeholder_ratio: float = 0.2,
+        long_string_ratio: float = 0.02,
+        seed: int = 0,
+        compact_index: bool = False,
+    ):
+        """
+        string_count: number of ids, plurals included, in each language. Above 32,767,
+            the packs are built in the wide format.
+        plural_ratio: share of the ids that are plurals
+        language_count: number of languages, and so of pack files
+        region_ratio: share of the languages that also have a regional variant
+        override_ratio: share of the ids that a regional variant overrides
+        placeholder_ratio: share of the strings that have a placeholder
+        long_string_ratio: share of the strings that are paragraphs rather than labels
+        seed: seed of the random generator, so that a corpus can be generated again
+        compact_index: whether to build the packs with compact index tables
+        """
+        assert 0 < string_count
+        max_languages = sum(len(languages) for _, languages in _SCRIPTS.values())
+        assert 0 < language_count <= max_languages
+        self.string_count = string_count
+        self.plural_ratio = plural_ratio
+        self.language_count = language_count
+        self.region_ratio = region_ratio
+        self.override_ratio = override_ratio
+        self.placeholder_ratio = placeholder_ratio
+        self.long_string_ratio = long_string_ratio
+        self.seed = seed
+        self.compact_index = compact_index
+
+
+def _languages(count: int) -> List[str]:
+    languages = []
+    index = 0
+    while len(languages) < count:
+        for _, script_languages in _SCRIPTS.values():
+            if index < len(script_languages) and len(languages) < count:
+                languages.append(script_languages[index])
+        index += 1
+    return languages
+
+
+def _script_letters(language: str) -> str:
+    for letters, languages in _SCRIPTS.values():
+        if language in languages:
+            return letters
+    raise KeyError(language)
+
+
+def _text(rng: random.Random, letters: str, config: CorpusConfig) -> str:
+    spaced = letters not in (_SCRIPTS["han"][0], _SCRIPTS["thai"][0])
+    if rng.random() < config.long_string_ratio:
+        word_count = rng.randint(40, 200)
+    else:
+        word_count = rng.randint(1, 6)
+    words = [
+        "".join(rng.choice(letters) for _ in range(rng.randint(2, 9)))
+        for _ in range(word_count)
+    ]
+    if rng.random() < config.placeholder_ratio:
+        words.insert(rng.randint(0, len(words)), rng.choice(_PLACEHOLDERS))
+    return (" " if spaced else "").join(words)
+
+
+def _plural(rng: random.Random, letters: str, config: CorpusConfig) -> Dict:
+    # Every plural has "other", plus two more forms picked at random.
+    quantities = ["other"] + rng.sample(["zero", "one", "two", "few", "many"], 2)
+    return {
+        string_pack._IDS_FOR_QUANTITY[quantity]: _text(rng, letters, config) + " %1$d"
+        for quantity in quantities
+    }
+
+
+def _entries(
+    rng: random.Random,
+    letters: str,
+    ids: List[int],
+    plural_ids: Set[int],
+    config: CorpusConfig,
+) -> Dict:
+    return {
+        id: (
+            _plural(rng, letters, config)
+            if id in plural_ids
+            else _text(rng, letters, config)
+        )
+        for id in ids
+    }
+
+
+def generate(config: CorpusConfig) -> Dict[str, string_pack.TranslationDict]:
+    "Returns the translations of each pack file of the corpus, by language."
+    rng = random.Random(config.seed)
+    ids = list(range(config.string_count))
+    plural_ids = set(rng.sample(ids, int(config.string_count * config.plural_ratio)))
+    corpus = {}
+    for index, language in enumerate(_languages(config.language_count)):
+        letters = _script_letters(language)
+        translation_dict = string_pack.TranslationDict()
+        translation_dict.add_for_locale(
+            language, _entries(rng, letters, ids, plural_ids, config)
+        )
+        # Spread the regional variants evenly, so that their number is exactly the ratio.
+        if int(index * config.region_ratio) < int((index + 1) * config.region_ratio):
+            region = rng.choice(_REGIONS)
+            overridden = sorted(
+                rng.sample(ids, max(1, int(len(ids) * config.override_ratio)))
+            )
+            translation_dict.add_for_locale(
+                language + "-" + region,
+                _entries(rng, letters, overridden, plural_ids, config),
+            )
+        corpus[language] = translation_dict
+    return corpus
+
+
+def write_corpus(output_directory: str, config: CorpusConfig) -> List[str]:
+    "Writes the corpus to strings_<language>.pack files, and returns their paths."
+    os.makedirs(output_directory, exist_ok=True)
+    paths = []
+    for language, translation_dict in generate(config).items():
+        path = os.path.join(output_directory, f"strings_{language}.pack")
+        string_pack.build_with_dict(path, translation_dict, config.compact_index)
+        paths.append(path)
+    return paths
+
+
+def main():
+    defaults = CorpusConfig()
+    arg_parser = argparse.ArgumentParser(description=__doc__)
+    arg_parser.add_argument("output_directory", help="Where to write the pack files.")
+    arg_parser.add_argument("--strings", type=int, default=defaults.string_count)
+    arg_parser.add_argument("--plural-ratio", type=float, default=defaults.plural_ratio)
+    arg_parser.add_argument("--languages", type=int, default=defaults.language_count)
+    arg_parser.add_argument("--region-ratio", type=float, default=defaults.region_ratio)
+    arg_parser.add_argument(
+        "--override-ratio", type=float, default=defaults.override_ratio
+    )
+    arg_parser.add_argument(
+        "--placeholder-ratio", type=float, default=defaults.placeholder_ratio
+    )
+    arg_parser.add_argument(
+        "--long-string-ratio", type=float, default=defaults.long_string_ratio
+    )
+    arg_parser.add_argument("--seed", type=int, default=defaults.seed)
+    arg_parser.add_argument("--compact-index", action="store_true")
+    args = arg_parser.parse_args()
+
+    write_corpus(
+        args.output_directory,
+        CorpusConfig(
+            string_count=args.strings,
+            plural_ratio=args.plural_ratio,
+            language_count=args.languages,
+            region_ratio=args.region_ratio,
+            override_ratio=args.override_ratio,
+            placeholder_ratio=args.placeholder_ratio,
+            long_string_ratio=args.long_string_ratio,
+            seed=args.seed,
+            compact_index=args.compact_index,
+        ),
+    )
+
+
+if __name__ == "__main__":
+    main()
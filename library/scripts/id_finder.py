@@ -7,16 +7,24 @@
 
 import os
 import re
-from typing import List, Optional
+from typing import List, Optional, Tuple
 
 from string_pack_config import StringPackConfig
 
+# The R class type of each resource tag.
+RESOURCE_TYPES = {"string": "string", "plurals": "plurals", "string-array": "array"}
+
 
 class IdFinder(object):
-    def __init__(self, all_matches: List):
+    """Maps the packed resources to their pack ids.
+
+    Resources are keyed by their R class type and name, since a string, a plurals and
+    a string-array can have the same name."""
+
+    def __init__(self, all_matches: List[Tuple[str, str]]):
         self.seen_ids = {}
         for i in range(len(all_matches)):
-            self.seen_ids[all_matches[i]] = i
+            self.seen_ids[tuple(all_matches[i])] = i
 
     @classmethod
     def from_resource_config(cls, config_file_path: str) -> "IdFinder":
@@ -27,7 +35,7 @@ class IdFinder(object):
         with open(config_file_path, "rt") as fd:
             id_data = fd.read()
             all_matches = re.findall(
-                r"\:(?:string|plurals)\/(\w+) =", id_data, flags=re.DOTALL
+                r"\:(string|plurals)\/(\w+) =", id_data, flags=re.DOTALL
             )
         return cls(all_matches)
 
@@ -37,7 +45,7 @@ class IdFinder(object):
             with open(sp_config.pack_ids_class_file_path, "rt") as fd:
                 id_data = fd.read()
             all_matches = re.findall(
-                r"R\.(?:string|plurals)(?:.*?)\.(\w+),", id_data, flags=re.DOTALL
+                r"R\.(string|plurals|array)(?:.*?)\.(\w+),", id_data, flags=re.DOTALL
             )
             return cls(all_matches)
         else:
@@ -45,5 +53,10 @@ class IdFinder(object):
                 sp_config.resource_config_setting["config_file_path"]
             )
 
-    def get_id(self, resource_name: str) -> Optional[int]:
-        return self.seen_ids.get(resource_name)
+    def get_id(self, resource_type: str, resource_name: str) -> Optional[int]:
+        """Returns the pack id of a resource, given its R class type such as "array"."""
+        return self.seen_ids.get((resource_type, resource_name))
+
+    def get_id_for_tag(self, tag: str, resource_name: str) -> Optional[int]:
+        """Returns the pack id of a resource, given its tag, such as "string-array"."""
+        return self.get_id(RESOURCE_TYPES[tag], resource_name)
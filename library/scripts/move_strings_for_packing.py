@@ -28,7 +28,7 @@ FOOTER = "</resources>\n"
 # fmt: off
 ROW_PATTERN = re.compile(
     "(?:[ \t]*<!-- .*? -->\n)?"
-    "[ \t]*<(string|plurals) name=\"(.+?)\">"
+    "[ \t]*<(string|plurals|string-array) name=\"(.+?)\">"
     ".*?"
     "</\\1>\n",
     re.DOTALL,
@@ -58,7 +58,7 @@ def move_strings(srcfile, dstfile, id_finder, keep_dest):
 
     for match in ROW_PATTERN.finditer(data):
         piece = match.group(0)
-        if id_finder.get_id(match.group(2)) is not None:
+        if id_finder.get_id_for_tag(match.group(1), match.group(2)) is not None:
             output_for_new_file.append(piece)
         else:
             output_for_original_file.append(piece)
@@ -8,9 +8,13 @@
 import argparse
 import collections
 import glob
+import hashlib
+import inspect
+import json
 import logging
 import multiprocessing
 import os
+from typing import Dict
 
 import string_pack
 import string_pack_config
@@ -18,6 +22,10 @@ from id_finder import IdFinder
 from string_pack_config import LanguageHandlingCase, StringPackConfig
 
 
+# The directory of the packing scripts, which are all hashed into the pack digests.
+_PACK_SCRIPTS_DIRECTORY = os.path.dirname(os.path.abspath(__file__))
+
+
 def group_string_files_by_languages(
     sp_config: StringPackConfig, packable_strings_file_paths
 ):
@@ -40,7 +48,64 @@ def get_dest_pack_file_path(sp_config: StringPackConfig, pack_id):
     return os.path.join(sp_config.assets_directory, f"{prefix}strings_{pack_id}.pack")
 
 
-def pack_strings(sp_config: StringPackConfig, plural_handler):
+def get_shared_digest(
+    sp_config: StringPackConfig, id_finder: IdFinder, plural_handler
+) -> bytes:
+    """Hash of what every pack is built from: the id table, the packing settings and
+    the plural handler, as well as the packing scripts themselves, the ones pack.gradle
+    declares as inputs. It's computed once per build."""
+    digest = hashlib.sha256()
+    for script_file in sorted(glob.glob(os.path.join(_PACK_SCRIPTS_DIRECTORY, "*.py"))):
+        digest.update(os.path.basename(script_file).encode() + b"\0")
+        with open(script_file, "rb") as script:
+            digest.update(hashlib.sha256(script.read()).digest())
+    digest.update(json.dumps(sorted(id_finder.seen_ids.items())).encode())
+    digest.update(json.dumps({"compact_index": sp_config.compact_index}).encode())
+    digest.update(get_plural_handler_id(plural_handler).encode())
+    return digest.digest()
+
+
+def get_plural_handler_id(plural_handler) -> str:
+    """Identifies the plural handler by its name and, when it's available, its source,
+    so that changing the handler of the caller builds the packs again."""
+    name = f"{plural_handler.__module__}.{plural_handler.__qualname__}"
+    try:
+        return name + "\0" + inspect.getsource(plural_handler)
+    except (OSError, TypeError):
+        return name
+
+
+def get_pack_digest(shared_digest: bytes, string_files) -> str:
+    "Hash of everything a pack is built from: the shared inputs and its string files."
+    digest = hashlib.sha256(shared_digest)
+    for strings_file in sorted(string_files):
+        digest.update(strings_file.encode() + b"\0")
+        with open(strings_file, "rb") as strings:
+            digest.update(hashlib.sha256(strings.read()).digest())
+    return digest.hexdigest()
+
+
+def load_pack_digests(digests_file_path) -> Dict[str, str]:
+    "Returns the digest of each pack id of the last build, if any."
+    if digests_file_path is None or not os.path.exists(digests_file_path):
+        return {}
+    with open(digests_file_path) as digests_file:
+        return json.load(digests_file)
+
+
+def save_pack_digests(digests_file_path, digests: Dict[str, str]) -> None:
+    if digests_file_path is None:
+        return
+    os.makedirs(os.path.dirname(os.path.abspath(digests_file_path)), exist_ok=True)
+    with open(digests_file_path, "w") as digests_file:
+        json.dump(digests, digests_file, indent=2, sort_keys=True)
+
+
+def pack_strings(sp_config: StringPackConfig, plural_handler, digests_file_path=None):
+    """Packs the moved strings of each pack id into its pack file.
+
+    If a digests file is given, only the packs whose inputs changed since the last build
+    that used it are built again, and the file is updated."""
     id_finder = IdFinder.from_stringpack_config(sp_config)
     packable_strings_file_paths = []
 
@@ -68,9 +133,11 @@ def pack_strings(sp_config: StringPackConfig, plural_handler):
     # Create assets directory in case it does not exist.
     os.makedirs(sp_config.assets_directory, exist_ok=True)
 
-    PackBuilder(
+    pack_builder = PackBuilder(
         sp_config, grouped_strings_file_paths, id_finder, plural_handler
-    ).build()
+    )
+    digests = pack_builder.build(load_pack_digests(digests_file_path))
+    save_pack_digests(digests_file_path, digests)
 
 
 class PackBuilder(object):
@@ -86,9 +153,29 @@ class PackBuilder(object):
         self.id_finder = id_finder
         self.plural_handler = plural_handler
 
-    def build(self):
-        with multiprocessing.Pool() as pool:
-            pool.map(self.build_impl, sorted(self.grouped_strings_file_paths))
+    def build(self, previous_digests: Dict[str, str] = None) -> Dict[str, str]:
+        """Builds the packs, except those that are still there and whose digest didn't
+        change from the given ones, and returns the digest of every pack."""
+        previous_digests = previous_digests or {}
+        shared_digest = get_shared_digest(
+            self.sp_config, self.id_finder, self.plural_handler
+        )
+        digests = {}
+        outdated_pack_ids = []
+        for pack_id in sorted(self.grouped_strings_file_paths):
+            digests[pack_id] = get_pack_digest(
+                shared_digest, self.grouped_strings_file_paths[pack_id]
+            )
+            if digests[pack_id] == previous_digests.get(pack_id) and os.path.exists(
+                get_dest_pack_file_path(self.sp_config, pack_id)
+            ):
+                logging.info("Up to date: " + pack_id)
+            else:
+                outdated_pack_ids.append(pack_id)
+        if outdated_pack_ids:
+            with multiprocessing.Pool() as pool:
+                pool.map(self.build_impl, outdated_pack_ids)
+        return digests
 
     def build_impl(self, pack_id):
         logging.info("Packing: " + pack_id)
@@ -99,6 +186,7 @@ class PackBuilder(object):
             get_dest_pack_file_path(self.sp_config, pack_id),
             self.id_finder,
             self.plural_handler,
+            self.sp_config.compact_index,
         )
 
 
@@ -114,11 +202,16 @@ def noop_plural_handler(locale, comment, quantity):
 def main():
     arg_parser = argparse.ArgumentParser()
     arg_parser.add_argument("--config", help="Location of JSON config file.")
+    arg_parser.add_argument(
+        "--digests-file",
+        help="Where to keep the digest of the inputs of each pack, so that the packs "
+        "whose inputs didn't change aren't built again. All packs are built if unset.",
+    )
 
     args = arg_parser.parse_args()
     sp_config = string_pack_config.load_config(config_json_file_path=args.config)
 
-    pack_strings(sp_config, noop_plural_handler)
+    pack_strings(sp_config, noop_plural_handler, args.digests_file)
 
 
 if __name__ == "__main__":
@@ -4,12 +4,15 @@
 # the LICENSE file in the root directory of this source tree.
 
 import argparse
+import bisect
 import collections
+import hashlib
+import itertools
 import logging
 import os
 import re
 import sys
-from typing import Dict, List, Set
+from typing import Dict, List, Optional, Set, Tuple
 from xml.etree import ElementTree
 
 from id_finder import IdFinder
@@ -45,6 +48,68 @@ def unescape(text) -> str:
         return text.replace(r"\'", "'").replace(r"\"", '"').replace(r"\n", "\n")
 
 
+def _unescape_fragment(text) -> str:
+    if not text:
+        return ""
+    return text.replace(r"\'", "'").replace(r"\"", '"').replace(r"\n", "\n")
+
+
+def _utf16_length(text) -> int:
+    # Span positions are in UTF-16 code units, as used by Java strings.
+    return len(text.encode("utf-16-le")) // 2
+
+
+class StyledText(str):
+    """A string with styling spans, such as <b> or <i> markup.
+
+    Each span is (name, start, end), where start and end are UTF-16 offsets and end is
+    exclusive. The name follows the format of compiled Android resources: the tag,
+    followed by ";key=value" for each attribute, e.g. "a;href=https://example.com"."""
+
+    def __new__(cls, text, spans):
+        styled_text = super().__new__(cls, text)
+        styled_text.spans = tuple(spans)
+        return styled_text
+
+
+def _span_name(element) -> str:
+    name = element.tag
+    for key, value in sorted(element.attrib.items()):
+        # Drop the namespace, if any.
+        name += f";{key.split('}')[-1]}={value}"
+    return name
+
+
+def read_text(element):
+    "Returns the text of a string element, as a StyledText if it has markup."
+    if len(element) == 0:
+        return unescape(element.text)
+
+    parts = []
+    spans = []
+    length = 0
+
+    def append(text):
+        nonlocal length
+        text = _unescape_fragment(text)
+        parts.append(text)
+        length += _utf16_length(text)
+
+    def visit(node):
+        append(node.text)
+        for child in node:
+            if child.tag != TreeBuilderWithComments.COMMENT_TAG:
+                start = length
+                visit(child)
+                spans.append((_span_name(child), start, length))
+            append(child.tail)
+
+    visit(element)
+    # Outer spans first, like aapt does.
+    spans.sort(key=lambda span: (span[1], -span[2]))
+    return StyledText("".join(parts), spans)
+
+
 class TreeBuilderWithComments(ElementTree.TreeBuilder):
     COMMENT_TAG = "comment"
 
@@ -79,9 +144,9 @@ def read_string_dict(
             last_comment = element.text
             continue
 
-        assert tag in ["string", "plurals"]
+        assert tag in ["string", "plurals", "string-array"]
         string_name = element.attrib["name"]
-        id = id_finder.get_id(string_name)
+        id = id_finder.get_id_for_tag(tag, string_name)
         if id is None:
             # No integer ID was found for the string. The string was most probably removed,
             # but still remains in the translations (such strings will be cleaned up next time
@@ -91,7 +156,13 @@ def read_string_dict(
         if element.tag == "string":
             if f"R.string.{string_name}" in nullify_res_ids:
                 continue
-            result_dict[id] = unescape(element.text)
+            result_dict[id] = read_text(element)
+        elif element.tag == "string-array":
+            if f"R.array.{string_name}" in nullify_res_ids:
+                continue
+            # Array items are packed as plain text. Arrays with styled items are not
+            # moved for packing, see find_movable_strings.py.
+            result_dict[id] = [str(read_text(item)) for item in element]
         else:  # plurals
             plural_dict = {}
             if f"R.plurals.{string_name}" in nullify_res_ids:
@@ -102,7 +173,7 @@ def read_string_dict(
                 if plural_handler(locale, last_comment, quantity):
                     continue
                 quantity_id = _IDS_FOR_QUANTITY[quantity]
-                plural_dict[quantity_id] = unescape(item.text)
+                plural_dict[quantity_id] = read_text(item)
             result_dict[id] = plural_dict
     return result_dict
 
@@ -121,6 +192,25 @@ def blob_append_16_bit(blob, integer):
     blob.append((integer & 0xFF00) >> 8)
 
 
+def blob_append_varint(blob, integer):
+    "Appends the integer in 7-bit groups, lowest first, with the high bit set on all but the last."
+    assert 0 <= integer < 2**31
+    while integer >= 0x80:
+        blob.append((integer & 0x7F) | 0x80)
+        integer >>= 7
+    blob.append(integer)
+
+
+def blob_append_zigzag(blob, integer):
+    "Appends a signed integer as a varint, mapping 0, -1, 1, -2... to 0, 1, 2, 3..."
+    assert -(2**31) <= integer < 2**31
+    integer = integer * 2 if integer >= 0 else -integer * 2 - 1
+    while integer >= 0x80:
+        blob.append((integer & 0x7F) | 0x80)
+        integer >>= 7
+    blob.append(integer)
+
+
 def blob_append_locale(blob, locale):
     assert len(locale) in [2, 5, 7]
     blob += locale.encode("ASCII")
@@ -130,56 +220,253 @@ def blob_append_locale(blob, locale):
         blob += b"\0\0"
 
 
+# Length in characters of the sequences that strings are indexed by, to find the strings
+# that contain another one.
+_GRAM_SIZE = 3
+# Number of character sequences of a string that are looked up, to find the strings that
+# may contain it.
+_GRAM_SAMPLES = 8
+# Number of strings that are few enough to compare a string with, rather than narrowing
+# them down further.
+_MAX_CANDIDATES = 4
+# Length in bytes of the start of a string that is looked for at the end of the store,
+# to find how much of the string is already there.
+_OVERLAP_PROBE_SIZE = 8
+
+
+def _grams(string: str) -> Set[str]:
+    return {string[i : i + _GRAM_SIZE] for i in range(len(string) - _GRAM_SIZE + 1)}
+
+
+def _sample_grams(string: str) -> List[str]:
+    "Returns up to `_GRAM_SAMPLES` character sequences of the string, spread evenly."
+    last = len(string) - _GRAM_SIZE
+    return list(
+        dict.fromkeys(
+            string[i * last // (_GRAM_SAMPLES - 1) :][:_GRAM_SIZE]
+            for i in range(_GRAM_SAMPLES)
+        )
+    )
+
+
+def _overlap(store: bytearray, string_bytes: bytes) -> int:
+    "Length of the longest proper prefix of the string that ends the store."
+    max_overlap = min(len(store), len(string_bytes) - 1)
+    tail = store[len(store) - max_overlap :]
+    # Overlaps at least as long as the probe start with it, so only look where it is.
+    probe = string_bytes[:_OVERLAP_PROBE_SIZE]
+    position = tail.find(probe)
+    while position != -1:
+        if string_bytes.startswith(tail[position:]):
+            return len(tail) - position
+        position = tail.find(probe, position + 1)
+    for length in range(min(len(probe) - 1, max_overlap), 0, -1):
+        if tail.endswith(string_bytes[:length]):
+            return length
+    return 0
+
+
 class StringBuffer(object):
-    "A large byte buffer that just holds strings."
+    """A large byte buffer that just holds strings.
+
+    The strings are first added with `add`, and then laid out together by `layout`,
+    after which `locate` returns where each of them is. A string is stored only once,
+    and not at all if it's part of a longer string, such as one of its suffixes, as it
+    can point there instead. The others are stored in the order they were first added,
+    each one overlapping the end of the previous one if it starts the same way.
+    """
 
     def __init__(self, encoding):
         self.encoding = encoding
         self.store = bytearray()
+        # The strings, in the order they were first added, and where they start once
+        # laid out.
+        self.starts = {}
+
+    def add(self, string_or_plural) -> None:
+        for string in _strings_of(string_or_plural):
+            self.add_string(string)
 
-    def add(self, string_or_plural):
+    def add_string(self, string) -> None:
+        if string:
+            self.starts.setdefault(str(string), None)
+
+    def locate(self, string_or_plural):
+        "Returns the location of the string, or of each string of a plural or array."
         if type(string_or_plural) is dict:  # Plural
             result = {}
             for quantity_id, string in string_or_plural.items():
-                result[quantity_id] = self.add_string(string)
+                result[quantity_id] = self.locate_string(string)
             return result
+        elif type(string_or_plural) is list:  # String array
+            return [self.locate_string(string) for string in string_or_plural]
         else:
-            return self.add_string(string_or_plural)
+            return self.locate_string(string_or_plural)
 
-    def add_string(self, string):
-        string_bytes = string.encode(encoding=self.encoding)
-        bytes_len = len(string_bytes)
-        if bytes_len == 0:  # empty string
+    def locate_string(self, string) -> Tuple[int, int]:
+        "Returns the start and length in bytes of the string, once laid out."
+        if not string:  # empty string
             return 0, 0
-        location = self.store.find(string_bytes)
-        if location == -1:
-            # Not found. But before trying to add it, see if a prefix of the new string
-            # is at the end of the store buffer. If that's the case, we can save a few bytes
-            # by sharing that.
-            prefix = bytearray(string_bytes[:-1])
-            while prefix and not self.store.endswith(prefix):
-                del prefix[-1]
-            if prefix:
-                # Some part of the prefix remains, which means it matches the end of the buffer.
-                start = len(self.store) - len(prefix)
-                self.store += string_bytes[len(prefix) :]
-            else:
-                # Add the string to the end of the buffer.
-                start = len(self.store)
-                self.store += string_bytes
-            return start, bytes_len
-        else:
-            return location, bytes_len
+        return self.starts[string], len(string.encode(encoding=self.encoding))
+
+    def layout(self, start: int = 0) -> bytearray:
+        """Lays out the strings, and returns the store.
+
+        start: where the store starts in the string data of the pack, which the string
+            locations are relative to."""
+        strings = list(self.starts)
+        containers = _find_containers(strings)
+        starts = [0] * len(strings)
+        for index, string in enumerate(strings):
+            if index not in containers:
+                string_bytes = string.encode(encoding=self.encoding)
+                overlap = _overlap(self.store, string_bytes)
+                starts[index] = len(self.store) - overlap
+                self.store += string_bytes[overlap:]
+        # Containers are longer than the strings they contain, so are located first.
+        for index in sorted(containers, key=lambda index: -len(strings[index])):
+            container, offset = containers[index]
+            prefix = strings[container][:offset].encode(encoding=self.encoding)
+            starts[index] = starts[container] + len(prefix)
+        # Where the strings are in the string data of the pack.
+        self.starts = {
+            string: start + offset for string, offset in zip(strings, starts)
+        }
+        return self.store
+
+
+def _strings_of(string_or_plural) -> List:
+    if type(string_or_plural) is dict:  # Plural
+        return list(string_or_plural.values())
+    elif type(string_or_plural) is list:  # String array
+        return string_or_plural
+    return [string_or_plural]
+
+
+def _find_containers(strings: List[str]) -> Dict[int, Tuple[int, int]]:
+    """Returns the strings that are part of a longer one, by index, mapped to the index
+    of the longer string and where they are in it, in characters. The strings must be
+    unique.
+
+    Strings are indexed by their character sequences, and each string is only compared
+    with the strings that have a few of its own, looked up from the rarest. Strings
+    shorter than a sequence are looked up in all the strings at once. This takes about
+    linear time, unlike searching all the strings for each one of them."""
+    strings_with_gram = collections.defaultdict(list)
+    for index, string in enumerate(strings):
+        for gram in _grams(string):
+            strings_with_gram[gram].append(index)
+    # All the strings, each one followed by a separator so that a match can't span two
+    # of them, and where each of them starts.
+    separator = "\0"
+    everything = separator.join(strings) + separator
+    starts = list(itertools.accumulate([0] + [len(s) + 1 for s in strings[:-1]]))
+
+    containers = {}
+    for index, string in enumerate(strings):
+        if len(string) < _GRAM_SIZE:
+            if separator in string:
+                continue
+            position = everything.find(string)
+            while position != -1:
+                container = bisect.bisect_right(starts, position) - 1
+                if container != index:
+                    containers[index] = (container, position - starts[container])
+                    break
+                position = everything.find(string, position + 1)
+            continue
+        # Narrow down the strings that have the sampled sequences, until few enough are
+        # left to compare with.
+        posting_lists = sorted(
+            (strings_with_gram[gram] for gram in _sample_grams(string)), key=len
+        )
+        candidates = set(posting_lists[0])
+        for posting_list in posting_lists[1:]:
+            if len(candidates) <= _MAX_CANDIDATES:
+                break
+            candidates.intersection_update(posting_list)
+        for container in sorted(candidates):
+            if len(strings[container]) > len(string):
+                offset = strings[container].find(string)
+                if offset != -1:
+                    containers[index] = (container, offset)
+                    break
+    return containers
+
+
+# Quantity id used in the span table for spans of plain strings, rather than plurals.
+_SPAN_STRING_QUANTITY_ID = 0xFF
+
+# Number of entries in each block of a compact table.
+# Keep in sync with `BLOCK_SIZE` in CompactIndex.java
+_COMPACT_BLOCK_SIZE = 16
+
+
+def _blob_append_compact_location(blob, location, previous_end: int) -> int:
+    "Appends the string location, and returns where the string ends."
+    start, length = location
+    blob_append_zigzag(blob, start - previous_end)
+    blob_append_varint(blob, length)
+    return start + length
+
+
+def blob_append_compact_table(blob, table: Dict, plurals: bool) -> None:
+    """Appends the string or plural table in the compact format.
+
+    The table has its entry count, block count and data size (4 bytes each), then a
+    directory with the first id of each block and where the block starts in the data
+    (4 bytes each), then the data. Blocks hold up to `_COMPACT_BLOCK_SIZE` entries,
+    sorted by id. The first id of a block is only in the directory, and the others are
+    the varint difference with the previous id. A string location is the zigzag varint
+    difference of its start with the end of the previous string of the block, and its
+    varint length. A plural is its quantity count (1 byte), then the quantity id
+    (1 byte) and the string location of each quantity.
+    """
+    ids = sorted(table)
+    directory = bytearray()
+    data = bytearray()
+    for block_start in range(0, len(ids), _COMPACT_BLOCK_SIZE):
+        block_ids = ids[block_start : block_start + _COMPACT_BLOCK_SIZE]
+        blob_append_32_bit(directory, block_ids[0])
+        blob_append_32_bit(directory, len(data))
+        previous_end = 0
+        for index, id in enumerate(block_ids):
+            if index > 0:
+                blob_append_varint(data, id - block_ids[index - 1])
+            if not plurals:
+                previous_end = _blob_append_compact_location(
+                    data, table[id], previous_end
+                )
+                continue
+            plural = table[id]
+            data.append(len(plural))  # Just one byte
+            for quantity_id in sorted(plural):
+                data.append(quantity_id)  # Just one byte
+                previous_end = _blob_append_compact_location(
+                    data, plural[quantity_id], previous_end
+                )
+    blob_append_32_bit(blob, len(ids))
+    blob_append_32_bit(blob, len(directory) // 8)
+    blob_append_32_bit(blob, len(data))
+    blob += directory
+    blob += data
 
 
 class LocaleStore(object):
     def __init__(self):
         self.strings = {}
         self.plurals = {}
+        self.arrays = {}
+        # (id, quantity id) -> [(name location, start, end)]
+        self.spans = {}
 
     def add_plural_or_string(self, id, plural_or_string):
+        if not 0 <= id <= MAX_ID:
+            raise ValueError(f"Id {id} is out of range, the maximum is {MAX_ID}")
         if type(plural_or_string) is dict:
             self.add_plural(id, plural_or_string)
+        elif type(plural_or_string) is list:
+            self.add_array(id, plural_or_string)
         else:
             self.add_string(id, plural_or_string)
 
@@ -191,40 +478,125 @@ class LocaleStore(object):
         assert id not in self.plurals
         self.plurals[id] = plural
 
-    def get_binary_blob(self):
+    def add_array(self, id, array):
+        assert id not in self.arrays
+        self.arrays[id] = array
+
+    def add_spans(self, id, quantity_id, spans):
+        assert (id, quantity_id) not in self.spans
+        self.spans[(id, quantity_id)] = spans
+
+    def needs_wide_format(self) -> bool:
+        "Whether an id, count, length or span position doesn't fit in 16 bits."
+        values = [len(self.strings), len(self.plurals), len(self.arrays), len(self.spans)]
+        values += list(self.strings) + list(self.plurals) + list(self.arrays)
+        values += [length for _, length in self.strings.values()]
+        for plural in self.plurals.values():
+            values += [length for _, length in plural.values()]
+        for array in self.arrays.values():
+            values.append(len(array))
+            values += [length for _, length in array]
+        for spans in self.spans.values():
+            values.append(len(spans))
+            for (_, name_length), start, end in spans:
+                values += [name_length, start, end]
+        return max(values, default=0) >= 2**15
+
+    def get_binary_blob(self, wide_format: bool = False, compact_index: bool = False):
+        # See `_FLAG_WIDE_FORMAT` for how the wide format differs.
+        append_id = blob_append_32_bit if wide_format else blob_append_16_bit
+        append_count = append_id
+        append_length = blob_append_varint if wide_format else blob_append_16_bit
         blob = bytearray()
-        blob_append_16_bit(blob, len(self.strings))
-        blob_append_16_bit(blob, len(self.plurals))
+        if compact_index:
+            blob_append_compact_table(blob, self.strings, plurals=False)
+            blob_append_compact_table(blob, self.plurals, plurals=True)
+        else:
+            self._append_strings_and_plurals(blob, append_id, append_length)
+        # Write the string arrays
+        append_count(blob, len(self.arrays))
+        for id in self.arrays:
+            append_id(blob, id)
+            array = self.arrays[id]
+            append_count(blob, len(array))
+            for start, length in array:
+                blob_append_32_bit(blob, start)
+                append_length(blob, length)
+        # Write the spans of styled strings, sorted by id and quantity id.
+        append_count(blob, len(self.spans))
+        for id, quantity_id in sorted(self.spans):
+            append_id(blob, id)
+            blob.append(quantity_id)  # Just one byte
+            spans = self.spans[(id, quantity_id)]
+            append_count(blob, len(spans))
+            for (name_start, name_length), start, end in spans:
+                blob_append_32_bit(blob, name_start)
+                append_length(blob, name_length)
+                append_length(blob, start)
+                append_length(blob, end)
+        return bytes(blob)
+
+    def _append_strings_and_plurals(self, blob, append_id, append_length):
+        append_id(blob, len(self.strings))
+        append_id(blob, len(self.plurals))
         # Write the strings. Note that the parser in ParsedStringPack.java expects this to be
         # sorted by ID.
         # However the ids are already entered in sorted manner. So no need to re-sort them
         for id in self.strings:
-            blob_append_16_bit(blob, id)
+            append_id(blob, id)
             start, length = self.strings[id]
             blob_append_32_bit(blob, start)
-            blob_append_16_bit(blob, length)
+            append_length(blob, length)
         # Write the plurals
         for id in self.plurals:
-            blob_append_16_bit(blob, id)
+            append_id(blob, id)
             plural = self.plurals[id]
             blob.append(len(plural))  # Just one byte
             for quantity_id in sorted(plural):
                 blob.append(quantity_id)  # Just one byte
                 start, length = plural[quantity_id]
                 blob_append_32_bit(blob, start)
-                blob_append_16_bit(blob, length)
-        return bytes(blob)
+                append_length(blob, length)
 
 
 # Keep in sync with `ENCODINGS` in ParsedStringPack.java
 _ENCODING_ID = {"UTF-8": 0, "UTF-16BE": 1}
+# Encoding id of packs whose locales have different encodings. Their string data starts
+# with the 4-byte offset in it of the UTF-16BE strings, after the UTF-8 ones, so that
+# the encoding of each string follows from where it starts.
+# Keep in sync with `ENCODING_PER_LOCALE` in StringPackData.java
+_ENCODING_ID_PER_LOCALE = 2
+_PER_LOCALE = "per-locale"
 # Keep in sync with `_ENCODING_ID`
-_ENCODING_INDEX = {0: "UTF-8", 1: "UTF-16BE"}
+_ENCODING_INDEX = {0: "UTF-8", 1: "UTF-16BE", _ENCODING_ID_PER_LOCALE: _PER_LOCALE}
 
 # 2 bytes for number of locales, 4 bytes for starting index of locale data, 1 byte for the encoding
-# of string data, and 4 bytes for starting index of the string data. Totalling 11 bytes.
+# of string data and format flags, and 4 bytes for starting index of the string data. Totalling 11
+# bytes.
 _HEADER_SIZE = 11
 
+# The low bits of the encoding byte hold the encoding id, the high bits hold format flags.
+# Keep in sync with `ENCODING_MASK` and `FLAG_*` in StringPackData.java
+_ENCODING_MASK = 0x07
+# The strings and plurals of each locale are in compact tables rather than in fixed-size
+# entries. See `blob_append_compact_table`.
+_FLAG_COMPACT_INDEX = 0x08
+# The header is followed by a hash of the rest of the pack, so the app can tell whether a pack it
+# has already extracted is identical, without reading the whole pack.
+_FLAG_CONTENT_HASH = 0x10
+_CONTENT_HASH_SIZE = 8
+# Each locale's data ends with a table of the spans of its styled strings.
+_FLAG_SPANS = 0x20
+# Each locale's plurals are followed by a table of its string arrays.
+_FLAG_ARRAYS = 0x40
+# Ids and counts take 32 bits instead of 16, and string lengths and span positions are
+# varints (see blob_append_varint). This lifts the limits of 32,767 ids per locale and of
+# 32 KB per string, so it's only used by packs that go over them.
+_FLAG_WIDE_FORMAT = 0x80
+# Largest id of a string, plural or array, so that the app can key styled texts by the id
+# and a 3-bit quantity index in an int. Keep in sync with `MAX_ID` in StringPackData.java
+MAX_ID = 2**28 - 1
+
 # Each locale takes 11 bytes, right after the header. 7 bytes for the locale itself
 # (see blob_append_locale), and 4 bytes for a pointer to where its table starts in
 # file.
@@ -250,19 +622,122 @@ def _read_locale_from(content: bytearray, offset: int) -> str:
     return content[offset : offset + length].decode("ascii")
 
 
+def _read_varint(content: bytearray, offset: int) -> Tuple[int, int]:
+    "Returns the varint at the offset, and its size in bytes."
+    value = 0
+    size = 0
+    while True:
+        byte = content[offset + size]
+        value |= (byte & 0x7F) << (7 * size)
+        size += 1
+        if byte < 0x80:
+            return value, size
+
+
+def _read_zigzag(content: bytearray, offset: int) -> Tuple[int, int]:
+    "Returns the signed integer at the offset (see blob_append_zigzag) and its size."
+    value, size = _read_varint(content, offset)
+    return (value >> 1) ^ -(value & 1), size
+
+
+def _read_compact_location(
+    content: bytearray, caret: int, previous_end: int
+) -> Tuple[Tuple[int, int], int]:
+    "Returns the string location (start, length) at the caret, and the caret after it."
+    delta, size = _read_zigzag(content, caret)
+    caret += size
+    length, size = _read_varint(content, caret)
+    return (previous_end + delta, length), caret + size
+
+
+def _read_compact_table(
+    content: bytearray, caret: int, plurals: bool
+) -> Tuple[Dict, int]:
+    """Returns the string locations of the compact table at the caret by id (for
+    plurals, by quantity id by id), and the caret after the table. See
+    `blob_append_compact_table` for the format."""
+    count = _read(content, caret, 4)
+    block_count = _read(content, caret + 4, 4)
+    data_size = _read(content, caret + 8, 4)
+    directory = caret + 12
+    data_start = directory + block_count * 8
+    table = {}
+    for block in range(block_count):
+        id = _read(content, directory + block * 8, 4)
+        caret = data_start + _read(content, directory + block * 8 + 4, 4)
+        previous_end = 0
+        entry_count = min(_COMPACT_BLOCK_SIZE, count - block * _COMPACT_BLOCK_SIZE)
+        for index in range(entry_count):
+            if index > 0:
+                delta, size = _read_varint(content, caret)
+                caret += size
+                id += delta
+            if not plurals:
+                table[id], caret = _read_compact_location(content, caret, previous_end)
+                previous_end = sum(table[id])
+                continue
+            quantity_count = _read(content, caret)
+            caret += 1
+            plural = {}
+            for _ in range(quantity_count):
+                quantity_id = _read(content, caret)
+                plural[quantity_id], caret = _read_compact_location(
+                    content, caret + 1, previous_end
+                )
+                previous_end = sum(plural[quantity_id])
+            table[id] = plural
+    return table, data_start + data_size
+
+
+def _decode(
+    content: bytearray, start: int, length: int, startOfStringData: int, encoding: str
+) -> str:
+    if encoding == _PER_LOCALE:
+        utf16_start = _read(content, startOfStringData, 4)
+        encoding = "UTF-16BE" if start >= utf16_start else "UTF-8"
+    offset = startOfStringData + start
+    return content[offset : offset + length].decode(encoding)
+
+
+def _decode_location(
+    content: bytearray, location: Tuple[int, int], startOfStringData: int, encoding: str
+) -> str:
+    start, length = location
+    return _decode(content, start, length, startOfStringData, encoding)
+
+
+def _read_length(content: bytearray, offset: int, wide_format: bool) -> Tuple[int, int]:
+    "Returns the string length or span position at the offset, and its size in bytes."
+    if wide_format:
+        return _read_varint(content, offset)
+    return _read(content, offset, 2), 2
+
+
+def _location_size(content: bytearray, offset: int, wide_format: bool) -> int:
+    "Size of the string starting location (4) and length at the offset."
+    return 4 + _read_length(content, offset + 4, wide_format)[1]
+
+
 def _loadString(
-    content: bytearray, mapped_id: int, startOfStringData: int, encoding: str
+    content: bytearray,
+    mapped_id: int,
+    startOfStringData: int,
+    encoding: str,
+    wide_format: bool = False,
 ) -> str:
     caret = mapped_id
     stringStart = _read(content, caret, 4)
     caret += 4  # Increment to 4 Bytes which we read above for string starting location
-    stringLen = _read(content, caret, 2)
-    offset = startOfStringData + stringStart
-    return content[offset : offset + stringLen].decode(encoding)
+    stringLen, _ = _read_length(content, caret, wide_format)
+    return _decode(content, stringStart, stringLen, startOfStringData, encoding)
 
 
 def _loadPlural(
-    content: bytearray, mapped_id: int, startOfStringData: int, encoding: str
+    content: bytearray,
+    mapped_id: int,
+    startOfStringData: int,
+    encoding: str,
+    wide_format: bool = False,
 ) -> Dict:
     caret = mapped_id
     quantityCount = _read(content, caret)
@@ -271,72 +746,114 @@ def _loadPlural(
     for _ in range(quantityCount):
         quantityId = _read(content, caret)
         caret += 1  # Increment by a single byte which are for quantity id
-        stringStart = _read(content, caret, 4)
-        caret += (
-            4  # Increment to 4*8 Bits which we read above for plural starting location
+        pluralMap[quantityId] = _loadString(
+            content, caret, startOfStringData, encoding, wide_format
         )
-        stringLen = _read(content, caret, 2)
-        caret += 2  # Increment to 2*8 Bits which we read above for plural length
-        offset = startOfStringData + stringStart
-        pluralMap[quantityId] = content[offset : offset + stringLen].decode(encoding)
+        caret += _location_size(content, caret, wide_format)
     return pluralMap
 
 
-def _map_translations(
+def _loadArray(
     content: bytearray,
-    startOfLocaleData: int,
-    headerStart: int,
+    mapped_id: int,
+    startOfStringData: int,
+    encoding: str,
+    wide_format: bool = False,
+) -> List:
+    count_size = 4 if wide_format else 2
+    caret = mapped_id
+    itemCount = _read(content, caret, count_size)
+    caret += count_size  # Increment by the item count
+    array = []
+    for _ in range(itemCount):
+        array.append(
+            _loadString(content, caret, startOfStringData, encoding, wide_format)
+        )
+        caret += _location_size(content, caret, wide_format)
+    return array
+
+
+def _loadSpans(
+    content: bytearray,
+    mapped_id: int,
+    startOfStringData: int,
+    encoding: str,
+    wide_format: bool = False,
+) -> List:
+    count_size = 4 if wide_format else 2
+    caret = mapped_id
+    spanCount = _read(content, caret, count_size)
+    caret += count_size  # Increment by the span count
+    spans = []
+    for _ in range(spanCount):
+        name = _loadString(content, caret, startOfStringData, encoding, wide_format)
+        caret += _location_size(content, caret, wide_format)
+        start, size = _read_length(content, caret, wide_format)
+        caret += size
+        end, size = _read_length(content, caret, wide_format)
+        caret += size
+        spans.append((name, start, end))
+    return spans
+
+
+def _map_fixed_size_translations(
+    content: bytearray,
+    caret: int,
     startOfStringData: int,
     encoding: str,
     unpacked_output: List,
-) -> Dict:
-    caret = startOfLocaleData + headerStart
-    numStrings = _read(content, caret, 2)
-    _write_to_list(f"Num strings (2-bytes): {numStrings}", unpacked_output)
-    caret += 2
-    numPlurals = _read(content, caret, 2)
-    _write_to_list(f"Num plurals (2-bytes): {numPlurals}", unpacked_output)
-    caret += 2
-    result = {"string": {}, "plurals": {}}
+    wide_format: bool,
+) -> Tuple[Dict, int]:
+    id_size = 4 if wide_format else 2
+    length_size = "varint" if wide_format else "2-bytes"
+    numStrings = _read(content, caret, id_size)
+    _write_to_list(f"Num strings ({id_size}-bytes): {numStrings}", unpacked_output)
+    caret += id_size
+    numPlurals = _read(content, caret, id_size)
+    _write_to_list(f"Num plurals ({id_size}-bytes): {numPlurals}", unpacked_output)
+    caret += id_size
+    result = {"string": {}, "plurals": {}, "arrays": {}, "spans": {}}
     _write_to_list("\n\n", unpacked_output)
     _write_to_list(">>>>>> String data <<<<<<", unpacked_output)
     _write_to_list("\n", unpacked_output)
     for _ in range(numStrings):
-        id = _read(content, caret, 2)
-        _write_to_list(f"String id (2-bytes): {id}", unpacked_output)
-        caret += 2
+        id = _read(content, caret, id_size)
+        _write_to_list(f"String id ({id_size}-bytes): {id}", unpacked_output)
+        caret += id_size
         result["string"][id] = caret
         _write_to_list(
             f"String Starting Index (4-bytes): {_read(content, caret, 4)}",
             unpacked_output,
         )
         _write_to_list(
-            f"String Length (2-bytes): {_read(content, caret+4, 2)}", unpacked_output
+            f"String Length ({length_size}): "
+            f"{_read_length(content, caret + 4, wide_format)[0]}",
+            unpacked_output,
         )
         _write_to_list(
-            f"String: {_loadString(content, caret, startOfStringData, encoding)}",
+            "String: "
+            f"{_loadString(content, caret, startOfStringData, encoding, wide_format)}",
             unpacked_output,
         )
         _write_to_list("\n", unpacked_output)
-        # Increment by 6 Bytes which is string starting location (4) + string length (2)
-        # to be read later when string is fetched
-        caret += 6
+        # Increment by the string starting location (4) + string length, to be read
+        # later when string is fetched
+        caret += _location_size(content, caret, wide_format)
 
     _write_to_list("\n\n", unpacked_output)
     _write_to_list(">>>>>> Plural data <<<<<<", unpacked_output)
     _write_to_list("\n", unpacked_output)
     for _ in range(numPlurals):
-        id = _read(content, caret, 2)
-        _write_to_list(f"Plural id (2-bytes): {id}", unpacked_output)
-        caret += 2
+        id = _read(content, caret, id_size)
+        _write_to_list(f"Plural id ({id_size}-bytes): {id}", unpacked_output)
+        caret += id_size
         result["plurals"][id] = caret
         quantityCount = _read(content, caret)
         _write_to_list(f"Quantity count (1-byte): {quantityCount}", unpacked_output)
         caret += 1  # Increment by a single byte which are for quantity count read above
         for __ in range(quantityCount):
-            # Increment by 7 Bytes which is the
-            # quantity id (1) + string starting location (4) + string length (2) to be
-            # read later when plural is fetched
+            # Increment by the quantity id (1) + string starting location (4) + string
+            # length, to be read later when plural is fetched
             _write_to_list(
                 f"\tQuantity Id (1-byte): {_read(content, caret)}", unpacked_output
             )
@@ -345,15 +862,141 @@ def _map_translations(
                 unpacked_output,
             )
             _write_to_list(
-                f"\tString Length (2-bytes): {_read(content, caret+5, 2)}",
+                f"\tString Length ({length_size}): "
+                f"{_read_length(content, caret + 5, wide_format)[0]}",
                 unpacked_output,
             )
+            string = _loadString(
+                content, caret + 1, startOfStringData, encoding, wide_format
+            )
+            _write_to_list(f"\tString: {string}", unpacked_output)
+            _write_to_list("\n", unpacked_output)
+            caret += 1 + _location_size(content, caret + 1, wide_format)
+    return result, caret
+
+
+def _map_compact_translations(
+    content: bytearray,
+    caret: int,
+    startOfStringData: int,
+    encoding: str,
+    unpacked_output: List,
+) -> Tuple[Dict, int]:
+    strings, caret = _read_compact_table(content, caret, plurals=False)
+    plurals, caret = _read_compact_table(content, caret, plurals=True)
+    _write_to_list(f"Num strings (compact): {len(strings)}", unpacked_output)
+    _write_to_list(f"Num plurals (compact): {len(plurals)}", unpacked_output)
+    _write_to_list("\n\n", unpacked_output)
+    _write_to_list(">>>>>> String data <<<<<<", unpacked_output)
+    _write_to_list("\n", unpacked_output)
+    for id, (start, length) in strings.items():
+        string = _decode_location(
+            content, (start, length), startOfStringData, encoding
+        )
+        _write_to_list(
+            f"String id: {id}, Starting Index: {start}, Length: {length}",
+            unpacked_output,
+        )
+        _write_to_list(f"String: {string}", unpacked_output)
+        _write_to_list("\n", unpacked_output)
+    _write_to_list("\n\n", unpacked_output)
+    _write_to_list(">>>>>> Plural data <<<<<<", unpacked_output)
+    _write_to_list("\n", unpacked_output)
+    for id, plural in plurals.items():
+        _write_to_list(f"Plural id: {id}", unpacked_output)
+        for quantity_id, (start, length) in plural.items():
+            string = _decode_location(
+                content, (start, length), startOfStringData, encoding
+            )
             _write_to_list(
-                f"\tString: {_loadString(content, caret+1, startOfStringData, encoding)}",
+                f"\tQuantity Id: {quantity_id}, Starting Index: {start}, "
+                f"Length: {length}",
                 unpacked_output,
             )
+            _write_to_list(f"\tString: {string}", unpacked_output)
             _write_to_list("\n", unpacked_output)
-            caret += 7
+    result = {"string": strings, "plurals": plurals, "arrays": {}, "spans": {}}
+    return result, caret
+
+
+def _map_translations(
+    content: bytearray,
+    startOfLocaleData: int,
+    headerStart: int,
+    startOfStringData: int,
+    encoding: str,
+    unpacked_output: List,
+    has_spans: bool = False,
+    has_arrays: bool = False,
+    wide_format: bool = False,
+    compact_index: bool = False,
+) -> Dict:
+    """Returns the string pack ids of the locale, mapped to where their entries start.
+    With a compact index, strings and plurals are mapped to their string locations
+    instead."""
+    id_size = 4 if wide_format else 2
+    caret = startOfLocaleData + headerStart
+    if compact_index:
+        result, caret = _map_compact_translations(
+            content, caret, startOfStringData, encoding, unpacked_output
+        )
+    else:
+        result, caret = _map_fixed_size_translations(
+            content, caret, startOfStringData, encoding, unpacked_output, wide_format
+        )
+
+    if has_arrays:
+        numArrays = _read(content, caret, id_size)
+        caret += id_size
+        _write_to_list("\n\n", unpacked_output)
+        _write_to_list(
+            f">>>>>> Array data ({numArrays} arrays) <<<<<<", unpacked_output
+        )
+        _write_to_list("\n", unpacked_output)
+        for _ in range(numArrays):
+            id = _read(content, caret, id_size)
+            _write_to_list(f"Array id ({id_size}-bytes): {id}", unpacked_output)
+            caret += id_size
+            result["arrays"][id] = caret
+            for item in _loadArray(
+                content, caret, startOfStringData, encoding, wide_format
+            ):
+                _write_to_list(f"\tItem: {item}", unpacked_output)
+            # Increment by the item count, and the string starting location (4) +
+            # string length of each item
+            itemCount = _read(content, caret, id_size)
+            caret += id_size
+            for __ in range(itemCount):
+                caret += _location_size(content, caret, wide_format)
+
+    if not has_spans:
+        return result
+    numStyled = _read(content, caret, id_size)
+    caret += id_size
+    _write_to_list("\n\n", unpacked_output)
+    _write_to_list(f">>>>>> Span data ({numStyled} styled) <<<<<<", unpacked_output)
+    _write_to_list("\n", unpacked_output)
+    for _ in range(numStyled):
+        id = _read(content, caret, id_size)
+        quantityId = _read(content, caret + id_size)
+        caret += id_size + 1
+        result["spans"][(id, quantityId)] = caret
+        _write_to_list(
+            f"Styled id ({id_size}-bytes): {id}, quantity id (1-byte): {quantityId}",
+            unpacked_output,
+        )
+        for name, start, end in _loadSpans(
+            content, caret, startOfStringData, encoding, wide_format
+        ):
+            _write_to_list(f"\tSpan: {name} [{start}, {end})", unpacked_output)
+        # Increment by the span count, and for each span the name location (4) + name
+        # length + start + end
+        spanCount = _read(content, caret, id_size)
+        caret += id_size
+        for __ in range(spanCount):
+            caret += _location_size(content, caret, wide_format)
+            caret += _read_length(content, caret, wide_format)[1]
+            caret += _read_length(content, caret, wide_format)[1]
     return result
 
 
@@ -370,11 +1013,13 @@ class TranslationDict(object):
         for locale, dictionary in translation_dict.items():
             self.add_for_locale(locale, dictionary)
 
-    def remove_unused_translation(self, id_finder: IdFinder, unused_strings: List):
+    def remove_unused_translation(
+        self, id_finder: IdFinder, unused_resources: List[Tuple[str, str]]
+    ):
         store = self.store
         for locale_dict in store.values():
-            for unused_string in unused_strings:
-                id = id_finder.get_id(unused_string)
+            for resource_type, resource_name in unused_resources:
+                id = id_finder.get_id(resource_type, resource_name)
                 if id is not None and id in locale_dict:
                     del locale_dict[id]
         for locale in list(store.keys()):
@@ -394,15 +1039,60 @@ class TranslationDict(object):
         self.store = new_store
 
 
+def pick_encoding(string_dict: Dict) -> str:
+    """Returns the encoding that takes the fewest bytes for the strings of a locale,
+    without compiling them. Scripts such as Latin or Cyrillic are smaller in UTF-8,
+    while the ones whose letters take 3 bytes in it, such as CJK, Devanagari or Thai,
+    are smaller in UTF-16BE."""
+    strings = {
+        str(string) for value in string_dict.values() for string in _strings_of(value)
+    }
+    return min(
+        _ENCODING_ID,
+        key=lambda encoding: sum(
+            len(string.encode(encoding=encoding)) for string in strings
+        ),
+    )
+
+
+def _spans_of(plural_or_string) -> List[Tuple[int, List]]:
+    "Returns the spans of each styled text of the value, with its quantity id."
+    if type(plural_or_string) is list:
+        return []  # Array items are plain text.
+    if type(plural_or_string) is dict:
+        texts = plural_or_string.items()
+    else:
+        texts = [(_SPAN_STRING_QUANTITY_ID, plural_or_string)]
+    return [
+        (quantity_id, text.spans)
+        for quantity_id, text in texts
+        if getattr(text, "spans", None)
+    ]
 
 
 class StringPack(object):
     "The full string pack, with information about locales, ids, plurals, etc"
 
-    def __init__(self, encoding: str, translation: TranslationDict):
-        assert encoding in _ENCODING_ID
+    def __init__(
+        self,
+        encoding: Optional[str],
+        translation: TranslationDict,
+        wide_format: bool = False,
+        compact_index: bool = False,
+    ):
+        """
+        encoding: the encoding of all the strings, or None to pick the smallest one for
+            each locale. See `pick_encoding` and `_ENCODING_ID_PER_LOCALE`.
+        wide_format: whether to use the wide format even if the pack doesn't need it.
+            See `_FLAG_WIDE_FORMAT`.
+        compact_index: whether to write the strings and plurals in compact tables. See
+            `_FLAG_COMPACT_INDEX`.
+        """
+        assert encoding is None or encoding in _ENCODING_ID
         self.encoding = encoding
         self.store = translation.store
+        self.wide_format = wide_format
+        self.compact_index = compact_index
 
     @staticmethod
     def from_file(file_name: str, unpacked_output: List = None) -> Dict:
@@ -415,17 +1105,40 @@ class StringPack(object):
             f"Starting Index of Locale Data (4-bytes): {startOfLocaleData}",
             unpacked_output,
         )
-        encodingId = _read(content, 6)
+        encodingByte = _read(content, 6)
+        encodingId = encodingByte & _ENCODING_MASK
         assert encodingId in _ENCODING_INDEX.keys(), "Unrecognized encoding"
         encoding = _ENCODING_INDEX[encodingId]
         _write_to_list(f"Encoding (1-byte): {encoding}", unpacked_output)
+        wide_format = bool(encodingByte & _FLAG_WIDE_FORMAT)
+        if wide_format:
+            _write_to_list("Wide format: 32-bit ids and varint lengths", unpacked_output)
+        compact_index = bool(encodingByte & _FLAG_COMPACT_INDEX)
+        if compact_index:
+            _write_to_list(
+                f"Compact index: blocks of {_COMPACT_BLOCK_SIZE} entries",
+                unpacked_output,
+            )
         startOfStringData = _read(content, 7, 4)
         _write_to_list(
             f"Starting Index of string data (4-bytes): {startOfStringData}",
             unpacked_output,
         )
+        if encoding == _PER_LOCALE:
+            _write_to_list(
+                "Start of UTF-16BE strings (4-bytes): "
+                f"{_read(content, startOfStringData, 4)}",
+                unpacked_output,
+            )
 
         caret = _HEADER_SIZE
+        if encodingByte & _FLAG_CONTENT_HASH:
+            content_hash = content[caret : caret + _CONTENT_HASH_SIZE].hex()
+            _write_to_list(
+                f"Content hash ({_CONTENT_HASH_SIZE}-bytes): {content_hash}",
+                unpacked_output,
+            )
+            caret += _CONTENT_HASH_SIZE
         locale_starts = {}
         for _ in range(numLocales):
             resourceLocale = _read_locale_from(content, caret)
@@ -451,50 +1164,161 @@ class StringPack(object):
                 startOfStringData,
                 encoding,
                 unpacked_output,
+                bool(encodingByte & _FLAG_SPANS),
+                bool(encodingByte & _FLAG_ARRAYS),
+                wide_format,
+                compact_index,
             )
             string_mapping = mapping["string"]
-            for android_id, string_pack_id in string_mapping.items():
-                locale_dict[android_id] = _loadString(
-                    content, string_pack_id, startOfStringData, encoding
-                )
             plural_mapping = mapping["plurals"]
-            for android_id, string_pack_id in plural_mapping.items():
-                locale_dict[android_id] = _loadPlural(
-                    content, string_pack_id, startOfStringData, encoding
+            if compact_index:
+                for android_id, location in string_mapping.items():
+                    locale_dict[android_id] = _decode_location(
+                        content, location, startOfStringData, encoding
+                    )
+                for android_id, plural in plural_mapping.items():
+                    locale_dict[android_id] = {
+                        quantity_id: _decode_location(
+                            content, location, startOfStringData, encoding
+                        )
+                        for quantity_id, location in plural.items()
+                    }
+            else:
+                for android_id, string_pack_id in string_mapping.items():
+                    locale_dict[android_id] = _loadString(
+                        content,
+                        string_pack_id,
+                        startOfStringData,
+                        encoding,
+                        wide_format,
+                    )
+                for android_id, string_pack_id in plural_mapping.items():
+                    locale_dict[android_id] = _loadPlural(
+                        content,
+                        string_pack_id,
+                        startOfStringData,
+                        encoding,
+                        wide_format,
+                    )
+            for android_id, string_pack_id in mapping["arrays"].items():
+                locale_dict[android_id] = _loadArray(
+                    content, string_pack_id, startOfStringData, encoding, wide_format
+                )
+            for (android_id, quantity_id), spans_start in mapping["spans"].items():
+                spans = _loadSpans(
+                    content, spans_start, startOfStringData, encoding, wide_format
                 )
+                if quantity_id == _SPAN_STRING_QUANTITY_ID:
+                    locale_dict[android_id] = StyledText(locale_dict[android_id], spans)
+                else:
+                    plural = locale_dict[android_id]
+                    plural[quantity_id] = StyledText(plural[quantity_id], spans)
         return translation_dict
 
     def compile(self):
-        self.string_buffer = StringBuffer(encoding=self.encoding)
         locales = sorted(self.store.keys())
+        locale_encodings = {
+            locale: self.encoding or pick_encoding(self.store[locale])
+            for locale in locales
+        }
+        # Each encoding has its own strings, in the order of the encoding ids.
+        self.string_buffers = {
+            encoding: StringBuffer(encoding=encoding)
+            for encoding in sorted(set(locale_encodings.values()), key=_ENCODING_ID.get)
+        }
         self.locales_info = bytearray()
         locale_blobs_total_size = 0
         self.locale_blobs = []
+        # All the strings are added first, so that they're laid out together.
         for locale in locales:
-            blob_append_locale(self.locales_info, locale)
+            string_buffer = self.string_buffers[locale_encodings[locale]]
+            for id in sorted(self.store[locale].keys()):
+                value = self.store[locale][id]
+                string_buffer.add(value)
+                for _, spans in _spans_of(value):
+                    for name, _, _ in spans:
+                        string_buffer.add_string(name)
+        self.string_data = bytearray()
+        if len(self.string_buffers) > 1:
+            # The UTF-16BE strings follow the UTF-8 ones, after where they start.
+            utf8, utf16 = self.string_buffers["UTF-8"], self.string_buffers["UTF-16BE"]
+            utf16_start = 4 + len(utf8.layout(start=4))
+            utf16.layout(start=utf16_start)
+            blob_append_32_bit(self.string_data, utf16_start)
+        else:
+            for string_buffer in self.string_buffers.values():
+                string_buffer.layout()
+        for string_buffer in self.string_buffers.values():
+            self.string_data += string_buffer.store
+        locale_stores = []
+        for locale in locales:
+            string_buffer = self.string_buffers[locale_encodings[locale]]
             locale_store = LocaleStore()
             for id in sorted(self.store[locale].keys()):
                 value = self.store[locale][id]
-                locale_store.add_plural_or_string(id, self.string_buffer.add(value))
-            locale_blob = bytes(locale_store.get_binary_blob())
+                locale_store.add_plural_or_string(id, string_buffer.locate(value))
+                self.add_spans(locale_store, id, value, string_buffer)
+            locale_stores.append(locale_store)
+        # The 16-bit format is smaller, so the wide one is only used when needed.
+        wide_format = self.wide_format or any(
+            locale_store.needs_wide_format() for locale_store in locale_stores
+        )
+        for locale, locale_store in zip(locales, locale_stores):
+            blob_append_locale(self.locales_info, locale)
+            locale_blob = locale_store.get_binary_blob(
+                wide_format, self.compact_index
+            )
             blob_append_32_bit(self.locales_info, locale_blobs_total_size)  # start
             locale_blobs_total_size += len(locale_blob)
             self.locale_blobs.append(locale_blob)
+        header_size = _HEADER_SIZE + _CONTENT_HASH_SIZE
         self.header_blob = bytearray()
         blob_append_16_bit(self.header_blob, len(locales))  # Number of locales
         blob_append_32_bit(
-            self.header_blob, _HEADER_SIZE + len(locales) * _LOCALE_HEADER_SIZE
+            self.header_blob, header_size + len(locales) * _LOCALE_HEADER_SIZE
         )  # Start of locale data
-        self.header_blob.append(_ENCODING_ID[self.encoding])  # Just one byte
+        self.header_blob.append(
+            (
+                _ENCODING_ID_PER_LOCALE
+                if len(self.string_buffers) > 1
+                else _ENCODING_ID[next(iter(self.string_buffers))]
+            )
+            | _FLAG_CONTENT_HASH
+            | _FLAG_SPANS
+            | _FLAG_ARRAYS
+            | (_FLAG_WIDE_FORMAT if wide_format else 0)
+            | (_FLAG_COMPACT_INDEX if self.compact_index else 0)
+        )  # Just one byte
         blob_append_32_bit(
             self.header_blob,
-            _HEADER_SIZE
+            header_size
             + len(locales) * _LOCALE_HEADER_SIZE
             + sum([len(blob) for blob in self.locale_blobs]),
         )  # Start of string data
+        self.header_blob += self.content_hash()
+
+    def add_spans(self, locale_store, id, plural_or_string, string_buffer):
+        for quantity_id, spans in _spans_of(plural_or_string):
+            locale_store.add_spans(
+                id,
+                quantity_id,
+                [
+                    (string_buffer.locate_string(name), start, end)
+                    for name, start, end in spans
+                ],
+            )
+
+    def content_hash(self) -> bytes:
+        "Hash of everything that follows the header. Only valid after compile()."
+        hasher = hashlib.sha256()
+        hasher.update(self.locales_info)
+        for locale_blob in self.locale_blobs:
+            hasher.update(locale_blob)
+        hasher.update(self.string_data)
+        return hasher.digest()[:_CONTENT_HASH_SIZE]
 
     def string_buffer_size(self):
-        return len(self.string_buffer.store)
+        return len(self.string_data)
 
     def write_to_file(self, pack_file_name):
         with open(pack_file_name, "wb") as pack_file:
@@ -502,25 +1326,31 @@ class StringPack(object):
             pack_file.write(self.locales_info)
             for locale_blob in self.locale_blobs:
                 pack_file.write(locale_blob)
-            pack_file.write(self.string_buffer.store)
+            pack_file.write(self.string_data)
 
 
-def build_with_dict(output_file_name: str, translation_dict: TranslationDict) -> None:
+def build_with_dict(
+    output_file_name: str,
+    translation_dict: TranslationDict,
+    compact_index: bool = False,
+) -> None:
     """Builds the string pack and writes it to a file.
 
-    It tries both UTF-8 and UTF-16 to see which one is smaller, and then writes
-    the string pack in that encoding."""
-    packs = []
-    for encoding in _ENCODING_ID.keys():
-        full_store = StringPack(encoding=encoding, translation=translation_dict)
-        full_store.compile()
-        packs.append(full_store)
-    smallest_pack = min(packs, key=lambda p: p.string_buffer_size())
-    smallest_pack.write_to_file(output_file_name)
+    Each locale is written in the encoding its strings are smaller in, so that the pack
+    is only compiled once. See `pick_encoding`."""
+    full_store = StringPack(
+        encoding=None, translation=translation_dict, compact_index=compact_index
+    )
+    full_store.compile()
+    full_store.write_to_file(output_file_name)
 
 
 def build(
-    input_file_names: List, output_file_name: str, id_finder: IdFinder, plural_handler
+    input_file_names: List,
+    output_file_name: str,
+    id_finder: IdFinder,
+    plural_handler,
+    compact_index: bool = False,
 ):
     translation_dict = TranslationDict()
     for input_file_name in input_file_names:
@@ -529,13 +1359,15 @@ def build(
             locale,
             read_string_dict(locale, input_file_name, id_finder, plural_handler),
         )
-    build_with_dict(output_file_name, translation_dict)
+    build_with_dict(output_file_name, translation_dict, compact_index)
 
 
-def get_unused_resource(nullified_resource: str) -> List[str]:
+def get_unused_resource(nullified_resource: str) -> List[Tuple[str, str]]:
+    """Returns the R class type and name of each resource, such as R.string.yes, listed
+    in the given file."""
     with open(nullified_resource, "r") as file:
         lines = file.read().splitlines()
-        return [line[line.rfind(".") + 1 :] for line in lines]
+        return [tuple(line.split(".")[-2:]) for line in lines]
 
 
 def repack(
@@ -85,6 +85,10 @@ class StringPackConfig:
         "resource_config_setting",
         "pack_id_mapping",
         "pack_scripts_directory",
+        "screen_manifests_class_file_path",
+        "find_screen_source_files_command",
+        "compact_index",
+        "layout_inflater_factory",
     ]
 
     def __init__(self):
@@ -151,6 +155,29 @@ class StringPackConfig:
         # The directory that holds all the python scripts
         self.pack_scripts_directory = None
 
+        # File path to the class where the FIND operation stores, for each layout and screen class, the
+        # packed strings it uses. The app can pass them to StringPacks.prewarm() before showing the
+        # screen. No manifests are generated if this is not set.
+        self.screen_manifests_class_file_path = None
+
+        # Executable command line that returns the source files of screens (e.g. Activities or
+        # Fragments) to generate manifests for, in addition to layouts.
+        self.find_screen_source_files_command = None
+
+        # Whether to write the strings and plurals of the packs in compact tables, with ids
+        # delta coded and string locations as varints in blocks. This makes the index about
+        # half as large, and a lookup reads one block of it, at the cost of decoding up to 16
+        # entries per lookup.
+        self.compact_index = False
+
+        # The layouts that the app inflates with StringPackInflaterFactory, as regular
+        # expressions matched against the whole layout name, e.g. "activity_.*". The strings
+        # that these layouts reference in android:text and android:hint of TextViews, and in
+        # android:contentDescription of any view, are packed. Layouts that are inflated
+        # without the factory, such as the RemoteViews of notifications and app widgets, or
+        # the ones inflated from an Application or Service context, must not match.
+        self.layout_inflater_factory = []
+
     def load_from_file(self, config_json_file_path):
         """Load configuration from json file."""
 
@@ -0,0 +1,33 @@
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+import unittest
+
+import benchmark_pack_build
+import generate_corpus
+
+
+class TestBenchmarkPackBuild(unittest.TestCase):
+    def test_benchmark_measures_each_pack(self):
+        results = benchmark_pack_build.benchmark(
+            generate_corpus.CorpusConfig(string_count=100, language_count=2)
+        )
+
+        self.assertEqual(
+            [
+                ("es", "UTF-8"),
+                ("es", "UTF-16BE"),
+                ("ru", "UTF-8"),
+                ("ru", "UTF-16BE"),
+            ],
+            [(language, encoding) for language, encoding, _, _ in results],
+        )
+        for _, _, elapsed, size in results:
+            self.assertGreaterEqual(elapsed, 0)
+            self.assertGreater(size, 0)
+
+
+if __name__ == "__main__":
+    unittest.main()
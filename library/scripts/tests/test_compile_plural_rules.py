@@ -0,0 +1,102 @@
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+import os
+import tempfile
+import unittest
+
+import compile_plural_rules
+
+_PLURALS_XML = """<?xml version="1.0" encoding="UTF-8" ?>
+<supplementalData>
+    <version number="$Revision: 12345 $"/>
+    <plurals type="cardinal">
+        <pluralRules locales="en de">
+            <pluralRule count="one">i = 1 and v = 0 @integer 1</pluralRule>
+            <pluralRule count="other"> @integer 0, 2~16</pluralRule>
+        </pluralRules>
+        <pluralRules locales="nl">
+            <pluralRule count="one">i = 1 and v = 0 @integer 1</pluralRule>
+            <pluralRule count="other"> @integer 0, 2~16</pluralRule>
+        </pluralRules>
+        <pluralRules locales="ja">
+            <pluralRule count="other"> @integer 0~15</pluralRule>
+        </pluralRules>
+    </plurals>
+</supplementalData>
+"""
+
+
+class TestCompilePluralRules(unittest.TestCase):
+    def test_read_plural_rules(self):
+        with tempfile.TemporaryDirectory() as temp_dir:
+            plurals_file = os.path.join(temp_dir, "plurals.xml")
+            with open(plurals_file, "w", encoding="utf-8") as f:
+                f.write(_PLURALS_XML)
+            revision, families = compile_plural_rules.read_plural_rules(plurals_file)
+
+        self.assertEqual("12345", revision)
+        self.assertEqual(
+            [
+                (["en", "de"], [("one", "i = 1 and v = 0")]),
+                (["nl"], [("one", "i = 1 and v = 0")]),
+                (["ja"], []),
+            ],
+            families,
+        )
+
+    def test_compile_relation(self):
+        # i % 100 != 12..14
+        self.assertEqual(
+            [0x31, 100, 1, 12, 14],
+            compile_plural_rules.compile_relation("i % 100 != 12..14"),
+        )
+        # n = 1000000 takes two chars per bound.
+        self.assertEqual(
+            [0x00, 1, 0x800F, 0x4240, 0x800F, 0x4240],
+            compile_plural_rules.compile_relation("n = 1000000"),
+        )
+        with self.assertRaises(ValueError):
+            compile_plural_rules.compile_relation("n within 0..2")
+
+    def test_compile_plural_rules_shares_identical_families(self):
+        locale_families, family_offsets, program = (
+            compile_plural_rules.compile_plural_rules(
+                [
+                    (["en", "de"], [("one", "i = 1 and v = 0")]),
+                    (["nl"], [("one", "i = 1 and v = 0")]),
+                    (["ja"], []),
+                ]
+            )
+        )
+
+        self.assertEqual({"en": 0, "de": 0, "nl": 0, "ja": 1}, locale_families)
+        self.assertEqual([0, 12], family_offsets)
+        self.assertEqual(
+            # one: a single branch of two relations, i = 1 and v = 0
+            [1, 0x02, 1, 8, 0x01, 1, 1, 1, 0x02, 1, 0, 0]
+            # ja has no categories besides "other".
+            + [0],
+            program,
+        )
+
+    def test_generate_java(self):
+        java = compile_plural_rules.generate_java(
+            "12345", {"en": 0, "ja": 1}, [0, 0x0A], [0x22, 0x5C, 0x0D, 0x0A, 0x8000]
+        )
+
+        self.assertIn('static final String LOCALES =\n      "en ja";', java)
+        self.assertIn(
+            'static final String LOCALE_OFFSETS =\n      "\\u0000\\u0003";', java
+        )
+        self.assertIn('static final String FAMILY_OFFSETS =\n      "\\u0000\\n";', java)
+        # Quotes, backslashes and line breaks can't be written as unicode escapes.
+        program = '"\\"\\\\\\r\\n\\u8000"'
+        self.assertIn("static final String PROGRAM =\n      " + program + ";", java)
+        self.assertTrue(all(len(line) <= 100 for line in java.splitlines()))
+
+
+if __name__ == "__main__":
+    unittest.main()
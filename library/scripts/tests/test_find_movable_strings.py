@@ -4,11 +4,13 @@
 # the LICENSE file in the root directory of this source tree.
 
 import filecmp
+import os
 import shutil
 import tempfile
 import unittest
 
 import find_movable_strings as sp_find
+import string_pack_config
 from tests import test_util
 
 
@@ -29,6 +31,69 @@ class TestPackStringsMethods(unittest.TestCase):
             ),
         )
 
+    def test_find_strings_used_in_xml_with_inflater_factory(self):
+        # The factory sets android:text, android:hint and android:contentDescription,
+        # but not the attributes of other namespaces or of data binding expressions.
+        self.assertSetEqual(
+            {"app_title", "button_url"},
+            sp_find.find_strings_used_in_xml(
+                test_util.get_res_path("test_layout.xml"), frozenset(), True
+            ),
+        )
+
+    def test_find_strings_used_in_xml_with_inflater_factory_custom_view(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".xml") as layout:
+            layout.write(
+                "<LinearLayout "
+                'xmlns:android="http://schemas.android.com/apk/res/android">'
+                '<com.example.Label android:text="@string/label" '
+                'android:contentDescription="@string/label_description" />'
+                '<include android:contentDescription="@string/included" />'
+                "</LinearLayout>"
+            )
+            layout.flush()
+            # The text of views that aren't known TextViews isn't set by the factory.
+            self.assertSetEqual(
+                {"label", "included"},
+                sp_find.find_strings_used_in_xml(layout.name, frozenset(), True),
+            )
+
+    def test_generate_non_movable_set_with_inflater_factory(self):
+        with tempfile.TemporaryDirectory() as root:
+            layout_dir = os.path.join(root, "res", "layout")
+            xml_dir = os.path.join(root, "res", "xml")
+            os.makedirs(layout_dir)
+            os.makedirs(xml_dir)
+            layout = os.path.join(layout_dir, "test_layout.xml")
+            shutil.copy(test_util.get_res_path("test_layout.xml"), layout)
+            # Only layouts are inflated with the factory.
+            other = os.path.join(xml_dir, "test_layout.xml")
+            shutil.copy(test_util.get_res_path("test_layout.xml"), other)
+            # Not listed, as for RemoteViews, which are inflated in another process.
+            notification = os.path.join(layout_dir, "notification_layout.xml")
+            shutil.copy(test_util.get_res_path("test_layout.xml"), notification)
+
+            sp_config = string_pack_config.StringPackConfig()
+            sp_config.layout_inflater_factory = ["test_.*"]
+            self.assertSetEqual(
+                {"app_title", "button_url"},
+                sp_find.generate_non_movable_set(sp_config, [layout]),
+            )
+            self.assertSetEqual(
+                {"button", "button_url", "image", "description", "title", "app_title"},
+                sp_find.generate_non_movable_set(sp_config, [layout, other]),
+            )
+            self.assertSetEqual(
+                {"button", "button_url", "image", "description", "title", "app_title"},
+                sp_find.generate_non_movable_set(sp_config, [layout, notification]),
+            )
+            # Patterns match the whole layout name.
+            sp_config.layout_inflater_factory = ["test"]
+            self.assertSetEqual(
+                {"button", "button_url", "image", "description", "title", "app_title"},
+                sp_find.generate_non_movable_set(sp_config, [layout]),
+            )
+
     def test_find_strings_used_in_xml_with_resources(self):
         self.assertSetEqual(
             {"other_string", "string_array_two", "string_array_one", "style_text"},
@@ -37,6 +102,105 @@ class TestPackStringsMethods(unittest.TestCase):
             ),
         )
 
+    def test_find_strings_used_in_xml_with_arrays(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".xml") as layout:
+            layout.write(
+                "<LinearLayout "
+                'xmlns:android="http://schemas.android.com/apk/res/android">'
+                '<Spinner android:entries="@array/sizes" />'
+                '<Button android:text="@string/button" />'
+                "</LinearLayout>"
+            )
+            layout.flush()
+            # Arrays are never safe, even in safe widgets.
+            self.assertSetEqual(
+                {"sizes"},
+                sp_find.find_strings_used_in_xml(
+                    layout.name, frozenset({"Spinner", "Button"})
+                ),
+            )
+
+    def test_find_unpackable_arrays(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".xml") as resources:
+            resources.write(
+                "<resources>"
+                '<string-array name="plain"><item>One</item><item>Two</item>'
+                "</string-array>"
+                '<string-array name="styled"><item><b>One</b></item></string-array>'
+                '<string-array name="referenced"><item>@string/one</item>'
+                "</string-array>"
+                "</resources>"
+            )
+            resources.flush()
+            self.assertSetEqual(
+                {"styled", "referenced"},
+                sp_find.find_unpackable_arrays(resources.name),
+            )
+
+    def test_find_strings_used_in_layout(self):
+        self.assertSetEqual(
+            {
+                ("string", "title"),
+                ("string", "app_title"),
+                ("string", "image"),
+                ("string", "description"),
+                ("string", "button"),
+                ("string", "button_url"),
+            },
+            sp_find.find_strings_used_in_layout(
+                test_util.get_res_path("test_layout.xml")
+            ),
+        )
+
+    def test_generate_screen_manifests(self):
+        with tempfile.TemporaryDirectory() as root:
+            layout_dir = os.path.join(root, "res", "layout")
+            os.makedirs(layout_dir)
+            layout = os.path.join(layout_dir, "test_layout.xml")
+            shutil.copy(test_util.get_res_path("test_layout.xml"), layout)
+            activity = os.path.join(root, "MainActivity.java")
+            with open(activity, "wt") as source:
+                source.write(
+                    "setTitle(R.string.title);\n"
+                    "getQuantityString(R.plurals.people, 2);\n"
+                    "getString(R.string.not_packed);\n"
+                )
+
+            self.assertDictEqual(
+                {
+                    "layoutTestLayout": [("string", "image"), ("string", "title")],
+                    "screenMainActivity": [("plurals", "people"), ("string", "title")],
+                },
+                sp_find.generate_screen_manifests(
+                    [layout],
+                    [activity],
+                    {("string", "title"), ("string", "image"), ("plurals", "people")},
+                ),
+            )
+
+    def test_generate_screen_manifests_merges_layout_variants(self):
+        with tempfile.TemporaryDirectory() as root:
+            layouts = []
+            for directory, string in (("layout", "title"), ("layout-land", "subtitle")):
+                layout_dir = os.path.join(root, "res", directory)
+                os.makedirs(layout_dir)
+                layout = os.path.join(layout_dir, "main.xml")
+                with open(layout, "wt") as layout_file:
+                    layout_file.write(
+                        "<LinearLayout "
+                        'xmlns:android="http://schemas.android.com/apk/res/android">'
+                        '<TextView android:text="@string/%s" />'
+                        "</LinearLayout>" % string
+                    )
+                layouts.append(layout)
+
+            self.assertDictEqual(
+                {"layoutMain": [("string", "subtitle"), ("string", "title")]},
+                sp_find.generate_screen_manifests(
+                    layouts, [], {("string", "title"), ("string", "subtitle")}
+                ),
+            )
+
     def test_do_not_pack_strings_not_packed_into_resource(self):
         self.assertSetEqual(
             {"donotpack_string"},
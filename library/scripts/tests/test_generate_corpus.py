@@ -0,0 +1,72 @@
+# Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+#
+# This source code is licensed under the Apache 2.0 license found in
+# the LICENSE file in the root directory of this source tree.
+
+import os
+import tempfile
+import unittest
+
+import generate_corpus
+import string_pack
+
+
+class TestGenerateCorpus(unittest.TestCase):
+    def setUp(self):
+        self.config = generate_corpus.CorpusConfig(
+            string_count=200,
+            plural_ratio=0.1,
+            language_count=8,
+            region_ratio=1.0,
+            override_ratio=0.1,
+        )
+
+    def test_generate_mixes_scripts(self):
+        corpus = generate_corpus.generate(self.config)
+
+        self.assertEqual(
+            ["es", "ru", "ar", "hi", "zh", "ko", "th", "fr"], list(corpus.keys())
+        )
+
+    def test_generate_shape(self):
+        corpus = generate_corpus.generate(self.config)
+
+        for language, translation_dict in corpus.items():
+            self.assertEqual(2, len(translation_dict.store))
+            entries = translation_dict.store[language]
+            self.assertEqual(200, len(entries))
+            plurals = [value for value in entries.values() if type(value) is dict]
+            self.assertEqual(20, len(plurals))
+            for plural in plurals:
+                self.assertIn(0, plural)  # "other"
+            (region,) = [
+                locale for locale in translation_dict.store if locale != language
+            ]
+            self.assertTrue(region.startswith(language + "-"))
+            self.assertEqual(20, len(translation_dict.store[region]))
+
+    def test_generate_is_reproducible(self):
+        first = generate_corpus.generate(self.config)
+        second = generate_corpus.generate(self.config)
+
+        for language in first:
+            self.assertEqual(first[language].store, second[language].store)
+
+    def test_write_corpus_round_trips(self):
+        self.config.language_count = 2
+        corpus = generate_corpus.generate(self.config)
+
+        with tempfile.TemporaryDirectory() as output_directory:
+            paths = generate_corpus.write_corpus(output_directory, self.config)
+
+            self.assertEqual(
+                [os.path.join(output_directory, "strings_es.pack")], paths[:1]
+            )
+            for path, (language, translation_dict) in zip(paths, corpus.items()):
+                self.assertEqual(
+                    translation_dict.store, string_pack.StringPack.from_file(path)
+                )
+
+
+if __name__ == "__main__":
+    unittest.main()
@@ -6,9 +6,12 @@
 # the LICENSE file in the root directory of this source tree.
 
 
+import os
+import tempfile
 import unittest
 
 import move_strings_for_packing as sp_move
+from id_finder import IdFinder
 from tests import test_util
 
 
@@ -19,6 +22,32 @@ class TestPackStringsMethods(unittest.TestCase):
             sp_move.get_dest_file("app", "zh"),
         )
 
+    def test_move_strings_with_same_name_as_array(self):
+        with tempfile.TemporaryDirectory() as directory:
+            src_file = os.path.join(directory, "strings.xml")
+            dst_file = os.path.join(directory, "packed", "strings.xml")
+            with open(src_file, "wt") as resources:
+                resources.write(
+                    "<resources>\n"
+                    '    <string name="colors">Colors</string>\n'
+                    '    <string-array name="colors">\n'
+                    "        <item>Red</item>\n"
+                    "    </string-array>\n"
+                    "</resources>\n"
+                )
+
+            # Only the string is packed, so the array stays in the resources.
+            sp_move.move_strings(
+                src_file, dst_file, IdFinder([("string", "colors")]), keep_dest=False
+            )
+
+            with open(src_file) as resources:
+                self.assertIn('<string-array name="colors">', resources.read())
+            with open(dst_file) as resources:
+                moved = resources.read()
+            self.assertIn('<string name="colors">', moved)
+            self.assertNotIn("<string-array", moved)
+
     def test_get_resource_file_content(self):
         self.assertEqual(
             (
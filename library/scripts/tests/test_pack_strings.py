@@ -3,9 +3,14 @@
 # This source code is licensed under the Apache 2.0 license found in
 # the LICENSE file in the root directory of this source tree.
 
+import os
+import shutil
+import tempfile
 import unittest
+from unittest import mock
 
 import pack_strings
+import string_pack
 import string_pack_config
 from pack_strings import IdFinder
 from tests import test_util
@@ -150,9 +155,9 @@ class TestPackStringsMethods(unittest.TestCase):
         self.assertEqual("app/src/main/assets/strings_ca.pack", pack_file_pack)
 
     EXPECTED_DICT = {
-        "people": 0,
-        "no": 1,
-        "yes": 2,
+        ("plurals", "people"): 0,
+        ("string", "no"): 1,
+        ("string", "yes"): 2,
     }
 
     def test_get_parse_id_from_resource_config(self):
@@ -165,3 +170,156 @@ class TestPackStringsMethods(unittest.TestCase):
         self.sp_config.resource_config_setting = {"config_file_path": config_path}
         id_finder = IdFinder.from_stringpack_config(self.sp_config)
         self.assertDictEqual(id_finder.seen_ids, self.EXPECTED_DICT)
+
+    def test_get_parse_id_with_same_name_for_string_and_array(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".java") as pack_ids:
+            pack_ids.write(
+                "    // region String Pack IDs\n"
+                "          R.array.colors,\n"
+                "          R.string.colors,\n"
+                "    // endregion\n"
+            )
+            pack_ids.flush()
+            self.sp_config.pack_ids_class_file_path = pack_ids.name
+            id_finder = IdFinder.from_stringpack_config(self.sp_config)
+
+        self.assertEqual(0, id_finder.get_id("array", "colors"))
+        self.assertEqual(1, id_finder.get_id("string", "colors"))
+        self.assertIsNone(id_finder.get_id("plurals", "colors"))
+
+    def _change_strings_file(self, strings_file):
+        with open(strings_file) as resources:
+            content = resources.read()
+        with open(strings_file, "w") as resources:
+            resources.write(content.replace("first string", "changed string"))
+
+    def _write_strings_files(self, directory):
+        string_files = []
+        for language in ["en", "fr"]:
+            values_directory = os.path.join(directory, f"values-{language}")
+            os.makedirs(values_directory)
+            string_files.append(os.path.join(values_directory, "strings.xml"))
+            shutil.copy(
+                test_util.get_res_path("test_resources_en.xml"), string_files[-1]
+            )
+        return string_files
+
+    def test_get_pack_digest(self):
+        id_finder = IdFinder(
+            [("plurals", "first_plurals"), ("string", "first_string")]
+        )
+        shared_digest = pack_strings.get_shared_digest(
+            self.sp_config, id_finder, pack_strings.noop_plural_handler
+        )
+        with tempfile.TemporaryDirectory() as directory:
+            string_files = self._write_strings_files(directory)
+            digest = pack_strings.get_pack_digest(shared_digest, string_files)
+
+            self.assertEqual(
+                digest,
+                pack_strings.get_pack_digest(
+                    shared_digest, list(reversed(string_files))
+                ),
+            )
+            self.assertNotEqual(
+                digest,
+                pack_strings.get_pack_digest(
+                    pack_strings.get_shared_digest(
+                        self.sp_config,
+                        IdFinder([("string", "first_string")]),
+                        pack_strings.noop_plural_handler,
+                    ),
+                    string_files,
+                ),
+            )
+            self.assertNotEqual(
+                digest,
+                pack_strings.get_pack_digest(
+                    pack_strings.get_shared_digest(
+                        self.sp_config, id_finder, lambda *args: True
+                    ),
+                    string_files,
+                ),
+            )
+            self.sp_config.compact_index = True
+            self.assertNotEqual(
+                digest,
+                pack_strings.get_pack_digest(
+                    pack_strings.get_shared_digest(
+                        self.sp_config, id_finder, pack_strings.noop_plural_handler
+                    ),
+                    string_files,
+                ),
+            )
+            self._change_strings_file(string_files[1])
+            self.assertNotEqual(
+                digest, pack_strings.get_pack_digest(shared_digest, string_files)
+            )
+
+    def test_get_shared_digest_hashes_all_pack_scripts(self):
+        id_finder = IdFinder([("string", "first_string")])
+        with tempfile.TemporaryDirectory() as directory:
+            for script in ["pack_strings.py", "id_finder.py"]:
+                with open(os.path.join(directory, script), "w") as script_file:
+                    script_file.write("# " + script)
+            with mock.patch.object(pack_strings, "_PACK_SCRIPTS_DIRECTORY", directory):
+                shared_digest = pack_strings.get_shared_digest(
+                    self.sp_config, id_finder, pack_strings.noop_plural_handler
+                )
+                with open(os.path.join(directory, "id_finder.py"), "a") as script_file:
+                    script_file.write("\n# Changed")
+
+                self.assertNotEqual(
+                    shared_digest,
+                    pack_strings.get_shared_digest(
+                        self.sp_config, id_finder, pack_strings.noop_plural_handler
+                    ),
+                )
+
+    def test_build_skips_up_to_date_packs(self):
+        id_finder = IdFinder(
+            [("plurals", "first_plurals"), ("string", "first_string")]
+        )
+        with tempfile.TemporaryDirectory() as directory:
+            self.sp_config.assets_directory = directory
+            string_files = self._write_strings_files(directory)
+            grouped_file_paths = {"en": string_files[:1], "fr": string_files[1:]}
+            builder = pack_strings.PackBuilder(
+                self.sp_config,
+                grouped_file_paths,
+                id_finder,
+                pack_strings.noop_plural_handler,
+            )
+            with mock.patch.object(
+                pack_strings,
+                "get_shared_digest",
+                wraps=pack_strings.get_shared_digest,
+            ) as get_shared_digest:
+                digests = builder.build()
+            # The inputs shared by all packs are hashed once, not once per pack.
+            get_shared_digest.assert_called_once()
+            en_pack, fr_pack = [
+                pack_strings.get_dest_pack_file_path(self.sp_config, pack_id)
+                for pack_id in ["en", "fr"]
+            ]
+            fr_strings = string_pack.StringPack.from_file(fr_pack)
+
+            # Only the pack whose strings changed is built again.
+            self._change_strings_file(string_files[0])
+            for pack in [en_pack, fr_pack]:
+                with open(pack, "wb") as pack_file:
+                    pack_file.write(b"stale")
+            new_digests = builder.build(digests)
+
+            self.assertNotEqual(digests["en"], new_digests["en"])
+            self.assertEqual(digests["fr"], new_digests["fr"])
+            self.assertEqual(
+                "changed string", string_pack.StringPack.from_file(en_pack)["en"][1]
+            )
+            with open(fr_pack, "rb") as pack_file:
+                self.assertEqual(b"stale", pack_file.read())
+
+            # Missing packs are built again.
+            os.remove(fr_pack)
+            builder.build(new_digests)
+            self.assertEqual(fr_strings, string_pack.StringPack.from_file(fr_pack))
@@ -7,18 +7,24 @@
 import json
 import tempfile
 import unittest
-from typing import Dict, Optional
+from typing import Dict
+from xml.etree import ElementTree
 
 import pack_strings
 import string_pack
+from id_finder import IdFinder
 from tests import test_util
 
 
-class FakeIdFinder(object):
-    TEST_DATA = {"first_plurals": 0, "first_string": 1, "second_string": 2}
-
-    def get_id(self, resource_name: str) -> Optional[int]:
-        return FakeIdFinder.TEST_DATA.get(resource_name)
+class FakeIdFinder(IdFinder):
+    def __init__(self):
+        super().__init__(
+            [
+                ("plurals", "first_plurals"),
+                ("string", "first_string"),
+                ("string", "second_string"),
+            ]
+        )
 
 
 def _compare_dict_deep(d1: Dict, d2: Dict) -> bool:
@@ -117,6 +123,312 @@ class TestStringPackMethods(unittest.TestCase):
                 )
             )
 
+    def test_content_hash(self):
+        def compile_pack(translation_dict):
+            translation = string_pack.TranslationDict()
+            translation.add_translation(translation_dict)
+            full_store = string_pack.StringPack(
+                encoding="UTF-8", translation=translation
+            )
+            full_store.compile()
+            return full_store
+
+        first = compile_pack(self.TEST_TRANSLATION)
+        self.assertEqual(
+            first.content_hash(), compile_pack(self.TEST_TRANSLATION).content_hash()
+        )
+        self.assertNotEqual(
+            first.content_hash(), compile_pack(self.EXPECTED_TRANSLATION).content_hash()
+        )
+        self.assertTrue(first.header_blob.endswith(first.content_hash()))
+
+    def test_read_text_with_markup(self):
+        text = string_pack.read_text(
+            ElementTree.fromstring(
+                "<string>Tap <b>here</b> to <i>go <u>on</u></i>, don\\'t wait</string>"
+            )
+        )
+        self.assertEqual("Tap here to go on, don't wait", text)
+        self.assertEqual((("b", 4, 8), ("i", 12, 17), ("u", 15, 17)), text.spans)
+
+        # Offsets are in UTF-16 code units, and attributes are part of the span name.
+        text = string_pack.read_text(
+            ElementTree.fromstring(
+                '<string>\U0001F600 <annotation font="title">hi</annotation></string>'
+            )
+        )
+        self.assertEqual("\U0001F600 hi", text)
+        self.assertEqual((("annotation;font=title", 3, 5),), text.spans)
+
+        self.assertNotIsInstance(
+            string_pack.read_text(ElementTree.fromstring("<string>plain</string>")),
+            string_pack.StyledText,
+        )
+
+    def test_styled_text(self):
+        self._test_styled_text("UTF-8")
+        self._test_styled_text("UTF-16BE")
+
+    def _test_styled_text(self, encoding):
+        bold = string_pack.StyledText("bold and italic", [("b", 0, 4), ("i", 9, 15)])
+        link = string_pack.StyledText("one link", [("a;href=https://a.b", 4, 8)])
+        translation = string_pack.TranslationDict()
+        translation.add_translation(
+            {"en": {0: {0: "links", 2: link}, 1: bold, 2: "plain"}}
+        )
+        full_store = string_pack.StringPack(encoding=encoding, translation=translation)
+        full_store.compile()
+        with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+            full_store.write_to_file(pack.name)
+            unpacked = string_pack.StringPack.from_file(pack.name)["en"]
+
+        self.assertEqual(bold, unpacked[1])
+        self.assertEqual(bold.spans, unpacked[1].spans)
+        self.assertEqual(link.spans, unpacked[0][2].spans)
+        self.assertNotIsInstance(unpacked[0][0], string_pack.StyledText)
+        self.assertNotIsInstance(unpacked[2], string_pack.StyledText)
+
+    def test_read_string_array(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".xml") as resources:
+            resources.write(
+                "<resources>\n"
+                '    <string-array name="colors">\n'
+                "        <item>Red</item>\n"
+                "        <item>Don\\'t <b>care</b></item>\n"
+                "    </string-array>\n"
+                '    <string-array name="sizes">\n'
+                "        <item>S</item>\n"
+                "    </string-array>\n"
+                "</resources>\n"
+            )
+            resources.flush()
+            string_dict = string_pack.read_string_dict(
+                "en",  # Don't care
+                resources.name,
+                IdFinder([("array", "colors"), ("array", "sizes")]),
+                pack_strings.noop_plural_handler,
+                {"R.array.sizes"},
+            )
+
+        self.assertDictEqual({0: ["Red", "Don't care"]}, string_dict)
+        self.assertNotIsInstance(string_dict[0][1], string_pack.StyledText)
+
+    def test_read_string_and_array_with_same_name(self):
+        with tempfile.NamedTemporaryFile("wt", suffix=".xml") as resources:
+            resources.write(
+                "<resources>\n"
+                '    <string name="colors">Colors</string>\n'
+                '    <string-array name="colors">\n'
+                "        <item>Red</item>\n"
+                "    </string-array>\n"
+                "</resources>\n"
+            )
+            resources.flush()
+            string_dict = string_pack.read_string_dict(
+                "en",  # Don't care
+                resources.name,
+                IdFinder([("array", "colors"), ("string", "colors")]),
+                pack_strings.noop_plural_handler,
+            )
+
+        self.assertDictEqual({0: ["Red"], 1: "Colors"}, string_dict)
+
+    def test_string_array(self):
+        self._test_string_array("UTF-8")
+        self._test_string_array("UTF-16BE")
+
+    def _test_string_array(self, encoding):
+        translation_dict = {
+            "en": {0: ["Red", "Green", ""], 1: "Green", 2: {0: "colors", 2: "color"}},
+            "en-GB": {0: ["Red", "Grey"]},
+        }
+        translation = string_pack.TranslationDict()
+        translation.add_translation(translation_dict)
+        full_store = string_pack.StringPack(encoding=encoding, translation=translation)
+        full_store.compile()
+        with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+            full_store.write_to_file(pack.name)
+            self.assertTrue(
+                _compare_dict_deep(
+                    string_pack.StringPack.from_file(pack.name), translation_dict
+                )
+            )
+
+    def test_wide_format(self):
+        long_text = "x" * 40000
+        styled = string_pack.StyledText(long_text + "end", [("b", 40000, 40003)])
+        translation_dict = {
+            "en": {
+                0: {0: long_text, 2: "one"},
+                1: "small",
+                40000: ["Red", long_text],
+                70000: styled,
+            },
+            "en-GB": {1: "smaller"},
+        }
+        translation = string_pack.TranslationDict()
+        translation.add_translation(translation_dict)
+        with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+            string_pack.build_with_dict(pack.name, translation)
+            with open(pack.name, "rb") as pack_file:
+                encoding_byte = pack_file.read()[6]
+            unpacked = string_pack.StringPack.from_file(pack.name)
+
+        self.assertTrue(encoding_byte & string_pack._FLAG_WIDE_FORMAT)
+        self.assertTrue(_compare_dict_deep(unpacked, translation_dict))
+        self.assertEqual(styled.spans, unpacked["en"][70000].spans)
+
+    def test_ids_above_maximum_are_rejected(self):
+        for id in [string_pack.MAX_ID + 1, 2**31 - 1]:
+            translation = string_pack.TranslationDict()
+            translation.add_translation({"en": {id: "Too far"}})
+            with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+                with self.assertRaises(ValueError):
+                    string_pack.build_with_dict(pack.name, translation)
+
+    def test_wide_format_only_when_needed(self):
+        translation = string_pack.TranslationDict()
+        translation.add_translation(self.TEST_TRANSLATION)
+        narrow = string_pack.StringPack(encoding="UTF-8", translation=translation)
+        narrow.compile()
+        wide = string_pack.StringPack(
+            encoding="UTF-8", translation=translation, wide_format=True
+        )
+        wide.compile()
+
+        self.assertFalse(narrow.header_blob[6] & string_pack._FLAG_WIDE_FORMAT)
+        self.assertTrue(wide.header_blob[6] & string_pack._FLAG_WIDE_FORMAT)
+        with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+            wide.write_to_file(pack.name)
+            self.assertTrue(
+                _compare_dict_deep(
+                    string_pack.StringPack.from_file(pack.name), self.TEST_TRANSLATION
+                )
+            )
+
+    def test_compact_index(self):
+        styled = string_pack.StyledText("Tap here", [("b", 4, 8)])
+        strings = {id: "String %d" % id for id in range(2, 100, 3)}
+        translation_dict = {
+            "en": {0: {0: "%d items", 2: "1 item"}, 1: styled, 100: ["Red"], **strings},
+            "en-GB": {1: "Colour", 50: "", 101: {0: "many", 2: "one"}},
+        }
+        translation = string_pack.TranslationDict()
+        translation.add_translation(translation_dict)
+        with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+            string_pack.build_with_dict(pack.name, translation, compact_index=True)
+            with open(pack.name, "rb") as pack_file:
+                encoding_byte = pack_file.read()[6]
+            unpacked = string_pack.StringPack.from_file(pack.name)
+
+        self.assertTrue(encoding_byte & string_pack._FLAG_COMPACT_INDEX)
+        self.assertTrue(_compare_dict_deep(unpacked, translation_dict))
+        self.assertEqual(styled.spans, unpacked["en"][1].spans)
+
+    def test_compact_index_is_smaller(self):
+        translation = string_pack.TranslationDict()
+        translation.add_for_locale("en", {id: "String %d" % id for id in range(1000)})
+        packs = []
+        for compact_index in [False, True]:
+            pack = string_pack.StringPack(
+                encoding="UTF-8", translation=translation, compact_index=compact_index
+            )
+            pack.compile()
+            packs.append(pack)
+        fixed_size, compact = [len(pack.locale_blobs[0]) for pack in packs]
+
+        self.assertEqual(packs[0].string_data, packs[1].string_data)
+        self.assertLess(compact, fixed_size / 2)
+
+    def test_pick_encoding(self):
+        self.assertEqual("UTF-8", string_pack.pick_encoding({0: "Hello", 1: ["Red"]}))
+        self.assertEqual("UTF-8", string_pack.pick_encoding({0: "Привет, мир"}))
+        self.assertEqual(
+            "UTF-16BE", string_pack.pick_encoding({0: {0: "%d 个项目", 2: "1 个项目"}})
+        )
+
+    def test_per_locale_encoding(self):
+        translation_dict = {
+            "zh": {
+                0: {0: "%d 个项目", 2: "1 个项目"},
+                1: string_pack.StyledText("点击这里", [("b", 2, 4)]),
+                2: ["红色", "绿色"],
+            },
+            "zh-Latn": {
+                0: {0: "%d ge xiangmu", 2: "1 ge xiangmu"},
+                1: string_pack.StyledText("Dianji zheli", [("b", 7, 12)]),
+            },
+        }
+        translation = string_pack.TranslationDict()
+        translation.add_translation(translation_dict)
+        for compact_index in [False, True]:
+            per_locale = string_pack.StringPack(
+                encoding=None, translation=translation, compact_index=compact_index
+            )
+            per_locale.compile()
+            with tempfile.NamedTemporaryFile(suffix=".pack") as pack:
+                per_locale.write_to_file(pack.name)
+                unpacked = string_pack.StringPack.from_file(pack.name)
+
+            self.assertEqual(
+                string_pack._ENCODING_ID_PER_LOCALE,
+                per_locale.header_blob[6] & string_pack._ENCODING_MASK,
+            )
+            self.assertTrue(_compare_dict_deep(unpacked, translation_dict))
+            self.assertEqual((("b", 2, 4),), unpacked["zh"][1].spans)
+            self.assertEqual((("b", 7, 12),), unpacked["zh-Latn"][1].spans)
+            for encoding in string_pack._ENCODING_ID:
+                single = string_pack.StringPack(
+                    encoding=encoding,
+                    translation=translation,
+                    compact_index=compact_index,
+                )
+                single.compile()
+                self.assertLess(
+                    per_locale.string_buffer_size(), single.string_buffer_size()
+                )
+
+    def test_single_encoding_when_locales_agree(self):
+        translation = string_pack.TranslationDict()
+        translation.add_translation(self.TEST_TRANSLATION)
+        pack = string_pack.StringPack(encoding=None, translation=translation)
+        pack.compile()
+
+        self.assertEqual(
+            string_pack._ENCODING_ID["UTF-8"],
+            pack.header_blob[6] & string_pack._ENCODING_MASK,
+        )
+
+    def test_string_buffer_shares_contained_strings(self):
+        strings = ["start", "Tap", "Tap here to start", "here", "ere", "t"]
+        for encoding in ["UTF-8", "UTF-16BE"]:
+            string_buffer = string_pack.StringBuffer(encoding)
+            for string in strings:
+                string_buffer.add_string(string)
+            string_buffer.layout()
+
+            self.assertEqual(
+                "Tap here to start".encode(encoding), bytes(string_buffer.store)
+            )
+            for string in strings:
+                start, length = string_buffer.locate_string(string)
+                self.assertEqual(
+                    string,
+                    string_buffer.store[start : start + length].decode(encoding),
+                )
+
+    def test_string_buffer_overlaps_strings(self):
+        plural = {0: "Delete %d chats", 2: "Delete chat"}
+        array = ["chat history", "Delete"]
+        string_buffer = string_pack.StringBuffer("UTF-8")
+        string_buffer.add(plural)
+        string_buffer.add(array)
+        string_buffer.layout()
+
+        self.assertEqual(b"Delete %d chatsDelete chat history", string_buffer.store)
+        self.assertEqual({0: (0, 15), 2: (15, 11)}, string_buffer.locate(plural))
+        self.assertEqual([(22, 12), (0, 6)], string_buffer.locate(array))
+
     def test_repacking_no_removal(self):
         translation = string_pack.TranslationDict()
         translation.add_translation(self.TEST_TRANSLATION)
@@ -127,7 +439,12 @@ class TestStringPackMethods(unittest.TestCase):
         translation = string_pack.TranslationDict()
         translation.add_translation(self.TEST_TRANSLATION)
         translation.remove_unused_translation(
-            FakeIdFinder(), ["first_plurals", "first_string", "second_string"]
+            FakeIdFinder(),
+            [
+                ("plurals", "first_plurals"),
+                ("string", "first_string"),
+                ("string", "second_string"),
+            ],
         )
         self.assertTrue(
             _compare_dict_deep(
@@ -140,7 +457,12 @@ class TestStringPackMethods(unittest.TestCase):
         translation = string_pack.TranslationDict()
         translation.add_translation({"en": {0: {}, 1: ""}})
         translation.remove_unused_translation(
-            FakeIdFinder(), ["first_plurals", "first_string", "second_string"]
+            FakeIdFinder(),
+            [
+                ("plurals", "first_plurals"),
+                ("string", "first_string"),
+                ("string", "second_string"),
+            ],
         )
         self.assertTrue(
             _compare_dict_deep(
@@ -151,7 +473,7 @@ class TestStringPackMethods(unittest.TestCase):
 
     def test_parse_nullified_resource_file(self):
         self.assertListEqual(
-            ["people", "yes", "irrelevant"],
+            [("plurals", "people"), ("string", "yes"), ("string", "irrelevant")],
             string_pack.get_unused_resource(
                 test_util.get_res_path("unused_resource.txt"),
             ),
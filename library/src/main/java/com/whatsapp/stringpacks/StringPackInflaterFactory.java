@@ -0,0 +1,156 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A {@link LayoutInflater.Factory2} that resolves the strings referenced by {@code android:text},
+ * {@code android:hint} and {@code android:contentDescription} in layouts through {@link
+ * StringPacks}. Views read these attributes from a {@code TypedArray}, which doesn't go through
+ * {@link StringPackResources}, so without this the packed strings they reference would show in the
+ * default language.
+ *
+ * <p>The views are created by the delegate factory, if any, such as the one of AppCompat, or by
+ * the inflater, and their packed strings are set right after. List the layouts inflated with it in
+ * {@code "layout_inflater_factory"} in the config of find_movable_strings.py for it to pack the
+ * strings that they reference this way. Layouts that are inflated without it, such as the {@code
+ * RemoteViews} of notifications and app widgets, must not be listed.
+ */
+public class StringPackInflaterFactory implements LayoutInflater.Factory2 {
+
+  private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+  private static final int NO_ID = 0;
+
+  // Packages of the framework views that layouts name without a package, as PhoneLayoutInflater
+  // looks them up.
+  private static final String[] FRAMEWORK_VIEW_PREFIXES = {
+    "android.widget.", "android.webkit.", "android.app.", "android.view."
+  };
+
+  @NonNull private final LayoutInflater inflater;
+  @Nullable private final LayoutInflater.Factory2 delegate;
+
+  /**
+   * Sets a factory on the given inflater, for example the one of an Activity before calling {@code
+   * super.onCreate()}. A factory can only be set once on an inflater, so when using AppCompat, pass
+   * a delegate that calls {@code AppCompatDelegate#createView} to keep its widgets.
+   *
+   * @param inflater the inflater to set the factory on
+   * @param delegate the factory that creates the views, or null to use the one already set on the
+   *     inflater, if any
+   * @throws IllegalStateException if a factory was already set on the inflater, rather than
+   *     inherited from the one it was cloned from
+   */
+  public static void install(
+      @NonNull LayoutInflater inflater, @Nullable LayoutInflater.Factory2 delegate) {
+    inflater.setFactory2(
+        new StringPackInflaterFactory(
+            inflater, delegate != null ? delegate : inflater.getFactory2()));
+  }
+
+  public static void install(@NonNull LayoutInflater inflater) {
+    install(inflater, null);
+  }
+
+  StringPackInflaterFactory(
+      @NonNull LayoutInflater inflater, @Nullable LayoutInflater.Factory2 delegate) {
+    this.inflater = inflater;
+    this.delegate = delegate;
+  }
+
+  @Nullable
+  @Override
+  public View onCreateView(
+      @Nullable View parent,
+      @NonNull String name,
+      @NonNull Context context,
+      @NonNull AttributeSet attrs) {
+    View view = delegate != null ? delegate.onCreateView(parent, name, context, attrs) : null;
+    if (view == null) {
+      view = createView(name, context, attrs);
+    }
+    if (view != null) {
+      setPackedStrings(view, attrs);
+    }
+    return view;
+  }
+
+  @Nullable
+  @Override
+  public View onCreateView(
+      @NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+    return onCreateView(null, name, context, attrs);
+  }
+
+  /**
+   * Creates the view like the inflater would, or returns null for tags that are not views, such as
+   * {@code <fragment>}, so the inflater handles them itself.
+   */
+  @Nullable
+  private View createView(
+      @NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+    if (name.indexOf('.') != -1) {
+      return createView(name, null, context, attrs);
+    }
+    for (String prefix : FRAMEWORK_VIEW_PREFIXES) {
+      final View view = createView(name, prefix, context, attrs);
+      if (view != null) {
+        return view;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private View createView(
+      @NonNull String name,
+      @Nullable String prefix,
+      @NonNull Context context,
+      @NonNull AttributeSet attrs) {
+    try {
+      if (Build.VERSION.SDK_INT >= 29) {
+        return inflater.createView(context, name, prefix, attrs);
+      }
+      // Before API 29, the view gets the context of the inflater, so clone the inflater when the
+      // layout sets a theme on the view.
+      if (context != inflater.getContext()) {
+        return inflater.cloneInContext(context).createView(name, prefix, attrs);
+      }
+      return inflater.createView(name, prefix, attrs);
+    } catch (ClassNotFoundException exception) {
+      return null;
+    }
+  }
+
+  private static void setPackedStrings(@NonNull View view, @NonNull AttributeSet attrs) {
+    final StringPacks stringPacks = StringPacks.getInstance();
+    if (view instanceof TextView) {
+      final TextView textView = (TextView) view;
+      final int textId = attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "text", NO_ID);
+      if (textId != NO_ID && stringPacks.isPacked(textId)) {
+        textView.setText(stringPacks.getText(textId));
+      }
+      final int hintId = attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "hint", NO_ID);
+      if (hintId != NO_ID && stringPacks.isPacked(hintId)) {
+        textView.setHint(stringPacks.getText(hintId));
+      }
+    }
+    final int descriptionId =
+        attrs.getAttributeResourceValue(ANDROID_NAMESPACE, "contentDescription", NO_ID);
+    if (descriptionId != NO_ID && stringPacks.isPacked(descriptionId)) {
+      view.setContentDescription(stringPacks.getText(descriptionId));
+    }
+  }
+}
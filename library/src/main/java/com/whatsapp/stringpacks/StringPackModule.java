@@ -0,0 +1,63 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import android.util.SparseIntArray;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A module registered with {@link StringPacks#registerModule(String, int[])}, with its own id
+ * table and pack files, named {@code <module>_strings_<pack id>.pack} by pack_strings.py when
+ * `module` is set in its config.
+ *
+ * <p>The pack of a module is mapped on the first lookup of one of its strings after each {@link
+ * StringPacks#setUp}, rather than by setUp itself, so the cost of setUp doesn't depend on how many
+ * modules are registered.
+ */
+final class StringPackModule {
+
+  @NonNull final String name;
+  @NonNull private final SparseIntArray resIdToPackIdMap;
+
+  // Serializes the loading of the pack, so that concurrent first lookups map it once.
+  @NonNull final Object loadLock = new Object();
+
+  // Guarded by the pack lock of StringPacks. Null if the module has no pack for the current locale.
+  @Nullable ParsedStringPack parsedStringPack;
+
+  // The StringPacks set up generation parsedStringPack was loaded for. Read without the lock, to
+  // tell whether the pack needs to be loaded.
+  volatile int generation = -1;
+
+  StringPackModule(@NonNull String name, @NonNull SparseIntArray resIdToPackIdMap) {
+    this.name = name;
+    this.resIdToPackIdMap = resIdToPackIdMap;
+  }
+
+  /** Returns the id of the given resource in the packs of the module, or {@code notPacked}. */
+  int getPackId(int resId, int notPacked) {
+    return resIdToPackIdMap.get(resId, notPacked);
+  }
+
+  int size() {
+    return resIdToPackIdMap.size();
+  }
+
+  int resIdAt(int index) {
+    return resIdToPackIdMap.keyAt(index);
+  }
+
+  /**
+   * Returns the name of the module's pack file, without extension, for the given name of the main
+   * pack file.
+   */
+  @NonNull
+  String getPackFileName(@NonNull String fileName) {
+    return name + "_" + fileName;
+  }
+}
@@ -52,21 +52,18 @@ public class StringPackResources extends Resources {
 
   @Override
   public CharSequence getText(int id) throws NotFoundException {
-    // TODO(T176823671) Support getText() in StringPacks.
-    return stringPacks.getString(id);
+    return stringPacks.getText(id);
   }
 
   @Override
   public CharSequence getText(int id, CharSequence def) {
-    // TODO(T176823671) Support getText() in StringPacks.
-    String text = id != 0 ? stringPacks.getString(id) : null;
+    CharSequence text = id != 0 ? stringPacks.getText(id) : null;
     return text != null ? text : def;
   }
 
   @Override
   public CharSequence getQuantityText(int id, int quantity) throws NotFoundException {
-    // TODO(T176823853) Support getQuantityText() in StringPacks.
-    return stringPacks.getQuantityString(id, quantity);
+    return stringPacks.getQuantityText(id, quantity);
   }
 
   @Override
@@ -90,6 +87,16 @@ public class StringPackResources extends Resources {
     return formatString(stringPacks.getQuantityString(id, quantity), formatArgs);
   }
 
+  @Override
+  public CharSequence[] getTextArray(int id) throws NotFoundException {
+    return stringPacks.getTextArray(id);
+  }
+
+  @Override
+  public String[] getStringArray(int id) throws NotFoundException {
+    return stringPacks.getStringArray(id);
+  }
+
   // endregion
 
   private String formatString(String format, Object... formatArgs) {
@@ -99,16 +106,6 @@ public class StringPackResources extends Resources {
 
   // region Direct delegate to base resources.
 
-  @Override
-  public CharSequence[] getTextArray(int id) throws NotFoundException {
-    return baseResources.getTextArray(id);
-  }
-
-  @Override
-  public String[] getStringArray(int id) throws NotFoundException {
-    return baseResources.getStringArray(id);
-  }
-
   @Override
   public int[] getIntArray(int id) throws NotFoundException {
     return baseResources.getIntArray(id);
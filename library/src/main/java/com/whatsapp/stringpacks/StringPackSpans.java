@@ -0,0 +1,135 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import android.graphics.Typeface;
+import android.text.Annotation;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.SubscriptSpan;
+import android.text.style.SuperscriptSpan;
+import android.text.style.TypefaceSpan;
+import android.text.style.URLSpan;
+import android.text.style.UnderlineSpan;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Turns the span names stored in string packs into Android spans, the same way Android does for
+ * styled strings in resources. See {@link TextStyler} for the span names. Unknown tags are ignored.
+ */
+final class StringPackSpans implements TextStyler {
+
+  static final StringPackSpans INSTANCE = new StringPackSpans();
+
+  // Same sizes as the ones Android uses for <big> and <small>.
+  private static final float BIG_SIZE = 1.25f;
+  private static final float SMALL_SIZE = 0.8f;
+
+  private StringPackSpans() {}
+
+  @NonNull
+  @Override
+  public CharSequence style(
+      @NonNull String text,
+      @NonNull String[] spanNames,
+      @NonNull int[] spanStarts,
+      @NonNull int[] spanEnds) {
+    final SpannableString styled = new SpannableString(text);
+    for (int i = 0; i < spanNames.length; i++) {
+      setSpan(styled, spanNames[i], spanStarts[i], spanEnds[i]);
+    }
+    return new SpannedString(styled);
+  }
+
+  private static void setSpan(
+      @NonNull SpannableString text, @NonNull String name, int start, int end) {
+    final int separator = name.indexOf(';');
+    final String tag = separator == -1 ? name : name.substring(0, separator);
+    switch (tag) {
+      case "b":
+        set(text, new StyleSpan(Typeface.BOLD), start, end);
+        break;
+      case "i":
+        set(text, new StyleSpan(Typeface.ITALIC), start, end);
+        break;
+      case "u":
+        set(text, new UnderlineSpan(), start, end);
+        break;
+      case "tt":
+        set(text, new TypefaceSpan("monospace"), start, end);
+        break;
+      case "big":
+        set(text, new RelativeSizeSpan(BIG_SIZE), start, end);
+        break;
+      case "small":
+        set(text, new RelativeSizeSpan(SMALL_SIZE), start, end);
+        break;
+      case "sup":
+        set(text, new SuperscriptSpan(), start, end);
+        break;
+      case "sub":
+        set(text, new SubscriptSpan(), start, end);
+        break;
+      case "strike":
+        set(text, new StrikethroughSpan(), start, end);
+        break;
+      case "a":
+        final String href = getAttribute(name, "href");
+        if (href != null) {
+          set(text, new URLSpan(href), start, end);
+        }
+        break;
+      case "annotation":
+        // Each attribute becomes its own annotation.
+        int attributeStart = separator;
+        while (attributeStart != -1) {
+          final int attributeEnd = name.indexOf(';', attributeStart + 1);
+          final String attribute =
+              name.substring(
+                  attributeStart + 1, attributeEnd == -1 ? name.length() : attributeEnd);
+          final int equals = attribute.indexOf('=');
+          if (equals != -1) {
+            set(
+                text,
+                new Annotation(attribute.substring(0, equals), attribute.substring(equals + 1)),
+                start,
+                end);
+          }
+          attributeStart = attributeEnd;
+        }
+        break;
+      default:
+        SpLog.w("translations/setSpan unsupported span: " + tag);
+        break;
+    }
+  }
+
+  private static void set(@NonNull SpannableString text, @NonNull Object span, int start, int end) {
+    if (start < 0 || end > text.length() || start > end) {
+      SpLog.w("translations/setSpan span out of bounds: " + start + ".." + end);
+      return;
+    }
+    text.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+  }
+
+  @Nullable
+  private static String getAttribute(@NonNull String name, @NonNull String key) {
+    final String prefix = ";" + key + "=";
+    final int start = name.indexOf(prefix);
+    if (start == -1) {
+      return null;
+    }
+    final int valueStart = start + prefix.length();
+    final int valueEnd = name.indexOf(';', valueStart);
+    return name.substring(valueStart, valueEnd == -1 ? name.length() : valueEnd);
+  }
+}
@@ -6,9 +6,10 @@
 
 package com.whatsapp.stringpacks;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
+import android.util.SparseIntArray;
+import androidx.annotation.ArrayRes;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -16,17 +17,22 @@ import androidx.annotation.PluralsRes;
 import androidx.annotation.StringRes;
 import com.whatsapp.stringpacks.utils.FileUtils;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /** This is the main interface for StringPacks */
 public class StringPacks {
@@ -44,13 +50,34 @@ public class StringPacks {
   }
 
   private static final int NOT_PLURAL = -1;
+  private static final int NOT_PACKED = -1;
   public static final String PACK_FILE_EXTENSION = ".pack";
   public static final String TEMP_PACK_FILE_EXTENSION = ".pack.tmp";
+  /** @deprecated Pack files are copied to temp files of their own, named with this prefix. */
+  @Deprecated
   public static final String TEMP_PACK_FILE = "extracted_pack_file" + TEMP_PACK_FILE_EXTENSION;
+
+  private static final String TEMP_PACK_FILE_PREFIX = "extracted_pack_file";
+  // Age after which a temp file is known to be left over from an interrupted copy, rather than
+  // being written by another process.
+  private static final long TEMP_PACK_FILE_MAX_AGE_MS = 60 * 60 * 1000;
   private static final String UNDERSCORE = "_";
+  // Key of the packs installed with installPackFile(), before the timestamp of the installation of
+  // the app they were installed for.
+  private static final String INSTALLED_PACK_KEY_PREFIX = "installed";
+
+  // Serializes extractions in this process, so that a pack is only extracted once. The background
+  // service that extracts packs on package replace may run in another process, so each copy is
+  // written to a temp file of its own and renamed into place.
+  private static final Object extractLock = new Object();
+
+  // Serializes installPackFile(), so that the last pack installed is the one that ends up in use.
+  @NonNull private final Object installLock = new Object();
 
-  @SuppressLint("UseSparseArrays")
-  private final HashMap<Integer, Integer> resIdToPackIdMap = new HashMap<>();
+  // Looked up without boxing the resource id, so that lookups of cached strings don't allocate.
+  // register() replaces it with a merged copy rather than changing it, so lookups read it without
+  // the lock.
+  @NonNull private volatile SparseIntArray resIdToPackIdMap = new SparseIntArray();
 
   @NonNull private final Object stringPackLock = new Object();
 
@@ -64,6 +91,30 @@ public class StringPacks {
   @Nullable
   private ParsedStringPack parsedStringPack;
 
+  // The pack file name and locale parsedStringPack was loaded for, to reload it when a new pack is
+  // installed for it.
+  @GuardedBy("stringPackLock")
+  @Nullable
+  private String packFileName;
+
+  @GuardedBy("stringPackLock")
+  @Nullable
+  private Locale packLocale;
+
+  // The context module packs are loaded with.
+  @GuardedBy("stringPackLock")
+  @Nullable
+  private Context packContext;
+
+  // Incremented by setUp(), so that module packs mapped for the previous locale are mapped again.
+  private volatile int setUpGeneration;
+
+  // Modules registered with registerModule(), and the index in `modules` of the module of each of
+  // their resource ids. Both are replaced on registration, `modules` first, so that lookups can read
+  // them without the lock as long as they read `resIdToModuleMap` first.
+  @NonNull private volatile StringPackModule[] modules = new StringPackModule[0];
+  @NonNull private volatile SparseIntArray resIdToModuleMap = new SparseIntArray();
+
   @Nullable private static StringPacksLocaleMetaDataProvider stringPacksLocaleMetaDataProvider;
 
   /** Set up the library with latest locale at the start of the app, or on a locale change */
@@ -77,13 +128,44 @@ public class StringPacks {
 
     appRes = resolveResources(context);
 
+    final ParsedStringPack oldStringPack;
+    final ParsedStringPack[] oldModuleStringPacks;
     synchronized (stringPackLock) {
+      oldStringPack = parsedStringPack;
+      // Module packs are mapped again on the first lookup of one of their strings.
+      setUpGeneration++;
+      packContext =
+          context.getApplicationContext() != null ? context.getApplicationContext() : context;
+      oldModuleStringPacks = new ParsedStringPack[modules.length];
+      for (int i = 0; i < modules.length; i++) {
+        oldModuleStringPacks[i] = modules[i].parsedStringPack;
+        modules[i].parsedStringPack = null;
+      }
       if (useStringPack) {
-        parsedStringPack = loadData(context, getPackFileName(locale), locale);
+        packFileName = getPackFileName(locale);
+        packLocale = locale;
+        parsedStringPack = loadData(context, packFileName, locale);
       } else {
+        packFileName = null;
+        packLocale = null;
         parsedStringPack = null;
       }
+      final StringPacksMetrics metrics = SpMetrics.get();
+      final long pluralRulesStart = metrics != null ? System.nanoTime() : 0;
       pluralRules = PluralRules.ruleForLocale(locale);
+      if (metrics != null) {
+        metrics.onSetUpPhase(
+            StringPacksMetrics.PHASE_PLURAL_RULES, System.nanoTime() - pluralRulesStart);
+      }
+    }
+    if (oldStringPack != null) {
+      // The mapping is released as soon as the readers still holding a reference are done.
+      oldStringPack.close();
+    }
+    for (ParsedStringPack oldModuleStringPack : oldModuleStringPacks) {
+      if (oldModuleStringPack != null) {
+        oldModuleStringPack.close();
+      }
     }
   }
 
@@ -114,12 +196,163 @@ public class StringPacks {
     stringPacksLocaleMetaDataProvider = metaDataProvider;
   }
 
-  /** Registers map of app resource IDs to stringpack IDs. Called once at app start. */
+  /**
+   * Registers map of app resource IDs to stringpack IDs. Called once at app start. Registering
+   * another table adds its ids to the ones already registered, and the new table wins for the ids
+   * that are in both.
+   */
   public void register(@NonNull int[] idTable) {
+    final SparseIntArray addedMap = toResIdToPackIdMap(idTable);
+    synchronized (stringPackLock) {
+      resIdToPackIdMap =
+          resIdToPackIdMap.size() == 0 ? addedMap : merge(resIdToPackIdMap, addedMap);
+    }
+  }
+
+  /** Merges two maps sorted by key, with the values of {@code added} for keys in both. */
+  @NonNull
+  private static SparseIntArray merge(
+      @NonNull SparseIntArray existing, @NonNull SparseIntArray added) {
+    final SparseIntArray merged = new SparseIntArray(existing.size() + added.size());
+    int i = 0;
+    int j = 0;
+    while (i < existing.size() || j < added.size()) {
+      if (j == added.size() || (i < existing.size() && existing.keyAt(i) < added.keyAt(j))) {
+        merged.append(existing.keyAt(i), existing.valueAt(i));
+        i++;
+      } else {
+        if (i < existing.size() && existing.keyAt(i) == added.keyAt(j)) {
+          i++;
+        }
+        merged.append(added.keyAt(j), added.valueAt(j));
+        j++;
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Registers the map of app resource IDs to stringpack IDs of a module, such as a feature module,
+   * whose packs are built with `module` set in their config. Its strings are looked up in its own
+   * packs, which are only mapped on the first lookup of one of its strings for the current locale.
+   * Registering a module again replaces its id table.
+   *
+   * @param module the `module` of the config the packs of the module are built with
+   * @param idTable the id table generated for the module
+   */
+  public void registerModule(@NonNull String module, @NonNull int[] idTable) {
+    final StringPackModule newModule = new StringPackModule(module, toResIdToPackIdMap(idTable));
+    ParsedStringPack oldStringPack = null;
+    synchronized (stringPackLock) {
+      int index = modules.length;
+      for (int i = 0; i < modules.length; i++) {
+        if (modules[i].name.equals(module)) {
+          index = i;
+          oldStringPack = modules[i].parsedStringPack;
+          modules[i].parsedStringPack = null;
+        }
+      }
+      final StringPackModule[] newModules =
+          Arrays.copyOf(modules, Math.max(index + 1, modules.length));
+      newModules[index] = newModule;
+      int size = 0;
+      for (StringPackModule stringPackModule : newModules) {
+        size += stringPackModule.size();
+      }
+      // Sort by resource id, so the entries can be appended in order, like in register().
+      final long[] entries = new long[size];
+      int entry = 0;
+      for (int i = 0; i < newModules.length; i++) {
+        for (int j = 0; j < newModules[i].size(); j++) {
+          entries[entry++] = ((long) newModules[i].resIdAt(j) << 32) | i;
+        }
+      }
+      Arrays.sort(entries);
+      final SparseIntArray moduleMap = new SparseIntArray(size);
+      for (long moduleEntry : entries) {
+        moduleMap.append((int) (moduleEntry >> 32), (int) moduleEntry);
+      }
+      modules = newModules;
+      resIdToModuleMap = moduleMap;
+    }
+    if (oldStringPack != null) {
+      oldStringPack.close();
+    }
+  }
+
+  @NonNull
+  private static SparseIntArray toResIdToPackIdMap(@NonNull int[] idTable) {
     final int length = idTable.length;
+    // Sort by resource id, so the entries can be appended in order instead of inserted one by one.
+    final long[] entries = new long[length];
     for (int i = 0; i < length; i++) {
-      final int resId = idTable[i];
-      resIdToPackIdMap.put(resId, i);
+      entries[i] = ((long) idTable[i] << 32) | i;
+    }
+    Arrays.sort(entries);
+    final SparseIntArray map = new SparseIntArray(length);
+    for (long entry : entries) {
+      map.append((int) (entry >> 32), (int) entry);
+    }
+    return map;
+  }
+
+  /** Returns whether the given resource id is packed, in the main pack or in a module's packs. */
+  boolean isPacked(int resId) {
+    return resIdToPackIdMap.get(resId, NOT_PACKED) != NOT_PACKED
+        || resIdToModuleMap.get(resId, NOT_PACKED) != NOT_PACKED;
+  }
+
+  /**
+   * Returns the module whose packs have the given resource id, or null if none does, after mapping
+   * its pack for the current locale if that wasn't done yet.
+   */
+  @Nullable
+  private StringPackModule getModule(int resId) {
+    final int index = resIdToModuleMap.get(resId, NOT_PACKED);
+    if (index == NOT_PACKED) {
+      return null;
+    }
+    final StringPackModule module = modules[index];
+    if (module.generation != setUpGeneration) {
+      loadModulePack(module);
+    }
+    return module;
+  }
+
+  private void loadModulePack(@NonNull StringPackModule module) {
+    synchronized (module.loadLock) {
+      final int generation;
+      final Context context;
+      final String fileName;
+      final Locale locale;
+      synchronized (stringPackLock) {
+        generation = setUpGeneration;
+        if (module.generation == generation) {
+          // Loaded by another lookup meanwhile.
+          return;
+        }
+        if (packFileName == null) {
+          // Not set up yet, or the locale uses the Android resources.
+          module.generation = generation;
+          return;
+        }
+        context = packContext;
+        fileName = module.getPackFileName(packFileName);
+        locale = packLocale;
+      }
+      // Map the pack without holding the lock, so that other lookups aren't blocked meanwhile.
+      ParsedStringPack stringPack = loadData(context, fileName, locale);
+      synchronized (stringPackLock) {
+        if (generation == setUpGeneration && Arrays.asList(modules).contains(module)) {
+          module.parsedStringPack = stringPack;
+          module.generation = generation;
+          stringPack = null;
+        }
+      }
+      if (stringPack != null) {
+        // The locale changed, or the module was registered again, meanwhile.
+        stringPack.close();
+      }
     }
   }
 
@@ -134,22 +367,74 @@ public class StringPacks {
   }
 
   @Nullable
-  private String getTranslation(int resId, boolean isPlural, int quantity) {
-    final Integer location = resIdToPackIdMap.get(resId);
+  public String getQuantityString(@PluralsRes int resId, long quantity) {
+    return getTranslation(resId, true, quantity);
+  }
+
+  /**
+   * Returns the plural for a decimal quantity, displayed with the given number of fraction digits.
+   * If the plural is not packed, it is resolved from the app resources with the integer part of
+   * the quantity, since Android only selects plurals by integers.
+   *
+   * @see PluralRules#quantityForNumber(double, int)
+   */
+  @Nullable
+  public String getQuantityString(
+      @PluralsRes int resId, double quantity, int visibleFractionDigits) {
+    int location = resIdToPackIdMap.get(resId, NOT_PACKED);
+    final StringPackModule module = location == NOT_PACKED ? getModule(resId) : null;
+    if (module != null) {
+      location = module.getPackId(resId, NOT_PACKED);
+    }
+    String translation = null;
+    if (location != NOT_PACKED) {
+      final ParsedStringPack stringPack;
+      final PluralRules rules;
+      synchronized (stringPackLock) {
+        stringPack = acquireStringPackLocked(module);
+        rules = pluralRules;
+      }
+      if (stringPack != null) {
+        try {
+          translation =
+              stringPack.getQuantityString(location, quantity, visibleFractionDigits, rules);
+        } finally {
+          stringPack.release();
+        }
+      }
+    }
+    return translation != null ? translation : fallback(resId, true, (long) quantity);
+  }
+
+  @Nullable
+  private String getTranslation(int resId, boolean isPlural, long quantity) {
+    int location = resIdToPackIdMap.get(resId, NOT_PACKED);
+    final StringPackModule module = location == NOT_PACKED ? getModule(resId) : null;
+    if (module != null) {
+      location = module.getPackId(resId, NOT_PACKED);
+    }
     // This string was not moved to a StringPack.  Fall back to default strings.
-    if (location == null) {
+    if (location == NOT_PACKED) {
       return fallback(resId, isPlural, quantity);
     }
 
-    String translation = null;
+    final ParsedStringPack stringPack;
+    final PluralRules rules;
     synchronized (stringPackLock) {
-      if (parsedStringPack != null) {
+      stringPack = acquireStringPackLocked(module);
+      rules = pluralRules;
+    }
+
+    String translation = null;
+    if (stringPack != null) {
+      try {
         if (isPlural) {
-          // TODO(T176824784) better fix for the int / long interfaces.
-          translation = parsedStringPack.getQuantityString(location, (long) quantity, pluralRules);
+          translation = stringPack.getQuantityString(location, quantity, rules);
         } else {
-          translation = parsedStringPack.getString(location);
+          translation = stringPack.getString(location);
         }
+      } finally {
+        stringPack.release();
       }
     }
 
@@ -157,36 +442,531 @@ public class StringPacks {
     return translation != null ? translation : fallback(resId, isPlural, quantity);
   }
 
-  private String fallback(int resId, boolean isPlural, int quantity) {
+  /**
+   * Returns the string with its styling, such as bold or italic spans, like {@link
+   * Resources#getText(int)}. Strings without styling are returned as a plain {@link String}.
+   */
+  @Nullable
+  public CharSequence getText(@StringRes int resId) {
+    return getStyledTranslation(resId, false, NOT_PLURAL);
+  }
+
+  /** The plural with its styling, like {@link Resources#getQuantityText(int, int)}. */
+  @Nullable
+  public CharSequence getQuantityText(@PluralsRes int resId, int quantity) {
+    return getStyledTranslation(resId, true, quantity);
+  }
+
+  @Nullable
+  private CharSequence getStyledTranslation(int resId, boolean isPlural, int quantity) {
+    int location = resIdToPackIdMap.get(resId, NOT_PACKED);
+    final StringPackModule module = location == NOT_PACKED ? getModule(resId) : null;
+    if (module != null) {
+      location = module.getPackId(resId, NOT_PACKED);
+    }
+    CharSequence translation = null;
+    if (location != NOT_PACKED) {
+      final ParsedStringPack stringPack;
+      final PluralRules rules;
+      synchronized (stringPackLock) {
+        stringPack = acquireStringPackLocked(module);
+        rules = pluralRules;
+      }
+      if (stringPack != null) {
+        try {
+          if (isPlural) {
+            translation = stringPack.getQuantityText(location, quantity, rules);
+          } else {
+            translation = stringPack.getText(location);
+          }
+        } finally {
+          stringPack.release();
+        }
+      }
+    }
+    if (translation != null) {
+      return translation;
+    }
+    // Not packed, or StringPack has not been initialized yet, fall back to default strings.
+    reportFallback(StringPacksMetrics.TYPE_TEXT);
+    return isPlural ? appRes.getQuantityText(resId, quantity) : appRes.getText(resId);
+  }
+
+  /**
+   * Returns a copy of the string array, like {@link Resources#getStringArray(int)}. The packed
+   * array is decoded once and cached.
+   */
+  @Nullable
+  public String[] getStringArray(@ArrayRes int resId) {
+    int location = resIdToPackIdMap.get(resId, NOT_PACKED);
+    final StringPackModule module = location == NOT_PACKED ? getModule(resId) : null;
+    if (module != null) {
+      location = module.getPackId(resId, NOT_PACKED);
+    }
+    String[] array = null;
+    if (location != NOT_PACKED) {
+      final ParsedStringPack stringPack = acquireStringPack(module);
+      if (stringPack != null) {
+        try {
+          array = stringPack.getStringArray(location);
+        } finally {
+          stringPack.release();
+        }
+      }
+    }
+    if (array != null) {
+      // Callers may modify the returned array.
+      return array.clone();
+    }
+    // Not packed, or StringPack has not been initialized yet, fall back to default strings.
+    reportFallback(StringPacksMetrics.TYPE_ARRAY);
+    return appRes.getStringArray(resId);
+  }
+
+  /**
+   * The string array, like {@link Resources#getTextArray(int)}. Packed array items have no styling,
+   * so they are returned as plain strings.
+   */
+  @Nullable
+  public CharSequence[] getTextArray(@ArrayRes int resId) {
+    if (!isPacked(resId)) {
+      reportFallback(StringPacksMetrics.TYPE_ARRAY);
+      return appRes.getTextArray(resId);
+    }
+    return getStringArray(resId);
+  }
+
+  /**
+   * Resolves several strings at once, for example when binding a list item. This only takes the
+   * lock once, all the strings come from the same pack even if the locale changes meanwhile, and
+   * the strings that are not cached yet are loaded together.
+   *
+   * @param resIds string resource ids
+   * @param out receives the string for each id, at the same index. Must be at least as long as
+   *     {@code resIds}.
+   */
+  public void getStrings(@NonNull @StringRes int[] resIds, @NonNull String[] out) {
+    final int count = resIds.length;
+    final int[] locations = getLocations(resIds);
+    for (int i = 0; i < count; i++) {
+      out[i] = null;
+    }
+
+    final ParsedStringPack stringPack = acquireStringPack();
+    if (stringPack != null) {
+      try {
+        stringPack.getStrings(locations, out);
+      } finally {
+        stringPack.release();
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      if (out[i] == null) {
+        // The strings of modules are looked up in their own packs.
+        out[i] =
+            locations[i] == NOT_PACKED
+                ? getTranslation(resIds[i], false, NOT_PLURAL)
+                : fallback(resIds[i], false, NOT_PLURAL);
+      }
+    }
+  }
+
+  /**
+   * Resolves several plurals at once, with the same guarantees as {@link #getStrings(int[],
+   * String[])}.
+   *
+   * @param resIds plurals resource ids
+   * @param quantities quantity for each id, at the same index
+   * @param out receives the string for each id, at the same index. Must be at least as long as
+   *     {@code resIds}.
+   */
+  public void getQuantityStrings(
+      @NonNull @PluralsRes int[] resIds, @NonNull int[] quantities, @NonNull String[] out) {
+    final ParsedStringPack stringPack;
+    final PluralRules rules;
+    synchronized (stringPackLock) {
+      stringPack = acquireStringPackLocked();
+      rules = pluralRules;
+    }
+
+    final int count = resIds.length;
+    final int[] locations = getLocations(resIds);
+    try {
+      for (int i = 0; i < count; i++) {
+        out[i] = null;
+        if (stringPack != null && locations[i] != NOT_PACKED) {
+          out[i] = stringPack.getQuantityString(locations[i], quantities[i], rules);
+        }
+      }
+    } finally {
+      if (stringPack != null) {
+        stringPack.release();
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      if (out[i] == null) {
+        // The plurals of modules are looked up in their own packs.
+        out[i] =
+            locations[i] == NOT_PACKED
+                ? getTranslation(resIds[i], true, quantities[i])
+                : fallback(resIds[i], true, quantities[i]);
+      }
+    }
+  }
+
+  /**
+   * Loads the given strings and plurals of the current pack into memory, so that the screen using
+   * them doesn't read the pack file while it's being inflated. The manifests generated in {@code
+   * screen_manifests_class_file_path} by find_movable_strings.py list the ids used by each layout
+   * and screen.
+   *
+   * <p>This may be called from a background thread.
+   *
+   * @param resIds string or plurals resource ids
+   */
+  public void prewarm(@NonNull int[] resIds) {
+    final ParsedStringPack stringPack = acquireStringPack();
+    if (stringPack != null) {
+      try {
+        stringPack.prewarm(getLocations(resIds));
+      } finally {
+        stringPack.release();
+      }
+    }
+
+    // The strings of modules are loaded from their own packs, which are mapped for it if needed.
+    final SparseIntArray moduleMap = resIdToModuleMap;
+    if (moduleMap.size() == 0) {
+      return;
+    }
+    final StringPackModule[] currentModules = modules;
+    for (int index = 0; index < currentModules.length; index++) {
+      final StringPackModule module = currentModules[index];
+      int[] moduleLocations = null;
+      for (int i = 0; i < resIds.length; i++) {
+        if (moduleMap.get(resIds[i], NOT_PACKED) == index) {
+          if (moduleLocations == null) {
+            moduleLocations = new int[resIds.length];
+            Arrays.fill(moduleLocations, NOT_PACKED);
+          }
+          moduleLocations[i] = module.getPackId(resIds[i], NOT_PACKED);
+        }
+      }
+      if (moduleLocations == null) {
+        continue;
+      }
+      if (module.generation != setUpGeneration) {
+        loadModulePack(module);
+      }
+      final ParsedStringPack moduleStringPack = acquireStringPack(module);
+      if (moduleStringPack != null) {
+        try {
+          moduleStringPack.prewarm(moduleLocations);
+        } finally {
+          moduleStringPack.release();
+        }
+      }
+    }
+  }
+
+  /** Maps resource ids to their location in the pack, or {@link #NOT_PACKED}. */
+  @NonNull
+  private int[] getLocations(@NonNull int[] resIds) {
+    final int count = resIds.length;
+    final int[] locations = new int[count];
+    for (int i = 0; i < count; i++) {
+      final int location = resIdToPackIdMap.get(resIds[i], NOT_PACKED);
+      locations[i] = location;
+    }
+    return locations;
+  }
+
+  /**
+   * Returns the current pack with a reference taken on it, or null if there is none. The caller
+   * must call {@link ParsedStringPack#release()} when done with it.
+   */
+  @Nullable
+  private ParsedStringPack acquireStringPack() {
+    synchronized (stringPackLock) {
+      return acquireStringPackLocked();
+    }
+  }
+
+  @GuardedBy("stringPackLock")
+  @Nullable
+  private ParsedStringPack acquireStringPackLocked() {
+    return parsedStringPack != null && parsedStringPack.tryAcquire() ? parsedStringPack : null;
+  }
+
+  /** Like {@link #acquireStringPack()}, for the pack of the given module if it's not null. */
+  @Nullable
+  private ParsedStringPack acquireStringPack(@Nullable StringPackModule module) {
+    synchronized (stringPackLock) {
+      return acquireStringPackLocked(module);
+    }
+  }
+
+  @GuardedBy("stringPackLock")
+  @Nullable
+  private ParsedStringPack acquireStringPackLocked(@Nullable StringPackModule module) {
+    if (module == null) {
+      return acquireStringPackLocked();
+    }
+    final ParsedStringPack stringPack = module.parsedStringPack;
+    return stringPack != null && stringPack.tryAcquire() ? stringPack : null;
+  }
+
+  private String fallback(int resId, boolean isPlural, long quantity) {
+    reportFallback(isPlural ? StringPacksMetrics.TYPE_PLURAL : StringPacksMetrics.TYPE_STRING);
     if (isPlural) {
-      return appRes.getQuantityString(resId, quantity);
+      // Android resources only take int quantities.
+      final int intQuantity =
+          (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, quantity));
+      return appRes.getQuantityString(resId, intQuantity);
     } else {
       return appRes.getString(resId);
     }
   }
 
+  private static void reportFallback(@StringPacksMetrics.Type int type) {
+    final StringPacksMetrics metrics = SpMetrics.get();
+    if (metrics != null) {
+      metrics.onFallback(type);
+    }
+  }
+
+  /**
+   * Returns the memory held by the current packs, including the packs of modules that have been
+   * mapped: their cached entries and the size of their mappings. This walks the caches, so it's
+   * meant to be called occasionally, not on every lookup.
+   */
+  @NonNull
+  public StringPacksMetrics.MemorySnapshot getMemorySnapshot() {
+    int cachedEntries = 0;
+    long cachedBytes = 0;
+    long mappedBytes = 0;
+    final StringPackModule[] currentModules = modules;
+    // The main pack, then the packs of the modules that are mapped.
+    for (int i = -1; i < currentModules.length; i++) {
+      final ParsedStringPack stringPack = acquireStringPack(i < 0 ? null : currentModules[i]);
+      if (stringPack == null) {
+        continue;
+      }
+      try {
+        final StringPacksMetrics.MemorySnapshot snapshot = stringPack.getMemorySnapshot();
+        cachedEntries += snapshot.cachedEntries;
+        cachedBytes += snapshot.cachedBytes;
+        mappedBytes += snapshot.mappedBytes;
+      } finally {
+        stringPack.release();
+      }
+    }
+    return new StringPacksMetrics.MemorySnapshot(cachedEntries, cachedBytes, mappedBytes);
+  }
+
+  /** Returns the number of pack files currently mapped in memory, for monitoring leaks. */
+  public static int getLiveMappingCount() {
+    return MMappedStringPack.getLiveMappingCount();
+  }
+
   @Nullable
   static ParsedStringPack loadData(
       @NonNull Context context, @NonNull String fileName, @NonNull Locale locale) {
-    ParsedStringPack result = null;
     String resourcePackFileName = fileName + PACK_FILE_EXTENSION;
 
+    final StringPacksMetrics metrics = SpMetrics.get();
+    long phaseStart = metrics != null ? System.nanoTime() : 0;
+    // A pack installed for this version of the app is used instead of the one in the assets.
+    final File installedPackFile = getInstalledPackFile(context, fileName);
+    if (installedPackFile.exists()) {
+      try {
+        return parsePackFile(installedPackFile, locale, metrics, phaseStart);
+      } catch (IOException | RuntimeException exception) {
+        // Delete it, so that it isn't loaded again on every setUp() until the app is updated.
+        SpLog.e("translations/loadData Invalid installed pack, using the assets:" + exception);
+        installedPackFile.delete();
+      }
+    }
     try {
-      MappedByteBuffer mappedByteBuffer = null;
-      File extractedPackFile =
+      final File packFile =
           extractPackFile(context, fileName, context.getResources(), resourcePackFileName);
-      RandomAccessFile randomAccessFile = new RandomAccessFile(extractedPackFile, "r");
-      FileChannel fileChannel = randomAccessFile.getChannel();
-      mappedByteBuffer =
-          fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, extractedPackFile.length());
-      final List<String> parentLocales = getParentLocales(locale);
-      result = new ParsedStringPack(parentLocales, mappedByteBuffer);
+      return parsePackFile(packFile, locale, metrics, phaseStart);
     } catch (IOException exception) {
       SpLog.e("translations/loadData error:" + exception);
+      return null;
+    }
+  }
+
+  /** Maps the given pack file and reads the translations of the given locale from it. */
+  @NonNull
+  private static ParsedStringPack parsePackFile(
+      @NonNull File packFile,
+      @NonNull Locale locale,
+      @Nullable StringPacksMetrics metrics,
+      long phaseStart)
+      throws IOException {
+    if (metrics != null) {
+      final long now = System.nanoTime();
+      metrics.onSetUpPhase(StringPacksMetrics.PHASE_EXTRACT, now - phaseStart);
+      phaseStart = now;
+    }
+    final MappedByteBuffer mappedByteBuffer = mapPackFile(packFile);
+    if (metrics != null) {
+      final long now = System.nanoTime();
+      metrics.onSetUpPhase(StringPacksMetrics.PHASE_MAP, now - phaseStart);
+      phaseStart = now;
+    }
+    final List<String> parentLocales = getParentLocales(locale);
+    final ParsedStringPack result =
+        new ParsedStringPack(parentLocales, mappedByteBuffer, StringPackSpans.INSTANCE);
+    if (metrics != null) {
+      metrics.onSetUpPhase(StringPacksMetrics.PHASE_INDEX, System.nanoTime() - phaseStart);
     }
     return result;
   }
 
+  @NonNull
+  private static MappedByteBuffer mapPackFile(@NonNull File packFile) throws IOException {
+    final Tracer tracer = SpTrace.get();
+    if (tracer != null) {
+      tracer.beginSection("StringPacks.mapPackFile");
+    }
+    RandomAccessFile randomAccessFile = new RandomAccessFile(packFile, "r");
+    try {
+      FileChannel fileChannel = randomAccessFile.getChannel();
+      return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, packFile.length());
+    } finally {
+      // The mapping stays valid after the channel is closed, so don't hold on to the descriptor.
+      randomAccessFile.close();
+      if (tracer != null) {
+        tracer.endSection();
+      }
+    }
+  }
+
+  /**
+   * Install a pack file in place of the one shipped in the assets for the same pack id, for
+   * example to fix translations without releasing a new version of the app. The pack must be built
+   * against the id table of the installed version of the app, so it's only used until the app is
+   * updated, after which {@link #cleanupOldPackFiles(Context)} deletes it.
+   *
+   * <p>The pack is validated before it's installed. If it isn't well formed, it's not installed,
+   * and the pack that was used before keeps being used. If the pack is the one currently in use,
+   * it's swapped in right away: lookups carry on with the previous pack while the new one is
+   * mapped, and the previous mapping is released once the lookups still reading it are done.
+   *
+   * <p>This reads and writes files, so it should be called from a background thread.
+   *
+   * @param context
+   * @param packFileId id of the pack, as returned by {@link
+   *     StringPacksLocaleMetaDataProvider#getPackFileIdForLocale(Locale)}
+   * @param source the pack file to install. It's copied, so it can be deleted afterwards.
+   * @return whether the pack was installed
+   */
+  public boolean installPackFile(
+      @NonNull Context context, @NonNull String packFileId, @NonNull File source) {
+    return installPackFile(context, null, packFileId, source);
+  }
+
+  /**
+   * Like {@link #installPackFile(Context, String, File)}, for a pack of the given module.
+   *
+   * @param module a module registered with {@link #registerModule(String, int[])}, or null for the
+   *     main pack
+   */
+  public boolean installPackFile(
+      @NonNull Context context,
+      @Nullable String module,
+      @NonNull String packFileId,
+      @NonNull File source) {
+    final String fileName =
+        module != null
+            ? module + UNDERSCORE + getPackFileNameForId(packFileId)
+            : getPackFileNameForId(packFileId);
+    synchronized (installLock) {
+      final File installedPackFile = getInstalledPackFile(context, fileName);
+      synchronized (extractLock) {
+        File tempFile = null;
+        try {
+          tempFile = createTempPackFile(context.getFilesDir());
+          final InputStream in = new FileInputStream(source);
+          try {
+            final OutputStream out = new FileOutputStream(tempFile);
+            try {
+              FileUtils.copyStream(in, out);
+            } finally {
+              out.close();
+            }
+          } finally {
+            in.close();
+          }
+          // Validate the copy rather than the source, so that what's installed is what was checked.
+          if (!StringPackValidator.isValid(mapPackFile(tempFile))) {
+            SpLog.w("translations/installPackFile Invalid pack file: " + source);
+            tempFile.delete();
+            return false;
+          }
+          // Renaming replaces a previously installed pack at once. Mappings of the replaced file
+          // stay valid until they're released.
+          if (!tempFile.renameTo(installedPackFile)) {
+            throw new IOException("Renaming temp file failed");
+          }
+        } catch (IOException exception) {
+          SpLog.e("translations/installPackFile error:" + exception);
+          if (tempFile != null) {
+            tempFile.delete();
+          }
+          return false;
+        }
+      }
+      SpLog.i("translations/installPackFile Installed pack file: " + installedPackFile.getName());
+      reloadPackFile(context, fileName);
+      return true;
+    }
+  }
+
+  /** Swap in a new mapping of the given pack file if it's the one in use. */
+  private void reloadPackFile(@NonNull Context context, @NonNull String fileName) {
+    final Locale locale;
+    ParsedStringPack oldModuleStringPack = null;
+    synchronized (stringPackLock) {
+      locale = fileName.equals(packFileName) ? packLocale : null;
+      for (StringPackModule module : modules) {
+        if (packFileName != null && fileName.equals(module.getPackFileName(packFileName))) {
+          // Mapped again on the next lookup of one of its strings, like after setUp().
+          oldModuleStringPack = module.parsedStringPack;
+          module.parsedStringPack = null;
+          module.generation = -1;
+        }
+      }
+    }
+    if (oldModuleStringPack != null) {
+      oldModuleStringPack.close();
+    }
+    if (locale == null) {
+      return;
+    }
+    // Load the pack without holding the lock, so that lookups aren't blocked meanwhile.
+    final ParsedStringPack newStringPack = loadData(context, fileName, locale);
+    if (newStringPack == null) {
+      return;
+    }
+    ParsedStringPack oldStringPack = newStringPack;
+    synchronized (stringPackLock) {
+      // Unless the locale changed meanwhile, in which case the new pack is not needed anymore.
+      if (fileName.equals(packFileName) && locale.equals(packLocale)) {
+        oldStringPack = parsedStringPack;
+        parsedStringPack = newStringPack;
+      }
+    }
+    if (oldStringPack != null) {
+      // The mapping is released as soon as the readers still holding a reference are done.
+      oldStringPack.close();
+    }
+  }
+
   @NonNull
   private static Locale getLocaleFromContext(@NonNull Resources resources) {
     return StringPackUtils.getLocaleFromConfiguration(resources.getConfiguration());
@@ -227,12 +1007,35 @@ public class StringPacks {
     if (packFileId == null) {
       packFileId = locale.getLanguage();
     }
+    return getPackFileNameForId(packFileId);
+  }
+
+  private static String getPackFileNameForId(@NonNull String packFileId) {
     return "strings_" + packFileId;
   }
 
+  /**
+   * Return the file of the pack installed with {@link #installPackFile(Context, String, File)} for
+   * the current installation of the app. It doesn't exist if no pack was installed.
+   */
+  @NonNull
+  private static File getInstalledPackFile(Context context, @NonNull String fileName) {
+    return new File(
+        context.getFilesDir(),
+        fileName + UNDERSCORE + getInstalledPackKey(context) + PACK_FILE_EXTENSION);
+  }
+
+  @NonNull
+  private static String getInstalledPackKey(Context context) {
+    return INSTALLED_PACK_KEY_PREFIX + getPackageCodePathTimestamp(context);
+  }
+
   /**
    * Extract a pack file to internal files directory for mmapping.
    *
+   * <p>The extracted file is named after the content hash in the pack header, so a pack that has
+   * not changed across app updates is not extracted again.
+   *
    * @param context
    * @param fileName file name of the pack file
    * @param resources resources in which pack file is stored
@@ -247,22 +1050,158 @@ public class StringPacks {
       @NonNull Resources resources,
       @NonNull String resourcePackFileName)
       throws IOException {
+    final Tracer tracer = SpTrace.get();
+    if (tracer != null) {
+      tracer.beginSection("StringPacks.extractPackFile");
+    }
     File filesDirectory = context.getFilesDir();
-    String extractedPackFileName =
-        fileName + UNDERSCORE + getPackageCodePathTimestamp(context) + PACK_FILE_EXTENSION;
-    File extractedPackFile = new File(filesDirectory, extractedPackFileName);
+    InputStream in = null;
+    try {
+      in = resources.getAssets().open(resourcePackFileName);
+      byte[] header = new byte[StringPackData.MAX_HEADER_SIZE];
+      int headerLength = FileUtils.readFully(in, header);
+      String extractedPackFileName =
+          fileName
+              + UNDERSCORE
+              + getPackFileKey(context, header, headerLength)
+              + PACK_FILE_EXTENSION;
+      File extractedPackFile = new File(filesDirectory, extractedPackFileName);
+
+      synchronized (extractLock) {
+        if (!extractedPackFile.exists()) {
+          final File tempFile = createTempPackFile(filesDirectory);
+          try {
+            final OutputStream out = new FileOutputStream(tempFile);
+            try {
+              out.write(header, 0, headerLength);
+              FileUtils.copyStream(in, out);
+            } finally {
+              out.close();
+            }
+            if (!tempFile.renameTo(extractedPackFile)) {
+              throw new IOException("Renaming temp file failed");
+            }
+          } finally {
+            // Only still there if the copy failed.
+            tempFile.delete();
+          }
+        }
+      }
+      return extractedPackFile;
+    } finally {
+      if (in != null) {
+        in.close();
+      }
+      if (tracer != null) {
+        tracer.endSection();
+      }
+    }
+  }
+
+  /**
+   * Creates an empty temp file to copy a pack file to, with a name no other copy uses, even from
+   * another process.
+   */
+  @NonNull
+  private static File createTempPackFile(@NonNull File directory) throws IOException {
+    return File.createTempFile(TEMP_PACK_FILE_PREFIX, TEMP_PACK_FILE_EXTENSION, directory);
+  }
+
+  /**
+   * Return the key that identifies the content of a pack file, which the extracted file is named
+   * after. This is the content hash from the pack header if the pack has one, otherwise the
+   * timestamp of the installation.
+   *
+   * @param context
+   * @param header the first bytes of the pack file
+   * @param headerLength number of valid bytes in {@code header}
+   */
+  @NonNull
+  private static String getPackFileKey(Context context, @NonNull byte[] header, int headerLength) {
+    if (headerLength == StringPackData.MAX_HEADER_SIZE
+        && (header[6] & StringPackData.FLAG_CONTENT_HASH) != 0) {
+      final StringBuilder key = new StringBuilder(StringPackData.CONTENT_HASH_SIZE * 2);
+      for (int i = StringPackData.HEADER_SIZE; i < StringPackData.MAX_HEADER_SIZE; i++) {
+        key.append(Character.forDigit((header[i] >> 4) & 0xF, 16));
+        key.append(Character.forDigit(header[i] & 0xF, 16));
+      }
+      return key.toString();
+    }
+    return String.valueOf(getPackageCodePathTimestamp(context));
+  }
 
-    if (!extractedPackFile.exists()) {
-      File tempFile = new File(filesDirectory, TEMP_PACK_FILE);
-      OutputStream out = new FileOutputStream(tempFile);
-      FileUtils.copyStream(resources.getAssets().open(resourcePackFileName), out);
-      out.close();
-      boolean rename = tempFile.renameTo(extractedPackFile);
-      if (!rename) {
-        throw new IOException("Renaming temp file failed");
+  /**
+   * Return the key of the pack file currently shipped in the assets, or null if there is no such
+   * pack file anymore.
+   */
+  @Nullable
+  private static String getPackFileKeyFromAssets(Context context, @NonNull String fileName) {
+    try {
+      InputStream in = context.getResources().getAssets().open(fileName + PACK_FILE_EXTENSION);
+      try {
+        byte[] header = new byte[StringPackData.MAX_HEADER_SIZE];
+        return getPackFileKey(context, header, FileUtils.readFully(in, header));
+      } finally {
+        in.close();
       }
+    } catch (IOException exception) {
+      return null;
     }
-    return extractedPackFile;
+  }
+
+  /**
+   * Extract the pack files for the current locale, and for every locale whose pack file was
+   * extracted by a previous installation, so that the next {@link #setUp(Context)} finds them
+   * ready instead of copying them on the critical path of the first launch after an update.
+   *
+   * <p>This must be called before {@link #cleanupOldPackFiles(Context)}, since the old extracted
+   * files are what tells us which locales were recently used.
+   *
+   * @param context
+   */
+  public static void extractPackFilesForRecentLocales(Context context) {
+    final Set<String> fileNames = new LinkedHashSet<>();
+    final Locale locale = getLocaleFromContext(context.getResources());
+    if (!useSystemResources(locale)) {
+      fileNames.add(getPackFileName(locale));
+    }
+    fileNames.addAll(getExtractedPackFileNames(context));
+
+    for (String fileName : fileNames) {
+      try {
+        extractPackFile(context, fileName, context.getResources(), fileName + PACK_FILE_EXTENSION);
+        SpLog.i("translations/extractPackFilesForRecentLocales Extracted pack file: " + fileName);
+      } catch (IOException exception) {
+        // The pack may not be shipped anymore in the new version of the app.
+        SpLog.w(
+            "translations/extractPackFilesForRecentLocales Could not extract pack file: "
+                + fileName
+                + " error:"
+                + exception);
+      }
+    }
+  }
+
+  /**
+   * Return the pack file names (without version info and extension) of all pack files currently
+   * extracted to internal file storage, regardless of the installation that extracted them.
+   */
+  @NonNull
+  private static Set<String> getExtractedPackFileNames(Context context) {
+    final Set<String> result = new LinkedHashSet<>();
+    final String[] filesNames =
+        context.getFilesDir().list((dir, name) -> name.endsWith(PACK_FILE_EXTENSION));
+    if (filesNames == null) {
+      return result;
+    }
+    for (String fileName : filesNames) {
+      String filePrefix = fileName.substring(0, fileName.lastIndexOf(PACK_FILE_EXTENSION));
+      int versionSeparator = filePrefix.lastIndexOf(UNDERSCORE);
+      if (versionSeparator > 0) {
+        result.add(filePrefix.substring(0, versionSeparator));
+      }
+    }
+    return result;
   }
 
   /**
@@ -277,7 +1216,10 @@ public class StringPacks {
   }
 
   /**
-   * Clean up old pack files from internal file storage
+   * Clean up old pack files from internal file storage. Extracted files that still match a pack
+   * shipped in the current assets are kept, even if they were extracted by a previous installation.
+   * Packs installed with {@link #installPackFile(Context, String, File)} are only kept for the
+   * installation of the app they were installed for.
    *
    * @param context
    */
@@ -290,27 +1232,46 @@ public class StringPacks {
     String[] filesNames = filesDirectory.list(filenameFilter);
 
     if (filesNames != null) {
-      for (String fileName : filesNames) {
-        String filePrefix = fileName.substring(0, fileName.lastIndexOf(PACK_FILE_EXTENSION));
-        String[] splitName = filePrefix.split(UNDERSCORE);
-        if (splitName.length > 1) {
-          try {
-            if (Long.parseLong(splitName[splitName.length - 1])
-                != getPackageCodePathTimestamp(context)) {
-              SpLog.i("translations/cleanupOldPackFiles Clearing old pack file: " + fileName);
-              boolean isDeleted = new File(filesDirectory, fileName).delete();
-              if (!isDeleted) {
-                SpLog.e(
-                    "translations/cleanupOldPackFiles Could not delete old pack file: " + fileName);
-              }
+      final HashMap<String, String> currentKeys = new HashMap<>();
+      final String installedKey = getInstalledPackKey(context);
+      // Hold the extraction lock, so an extraction in progress doesn't get its temp file deleted.
+      synchronized (extractLock) {
+        for (String fileName : filesNames) {
+          if (fileName.endsWith(TEMP_PACK_FILE_EXTENSION)) {
+            // Left over from an interrupted extraction, unless it's recent enough to be still
+            // written by another process.
+            if (System.currentTimeMillis() - new File(filesDirectory, fileName).lastModified()
+                > TEMP_PACK_FILE_MAX_AGE_MS) {
+              deleteOldPackFile(filesDirectory, fileName);
             }
-          } catch (NumberFormatException e) {
+            continue;
+          }
+          String filePrefix = fileName.substring(0, fileName.lastIndexOf(PACK_FILE_EXTENSION));
+          int versionSeparator = filePrefix.lastIndexOf(UNDERSCORE);
+          if (versionSeparator <= 0) {
             SpLog.w(
                 "translations/cleanupOldPackFiles Pack file name did not contain version info: "
                     + fileName);
+            continue;
+          }
+          String packFileName = filePrefix.substring(0, versionSeparator);
+          if (!currentKeys.containsKey(packFileName)) {
+            currentKeys.put(packFileName, getPackFileKeyFromAssets(context, packFileName));
+          }
+          String key = filePrefix.substring(versionSeparator + 1);
+          if (!key.equals(currentKeys.get(packFileName)) && !key.equals(installedKey)) {
+            deleteOldPackFile(filesDirectory, fileName);
           }
         }
       }
     }
   }
+
+  private static void deleteOldPackFile(@NonNull File filesDirectory, @NonNull String fileName) {
+    SpLog.i("translations/cleanupOldPackFiles Clearing old pack file: " + fileName);
+    boolean isDeleted = new File(filesDirectory, fileName).delete();
+    if (!isDeleted) {
+      SpLog.e("translations/cleanupOldPackFiles Could not delete old pack file: " + fileName);
+    }
+  }
 }
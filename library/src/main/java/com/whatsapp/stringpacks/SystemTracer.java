@@ -0,0 +1,44 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import android.os.Build;
+import android.os.Trace;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Emits the StringPacks trace sections with {@link Trace}, so they show up in systrace and
+ * Perfetto.
+ */
+public class SystemTracer implements Tracer {
+
+  /**
+   * Sets a {@link SystemTracer} with {@link SpTrace#setTracer}. This does nothing before API 18,
+   * where {@link Trace} is not available.
+   */
+  public static void enable() {
+    if (Build.VERSION.SDK_INT >= 18) {
+      SpTrace.setTracer(new SystemTracer());
+    }
+  }
+
+  @RequiresApi(18)
+  public SystemTracer() {}
+
+  @RequiresApi(18)
+  @Override
+  public void beginSection(@NonNull String name) {
+    Trace.beginSection(name);
+  }
+
+  @RequiresApi(18)
+  @Override
+  public void endSection() {
+    Trace.endSection();
+  }
+}
@@ -16,15 +16,16 @@ import com.whatsapp.stringpacks.service.PackFileDeletionService;
  * href="https://developer.android.com/reference/android/content/Intent#ACTION_MY_PACKAGE_REPLACED">MY_PACKAGE_REPLACED</a>,
  * which is generated by the system when the application is updated.
  *
- * <p>When this broadcast event is received, we cleanup all the .pack files, from internal storage,
- * that were created by the previous build, in a {@code Service}
+ * <p>When this broadcast event is received, we extract the .pack files of the current and recently
+ * used locales from the new build, and cleanup all the .pack files, from internal storage, that
+ * were created by the previous build, in a {@code Service}
  */
 public class MyPackageReplacedReceiver extends BroadcastReceiver {
 
   @Override
   public void onReceive(Context context, Intent intent) {
     Intent serviceIntent = new Intent(context, PackFileDeletionService.class);
-    serviceIntent.setAction(PackFileDeletionService.ACTION_PACK_FILE_DELETE);
+    serviceIntent.setAction(PackFileDeletionService.ACTION_PACK_FILE_EXTRACT_AND_DELETE);
 
     PackFileDeletionService.start(context, serviceIntent);
   }
@@ -13,7 +13,10 @@ import androidx.core.app.JobIntentService;
 import com.whatsapp.stringpacks.SpLog;
 import com.whatsapp.stringpacks.StringPacks;
 
-/** Service that deletes the old pack files */
+/**
+ * Service that deletes the old pack files, and optionally extracts the new ones ahead of the next
+ * launch
+ */
 public class PackFileDeletionService extends JobIntentService {
 
   private static final int PACK_FILE_DELETE_JOB_ID = 1;
@@ -21,6 +24,13 @@ public class PackFileDeletionService extends JobIntentService {
   public static final String ACTION_PACK_FILE_DELETE =
       "com.whatsapp.stringpacks.action.PACK_FILE_DELETE";
 
+  /**
+   * Extracts the pack files of the current and recently used locales from the new installation,
+   * then deletes the old pack files.
+   */
+  public static final String ACTION_PACK_FILE_EXTRACT_AND_DELETE =
+      "com.whatsapp.stringpacks.action.PACK_FILE_EXTRACT_AND_DELETE";
+
   public static void start(Context context, Intent intent) {
     JobIntentService.enqueueWork(
         context, PackFileDeletionService.class, PACK_FILE_DELETE_JOB_ID, intent);
@@ -35,6 +45,10 @@ public class PackFileDeletionService extends JobIntentService {
     }
     if (action.equals(ACTION_PACK_FILE_DELETE)) {
       StringPacks.cleanupOldPackFiles(getApplicationContext());
+    } else if (action.equals(ACTION_PACK_FILE_EXTRACT_AND_DELETE)) {
+      // Extraction has to happen first, it relies on the old pack files to find recent locales.
+      StringPacks.extractPackFilesForRecentLocales(getApplicationContext());
+      StringPacks.cleanupOldPackFiles(getApplicationContext());
     }
   }
 }
@@ -29,4 +29,18 @@ public class FileUtils {
     }
     return size;
   }
+
+  /**
+   * Reads from the stream until the buffer is full or the stream ends.
+   *
+   * @return the number of bytes read
+   */
+  public static int readFully(@NonNull InputStream in, @NonNull byte[] buffer) throws IOException {
+    int size = 0;
+    int n;
+    while (size < buffer.length && (n = in.read(buffer, size, buffer.length - size)) >= 0) {
+      size += n;
+    }
+    return size;
+  }
 }
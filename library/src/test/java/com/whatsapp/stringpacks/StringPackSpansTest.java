@@ -0,0 +1,79 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import android.graphics.Typeface;
+import android.text.Annotation;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class StringPackSpansTest {
+
+  private ParsedStringPack styledPack;
+
+  @Before
+  public void setUp() {
+    try {
+      RandomAccessFile randomAccessFile =
+          new RandomAccessFile(
+              getClass().getClassLoader().getResource("strings_styled.pack").getPath(), "r");
+      FileChannel fileChannel = randomAccessFile.getChannel();
+      MappedByteBuffer mappedByteBuffer =
+          fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+      styledPack =
+          new ParsedStringPack(
+              Arrays.asList("en", "en-GB"), mappedByteBuffer, StringPackSpans.INSTANCE);
+    } catch (IOException e) {
+      assertWithMessage("Test setup failure" + e).fail();
+    }
+  }
+
+  @Test
+  public void getText_appliesSpans() {
+    CharSequence text = styledPack.getText(0);
+    assertThat(text.toString()).isEqualTo("Tap here to continue");
+    assertThat(text).isInstanceOf(Spanned.class);
+    StyleSpan[] spans = ((Spanned) text).getSpans(0, text.length(), StyleSpan.class);
+    assertThat(spans).hasLength(1);
+    assertThat(spans[0].getStyle()).isEqualTo(Typeface.BOLD);
+    assertThat(((Spanned) text).getSpanStart(spans[0])).isEqualTo(4);
+    assertThat(((Spanned) text).getSpanEnd(spans[0])).isEqualTo(8);
+    // Styled texts are cached.
+    assertThat(styledPack.getText(0)).isSameInstanceAs(text);
+    // The plain string is still available without the spans.
+    assertThat(styledPack.getString(0)).isEqualTo("Tap here to continue");
+
+    // "en-GB" overrides the italic "color" with a plain "colour".
+    assertThat(styledPack.getText(1)).isEqualTo("colour");
+  }
+
+  @Test
+  public void getQuantityText_appliesSpans() {
+    CharSequence one = styledPack.getQuantityText(2, 1, StringPacksTestData.TEST_PLURAL_RULES);
+    assertThat(one.toString()).isEqualTo("1 item");
+    Annotation[] annotations = ((Spanned) one).getSpans(0, one.length(), Annotation.class);
+    assertThat(annotations).hasLength(1);
+    assertThat(annotations[0].getKey()).isEqualTo("font");
+    assertThat(annotations[0].getValue()).isEqualTo("title");
+
+    assertThat(styledPack.getQuantityText(2, 5, StringPacksTestData.TEST_PLURAL_RULES))
+        .isEqualTo("%d items");
+  }
+}
@@ -0,0 +1,122 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package com.whatsapp.stringpacks
+
+import android.app.Application
+import android.content.res.AssetManager
+import android.content.res.Configuration
+import android.content.res.Resources
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import com.google.common.truth.Truth.assertWithMessage
+import java.util.Locale
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mock
+import org.mockito.MockitoAnnotations
+import org.mockito.Mockito.spy
+import org.mockito.kotlin.any
+import org.mockito.kotlin.whenever
+import org.robolectric.RobolectricTestRunner
+
+/**
+ * Allocation budgets of the [StringPacks] lookups that run on every string an app shows. See
+ * [AllocationMeter].
+ */
+@RunWith(RobolectricTestRunner::class)
+class StringPacksAllocationTest {
+
+  // Slack for [StringPackResources.getString] over formatting the same string directly.
+  private val formatOverheadBytes = 32L
+
+  @Mock lateinit var resources: Resources
+  @Mock lateinit var configuration: Configuration
+  @Mock lateinit var assetManager: AssetManager
+  @Mock lateinit var stringPacksLocaleMetaDataProvider: StringPacksLocaleMetaDataProvider
+
+  private lateinit var application: Application
+  private lateinit var closeable: AutoCloseable
+  private lateinit var stringPacks: StringPacks
+
+  @Before
+  fun setUp() {
+    closeable = MockitoAnnotations.openMocks(this)
+    application = spy(ApplicationProvider.getApplicationContext<Application>())
+    whenever(application.resources).thenReturn(resources)
+    whenever(application.applicationContext).thenReturn(null)
+    whenever(resources.configuration).thenReturn(configuration)
+    whenever(resources.assets).thenReturn(assetManager)
+    whenever(assetManager.open("strings_zh.pack"))
+        .thenReturn(
+            requireNotNull(javaClass.classLoader) { "ClassLoader must not be null" }
+                .getResourceAsStream("strings_zh.pack"))
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    StringPacks.registerStringPackLocaleMetaDataProvider(stringPacksLocaleMetaDataProvider)
+
+    stringPacks = StringPacks.getInstance()
+    // Resource ids above 127, which are not in the Integer cache, so that boxing them allocates.
+    stringPacks.register(IntArray(16) { 0x7f100000 + it })
+    configuration.locale = Locale("zh")
+    stringPacks.setUp(application)
+  }
+
+  @After
+  fun tearDown() {
+    closeable.close()
+  }
+
+  @Test
+  fun getString_cacheHit_doesNotAllocate() {
+    val resId = 0x7f100000 + StringPacksTestData.STRING_ID
+    assertThat(stringPacks.getString(resId)).isEqualTo("你好，世界")
+
+    val bytes = AllocationMeter.bytesPerCall { stringPacks.getString(resId) }
+
+    assertWithMessage("Bytes allocated per cached getString()").that(bytes).isEqualTo(0L)
+  }
+
+  @Test
+  fun getText_cacheHit_doesNotAllocate() {
+    val resId = 0x7f100000 + StringPacksTestData.STRING_ID
+    assertThat(stringPacks.getText(resId).toString()).isEqualTo("你好，世界")
+
+    val bytes = AllocationMeter.bytesPerCall { stringPacks.getText(resId) }
+
+    assertWithMessage("Bytes allocated per cached getText()").that(bytes).isEqualTo(0L)
+  }
+
+  @Test
+  fun getQuantityString_cacheHit_doesNotAllocate() {
+    val resId = 0x7f100000 + StringPacksTestData.PLURALS_ID
+    assertThat(stringPacks.getQuantityString(resId, 21)).isEqualTo("其他")
+
+    val bytes = AllocationMeter.bytesPerCall { stringPacks.getQuantityString(resId, 21) }
+
+    assertWithMessage("Bytes allocated per cached getQuantityString()").that(bytes).isEqualTo(0L)
+  }
+
+  @Test
+  fun resourcesGetStringWithArgs_onlyAllocatesForFormatting() {
+    val resId = 0x7f100000 + StringPacksTestData.STRING_ID
+    val stringPackResources =
+        StringPackResources(
+            ApplicationProvider.getApplicationContext<Application>().resources, stringPacks)
+    val locale = StringPackUtils.getLocaleFromConfiguration(stringPackResources.configuration)
+    val format = requireNotNull(stringPacks.getString(resId))
+
+    val formatBytes = AllocationMeter.bytesPerCall { String.format(locale, format, "Alice") }
+    val bytes = AllocationMeter.bytesPerCall { stringPackResources.getString(resId, "Alice") }
+
+    assertWithMessage("Bytes allocated per StringPackResources.getString(id, args)")
+        .that(bytes)
+        .isAtMost(formatBytes + formatOverheadBytes)
+  }
+}
@@ -7,12 +7,19 @@
 package com.whatsapp.stringpacks
 
 import android.app.Application
+import android.content.Context
 import android.content.res.AssetManager
 import android.content.res.Configuration
 import android.content.res.Resources
+import android.util.AttributeSet
+import android.view.ContextThemeWrapper
+import android.view.LayoutInflater
+import android.view.View
+import android.widget.TextView
 import androidx.test.core.app.ApplicationProvider
 import com.google.common.truth.Truth.assertThat
 import com.google.common.truth.Truth.assertWithMessage
+import java.io.File
 import java.io.IOException
 import java.util.Locale
 import org.junit.After
@@ -22,10 +29,15 @@ import org.junit.runner.RunWith
 import org.mockito.Mock
 import org.mockito.MockitoAnnotations
 import org.mockito.kotlin.any
+import org.mockito.kotlin.mock
 import org.mockito.ArgumentMatchers.anyInt
+import org.mockito.Mockito.never
 import org.mockito.Mockito.spy
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
 import org.mockito.kotlin.whenever
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
 
 /** Tests for [StringPacks] locale setup and string resolution. */
 @RunWith(RobolectricTestRunner::class)
@@ -35,6 +47,8 @@ class StringPacksTest {
   private val zhTWLocale = Locale("zh", "TW")
   private val haNGLocale = Locale("ha", "NG")
   private val enLocale = Locale("en", "US")
+  // Pack id of R.string.hello_asia, which is written differently in zh and zh-TW.
+  private val asiaStringId = 4
 
   @Mock lateinit var resources: Resources
   @Mock lateinit var configuration: Configuration
@@ -98,6 +112,105 @@ class StringPacksTest {
     assertThat(enString).isEqualTo("Test")
   }
 
+  @Test
+  fun testRegisterAddsToRegisteredIds() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+
+    // Resource id 1004 is pack id 4, like resource id 4 of the table registered in setUp().
+    stringPacks.register(intArrayOf(1000, 1001, 1002, 1003, 1004))
+    assertThat(stringPacks.getString(1004)).isEqualTo("你好亚洲")
+    assertThat(stringPacks.getString(StringPacksTestData.STRING_ID)).isEqualTo("你好，世界")
+  }
+
+  @Test
+  fun testGetStringsFallsBackPerId() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    whenever(resources.getString(2016)).thenReturn("Not in pack")
+    whenever(resources.getString(3000)).thenReturn("Unpacked")
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+
+    // Resource id 2016 is pack id 16, which the pack doesn't have. Resource id 3000 isn't packed.
+    stringPacks.register(IntArray(17) { if (it < 16) it else 2000 + it })
+    val out = arrayOfNulls<String>(3)
+    stringPacks.getStrings(intArrayOf(StringPacksTestData.STRING_ID, 2016, 3000), out)
+    assertThat(out).asList().containsExactly("你好，世界", "Not in pack", "Unpacked").inOrder()
+  }
+
+  @Test
+  fun testGetQuantityStringsFallsBackPerId() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    whenever(resources.getQuantityString(3001, 2)).thenReturn("2 things")
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+
+    val out = arrayOfNulls<String>(2)
+    stringPacks.getQuantityStrings(
+        intArrayOf(StringPacksTestData.PLURALS_ID, 3001), intArrayOf(5, 2), out)
+    assertThat(out).asList().containsExactly("其他", "2 things").inOrder()
+  }
+
+  @Test
+  fun testGetStringsReadsOnePack() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亚洲")
+
+    // The locale changes to zh-TW once the batch has read its first string, from the cache.
+    SpMetrics.setListener(
+        object : StringPacksMetrics {
+          private var switched = false
+
+          override fun onCacheHit(type: Int) {
+            if (switched) {
+              return
+            }
+            switched = true
+            whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any()))
+                .thenReturn("zh-rTW")
+            whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+                .thenReturn(false)
+            whenever(
+                    stringPacksLocaleMetaDataProvider.getFirstChoiceLocaleInPackFileForLocale(
+                        any()))
+                .thenReturn("zh-TW")
+            configuration.locale = zhTWLocale
+            stringPacks.setUp(application)
+          }
+
+          override fun onMappedLoad(type: Int, bytesDecoded: Int) {}
+
+          override fun onFallback(type: Int) {}
+
+          override fun onSetUpPhase(phase: Int, durationNanos: Long) {}
+        })
+    val out = arrayOfNulls<String>(2)
+    try {
+      stringPacks.getStrings(intArrayOf(asiaStringId, 2), out)
+    } finally {
+      SpMetrics.setListener(null)
+    }
+
+    // Both strings come from the zh pack, and the next lookups use the zh-TW one.
+    assertThat(out).asList().containsExactly("你好亚洲", "南极洲你好").inOrder()
+    assertThat(stringPacks.getString(2)).isEqualTo("南極洲你好")
+  }
+
   @Test
   fun testSetUpApplicationInChineseTaiwan() {
     whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh-rTW")
@@ -139,4 +252,183 @@ class StringPacksTest {
     val haString = stringPacks.getString(StringPacksTestData.FALLBACK_STRING_ID)
     assertThat(haString).isEqualTo("Barka dai arewacin amurka")
   }
+
+  @Test
+  fun testInstallPackFileSwapsInCurrentPack() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh-rTW")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    whenever(stringPacksLocaleMetaDataProvider.getFirstChoiceLocaleInPackFileForLocale(any()))
+        .thenReturn("zh-TW")
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhTWLocale
+    stringPacks.setUp(application)
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亞洲")
+
+    // A truncated pack is rejected, and the current pack keeps being used.
+    val packBytes = readResource("strings_zh.pack")
+    val truncatedPack = File(application.cacheDir, "truncated.pack")
+    truncatedPack.writeBytes(packBytes.copyOf(packBytes.size - 1))
+    assertThat(stringPacks.installPackFile(application, "zh-rTW", truncatedPack)).isFalse()
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亞洲")
+
+    // The "zh" locale of the installed pack is a parent of zh-TW.
+    val fixedPack = File(application.cacheDir, "fixed.pack")
+    fixedPack.writeBytes(packBytes)
+    assertThat(stringPacks.installPackFile(application, "zh-rTW", fixedPack)).isTrue()
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亚洲")
+
+    // And it's used instead of the one in the assets from then on.
+    stringPacks.setUp(application)
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亚洲")
+  }
+
+  @Test
+  fun testMalformedInstalledPackFallsBackToAssets() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh-rTW")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    whenever(stringPacksLocaleMetaDataProvider.getFirstChoiceLocaleInPackFileForLocale(any()))
+        .thenReturn("zh-TW")
+    // As if installed by a version of the app that didn't validate it as strictly.
+    val installTimestamp = File(application.packageCodePath).lastModified() / 1000
+    val installedPack =
+        File(application.filesDir, "strings_zh-rTW_installed$installTimestamp.pack")
+    installedPack.writeBytes(readResource("strings_zh.pack").copyOf(StringPackData.HEADER_SIZE))
+
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhTWLocale
+    stringPacks.setUp(application)
+    assertThat(stringPacks.getString(asiaStringId)).isEqualTo("你好亞洲")
+    assertThat(installedPack.exists()).isFalse()
+  }
+
+  @Test
+  fun testModulePackIsMappedOnFirstLookup() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    whenever(assetManager.open("feature_strings_zh.pack"))
+        .thenReturn(readResource("strings_zh.pack").inputStream())
+    val stringPacks = StringPacks.getInstance()
+    // The module's own resource ids, by pack id.
+    stringPacks.registerModule("feature", IntArray(16) { 100 + it })
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+    verify(assetManager, never()).open("feature_strings_zh.pack")
+
+    assertThat(stringPacks.getString(100 + StringPacksTestData.STRING_ID)).isEqualTo("你好，世界")
+    assertThat(stringPacks.getString(100 + asiaStringId)).isEqualTo("你好亚洲")
+    verify(assetManager, times(1)).open("feature_strings_zh.pack")
+    // The strings of the main pack are still looked up in it.
+    assertThat(stringPacks.getString(StringPacksTestData.STRING_ID)).isEqualTo("你好，世界")
+  }
+
+  @Test
+  fun testInflaterFactorySetsPackedStrings() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+    val androidNamespace = "http://schemas.android.com/apk/res/android"
+    val attrs = mock<AttributeSet>()
+    whenever(attrs.getAttributeResourceValue(androidNamespace, "text", 0))
+        .thenReturn(StringPacksTestData.STRING_ID)
+    whenever(attrs.getAttributeResourceValue(androidNamespace, "contentDescription", 0))
+        .thenReturn(asiaStringId)
+    // Not packed, so left as the view read it.
+    whenever(attrs.getAttributeResourceValue(androidNamespace, "hint", 0)).thenReturn(1000)
+    val context = ApplicationProvider.getApplicationContext<Application>()
+    val delegate =
+        object : LayoutInflater.Factory2 {
+          override fun onCreateView(
+              parent: View?,
+              name: String,
+              context: Context,
+              attrs: AttributeSet
+          ): View = TextView(context).apply { hint = "Hint" }
+
+          override fun onCreateView(name: String, context: Context, attrs: AttributeSet): View? =
+              null
+        }
+
+    val view =
+        StringPackInflaterFactory(mock<LayoutInflater>(), delegate)
+            .onCreateView(null, "TextView", context, attrs) as TextView
+    assertThat(view.text.toString()).isEqualTo("你好，世界")
+    assertThat(view.contentDescription.toString()).isEqualTo("你好亚洲")
+    assertThat(view.hint.toString()).isEqualTo("Hint")
+  }
+
+  @Test
+  // The last API level without LayoutInflater.createView(Context, ...), where the factory creates
+  // views with an inflater cloned in their context.
+  @Config(sdk = [28])
+  fun testInflaterFactoryCreatesViewsWithoutDelegate() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    val stringPacks = StringPacks.getInstance()
+    configuration.locale = zhLocale
+    stringPacks.setUp(application)
+    val attrs = mock<AttributeSet>()
+    whenever(
+            attrs.getAttributeResourceValue(
+                "http://schemas.android.com/apk/res/android", "text", 0))
+        .thenReturn(StringPacksTestData.STRING_ID)
+    val inflater = LayoutInflater.from(ApplicationProvider.getApplicationContext<Application>())
+    // A layout that sets a theme on the view inflates it in a context other than the inflater's.
+    val themedContext = ContextThemeWrapper(inflater.context, android.R.style.Theme_Black)
+
+    val view =
+        StringPackInflaterFactory(inflater, null)
+            .onCreateView(null, InflatedTextView::class.java.name, themedContext, attrs)
+            as TextView
+    assertThat(view.text.toString()).isEqualTo("你好，世界")
+    assertThat(view.context).isSameInstanceAs(themedContext)
+  }
+
+  /** A view that layouts name with its package, and that ignores the attributes it's given. */
+  class InflatedTextView(context: Context, @Suppress("UNUSED_PARAMETER") attrs: AttributeSet) :
+      TextView(context)
+
+  private fun readResource(name: String): ByteArray =
+      requireNotNull(javaClass.classLoader) { "ClassLoader must not be null" }
+          .getResourceAsStream(name)
+          .use { it.readBytes() }
+
+  @Test
+  fun testSetUpReportsPhases() {
+    whenever(stringPacksLocaleMetaDataProvider.getPackFileIdForLocale(any())).thenReturn("zh")
+    whenever(stringPacksLocaleMetaDataProvider.shouldAddLanguageAsParentForLocale(any()))
+        .thenReturn(true)
+    val phases = mutableListOf<Int>()
+    SpMetrics.setListener(
+        object : StringPacksMetrics {
+          override fun onCacheHit(type: Int) {}
+
+          override fun onMappedLoad(type: Int, bytesDecoded: Int) {}
+
+          override fun onFallback(type: Int) {}
+
+          override fun onSetUpPhase(phase: Int, durationNanos: Long) {
+            phases.add(phase)
+          }
+        })
+    try {
+      configuration.locale = zhLocale
+      StringPacks.getInstance().setUp(application)
+    } finally {
+      SpMetrics.setListener(null)
+    }
+    assertThat(phases)
+        .containsExactly(
+            StringPacksMetrics.PHASE_EXTRACT,
+            StringPacksMetrics.PHASE_MAP,
+            StringPacksMetrics.PHASE_INDEX,
+            StringPacksMetrics.PHASE_PLURAL_RULES)
+        .inOrder()
+  }
 }
@@ -0,0 +1,17 @@
+/* Copyright (c) Facebook, Inc. and its affiliates. All rights reserved.
+ *
+ * This source code is licensed under the Apache 2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+
+package {package.name};
+
+/**
+ * The packed strings used by each layout and screen, to pass to {@code
+ * StringPacks.getInstance().prewarm()} ahead of showing the screen.
+ */
+public class StringPackScreens {
+
+  // region StringPacks Screen Manifests
+  // endregion
+}